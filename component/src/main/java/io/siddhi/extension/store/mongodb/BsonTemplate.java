@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.siddhi.extension.store.mongodb;
+
+import io.siddhi.extension.store.mongodb.util.BsonTypeBinder;
+import io.siddhi.query.api.definition.Attribute;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pre-built BSON tree which is compiled once from a Siddhi condition. Parts of the tree which do not depend on
+ * runtime values are built at compile time and shared between events, while stream variables are kept as parameter
+ * slots which are bound to the values of each event. The BSON values of a template are not serializable, hence
+ * constants are serialized as the only field of a {@link BsonDocument}, which is, and the static documents and arrays
+ * are built again from their entries when the template is deserialized.
+ */
+public abstract class BsonTemplate implements Serializable {
+
+    private static final long serialVersionUID = -2425853436410954236L;
+
+    /**
+     * Method which binds the parameter slots of the template with the given runtime values.
+     *
+     * @param parameters the runtime values keyed by the stream variable id.
+     * @return the {@link BsonValue} with all the parameter slots resolved.
+     */
+    public abstract BsonValue bind(Map<String, Object> parameters);
+
+    /**
+     * Method which returns whether the template depends on runtime values or not.
+     *
+     * @return <code>true</code> if the template does not contain any parameter slots
+     * <code>false</code> otherwise
+     */
+    public abstract boolean isStatic();
+
+    public static BsonTemplate constant(BsonValue value) {
+        return new ConstantTemplate(value);
+    }
+
+    public static BsonTemplate parameter(String name, Attribute.Type type) {
+        return new ParameterTemplate(name, type, BsonTypeBinder.of(type));
+    }
+
+    public static BsonTemplate objectIdParameter(String name, Attribute.Type type) {
+        return new ParameterTemplate(name, type, BsonTypeBinder.OBJECT_ID);
+    }
+
+    public static BsonTemplate storeValues(String storeId, String fieldName) {
+        return new StoreValuesTemplate(storeId, fieldName);
+    }
+
+    public static DocumentTemplate document(String key, BsonTemplate value) {
+        Map<String, BsonTemplate> entries = new LinkedHashMap<>();
+        entries.put(key, value);
+        return new DocumentTemplate(entries);
+    }
+
+    public static DocumentTemplate document(Map<String, BsonTemplate> entries) {
+        return new DocumentTemplate(entries);
+    }
+
+    public static ArrayTemplate array(List<BsonTemplate> values) {
+        return new ArrayTemplate(values);
+    }
+
+    /**
+     * Template of a constant value, which is resolved at compile time.
+     */
+    public static class ConstantTemplate extends BsonTemplate {
+
+        private static final long serialVersionUID = 4513542542447617044L;
+        private static final String VALUE_FIELD = "value";
+
+        private transient BsonValue value;
+
+        ConstantTemplate(BsonValue value) {
+            this.value = value;
+        }
+
+        public BsonValue getValue() {
+            return value;
+        }
+
+        @Override
+        public BsonValue bind(Map<String, Object> parameters) {
+            return value;
+        }
+
+        @Override
+        public boolean isStatic() {
+            return true;
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            out.writeObject(new BsonDocument(VALUE_FIELD, value));
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            this.value = ((BsonDocument) in.readObject()).get(VALUE_FIELD);
+        }
+    }
+
+    /**
+     * Template of a stream variable, which is resolved for each event using the binder of its attribute type.
+     */
+    public static class ParameterTemplate extends BsonTemplate {
+
+        private static final long serialVersionUID = -4064440813183216085L;
+
+        private String name;
+        private Attribute.Type type;
+        private BsonTypeBinder binder;
+
+        ParameterTemplate(String name, Attribute.Type type, BsonTypeBinder binder) {
+            this.name = name;
+            this.type = type;
+            this.binder = binder;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Attribute.Type getType() {
+            return type;
+        }
+
+        public BsonTypeBinder getBinder() {
+            return binder;
+        }
+
+        @Override
+        public BsonValue bind(Map<String, Object> parameters) {
+            return binder.bind(parameters.get(name));
+        }
+
+        @Override
+        public boolean isStatic() {
+            return false;
+        }
+    }
+
+    /**
+     * Template of a BSON document, where the keys are known at compile time.
+     */
+    public static class DocumentTemplate extends BsonTemplate {
+
+        private static final long serialVersionUID = 6236137271669557440L;
+
+        private Map<String, BsonTemplate> entries;
+        private transient BsonDocument staticDocument;
+
+        DocumentTemplate(Map<String, BsonTemplate> entries) {
+            this.entries = Collections.unmodifiableMap(entries);
+            this.bindStaticDocument();
+        }
+
+        private void bindStaticDocument() {
+            if (entries.values().stream().allMatch(BsonTemplate::isStatic)) {
+                this.staticDocument = this.bindEntries(Collections.emptyMap());
+            }
+        }
+
+        public Map<String, BsonTemplate> getEntries() {
+            return entries;
+        }
+
+        @Override
+        public BsonDocument bind(Map<String, Object> parameters) {
+            if (staticDocument != null) {
+                return staticDocument;
+            }
+            return this.bindEntries(parameters);
+        }
+
+        private BsonDocument bindEntries(Map<String, Object> parameters) {
+            BsonDocument document = new BsonDocument();
+            for (Map.Entry<String, BsonTemplate> entry : entries.entrySet()) {
+                document.append(entry.getKey(), entry.getValue().bind(parameters));
+            }
+            return document;
+        }
+
+        @Override
+        public boolean isStatic() {
+            return staticDocument != null;
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            this.bindStaticDocument();
+        }
+    }
+
+    /**
+     * Template of a BSON array, where the number of elements is known at compile time.
+     */
+    public static class ArrayTemplate extends BsonTemplate {
+
+        private static final long serialVersionUID = -3404826104470916005L;
+
+        private List<BsonTemplate> values;
+        private transient BsonArray staticArray;
+
+        ArrayTemplate(List<BsonTemplate> values) {
+            this.values = Collections.unmodifiableList(new ArrayList<>(values));
+            this.bindStaticArray();
+        }
+
+        private void bindStaticArray() {
+            if (values.stream().allMatch(BsonTemplate::isStatic)) {
+                this.staticArray = this.bindValues(Collections.emptyMap());
+            }
+        }
+
+        public List<BsonTemplate> getValues() {
+            return values;
+        }
+
+        @Override
+        public BsonArray bind(Map<String, Object> parameters) {
+            if (staticArray != null) {
+                return staticArray;
+            }
+            return this.bindValues(parameters);
+        }
+
+        private BsonArray bindValues(Map<String, Object> parameters) {
+            BsonArray array = new BsonArray();
+            for (BsonTemplate value : values) {
+                array.add(value.bind(parameters));
+            }
+            return array;
+        }
+
+        @Override
+        public boolean isStatic() {
+            return staticArray != null;
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            this.bindStaticArray();
+        }
+    }
+
+    /**
+     * Template of the values of a field of another store, which an IN condition checks the membership against.
+     * The values are resolved by the table before each bind, and passed under the key of the template.
+     */
+    public static class StoreValuesTemplate extends BsonTemplate {
+
+        private static final long serialVersionUID = 5170843316453786519L;
+
+        private String storeId;
+        private String fieldName;
+        private String key;
+
+        StoreValuesTemplate(String storeId, String fieldName) {
+            this.storeId = storeId;
+            this.fieldName = fieldName;
+            this.key = "in:" + storeId + "." + fieldName;
+        }
+
+        public String getStoreId() {
+            return storeId;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public BsonArray bind(Map<String, Object> parameters) {
+            Object values = parameters.get(key);
+            return values instanceof BsonArray ? (BsonArray) values : new BsonArray();
+        }
+
+        @Override
+        public boolean isStatic() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.siddhi.extension.store.mongodb;
+
+import com.mongodb.client.model.WriteModel;
+import io.siddhi.core.exception.ConnectionUnavailableException;
+import io.siddhi.extension.store.mongodb.exception.MongoTableException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+/**
+ * Class which splits the write models of a bulk write into sub-batches that fit the limits of the server, and
+ * dispatches independent sub-batches concurrently on a bounded executor. Write models which share a partition key
+ * are always kept in the same lane, so that their order is preserved. Ordered bulk writes must use a single lane,
+ * as the order of the write models across lanes and the stop at the first failure are not kept.
+ */
+public class MongoBatchDispatcher {
+    private static final Logger log = LogManager.getLogger(MongoBatchDispatcher.class);
+
+    // Headroom left in each message for the command document and the array indexes of the write models.
+    private static final int MESSAGE_OVERHEAD_BYTES = 16 * 1024;
+    private static final int WRITE_MODEL_OVERHEAD_BYTES = 16;
+    private static final int DEFAULT_MAX_WRITE_BATCH_SIZE = 100000;
+    private static final int DEFAULT_MAX_MESSAGE_SIZE_BYTES = 48000000;
+
+    private final String collectionName;
+    private final int parallelism;
+    private ExecutorService executorService;
+    private volatile int maxWriteBatchSize = DEFAULT_MAX_WRITE_BATCH_SIZE;
+    private volatile int maxMessageSizeBytes = DEFAULT_MAX_MESSAGE_SIZE_BYTES;
+
+    public MongoBatchDispatcher(String collectionName, int parallelism) {
+        this.collectionName = collectionName;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Method for updating the batch limits from the response of the 'hello' command.
+     *
+     * @param helloResponse the response of the 'hello' or 'isMaster' command.
+     */
+    public void updateServerLimits(Document helloResponse) {
+        Number writeBatchSize = helloResponse.get("maxWriteBatchSize", Number.class);
+        if (writeBatchSize != null) {
+            this.maxWriteBatchSize = writeBatchSize.intValue();
+        }
+        Number messageSizeBytes = helloResponse.get("maxMessageSizeBytes", Number.class);
+        if (messageSizeBytes != null) {
+            this.maxMessageSizeBytes = messageSizeBytes.intValue();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("MongoDB Event Table '{}' splits bulk writes into batches of at most {} writes and {} bytes.",
+                    collectionName, maxWriteBatchSize, maxMessageSizeBytes);
+        }
+    }
+
+    /**
+     * Method for splitting and writing the given write models.
+     *
+     * @param writeModels  the write models to be written.
+     * @param sizer        function which returns the encoded BSON size of a write model.
+     * @param partitioner  function which returns the partition key of a write model, or null if the write models
+     *                     do not depend on each other.
+     * @param batchWriter  the writer which applies a sub-batch.
+     * @throws ConnectionUnavailableException if the connection to the server is unavailable.
+     */
+    public <T> void dispatch(List<? extends WriteModel<T>> writeModels, ToIntFunction<WriteModel<T>> sizer,
+                             ToIntFunction<WriteModel<T>> partitioner, BatchWriter<T> batchWriter)
+            throws ConnectionUnavailableException {
+        if (writeModels.isEmpty()) {
+            return;
+        }
+        if (parallelism <= 1 || executorService == null || writeModels.size() == 1) {
+            for (List<WriteModel<T>> subBatch : this.split(writeModels, sizer)) {
+                batchWriter.write(subBatch);
+            }
+            return;
+        }
+        List<List<WriteModel<T>>> lanes = this.partition(writeModels, partitioner);
+        List<Future<?>> futures = new ArrayList<>(lanes.size());
+        for (List<WriteModel<T>> lane : lanes) {
+            if (lane.isEmpty()) {
+                continue;
+            }
+            futures.add(executorService.submit(() -> {
+                for (List<WriteModel<T>> subBatch : this.split(lane, sizer)) {
+                    batchWriter.write(subBatch);
+                }
+                return null;
+            }));
+        }
+        this.awaitAll(futures);
+    }
+
+    /**
+     * Method for splitting the write models into sub-batches which fit the limits of the server.
+     *
+     * @param writeModels the write models to be split.
+     * @param sizer       function which returns the encoded BSON size of a write model.
+     * @return the sub-batches in the order of the given write models.
+     */
+    <T> List<List<WriteModel<T>>> split(List<? extends WriteModel<T>> writeModels,
+                                        ToIntFunction<WriteModel<T>> sizer) {
+        List<List<WriteModel<T>>> subBatches = new ArrayList<>();
+        int maxBatchBytes = maxMessageSizeBytes - MESSAGE_OVERHEAD_BYTES;
+        List<WriteModel<T>> subBatch = new ArrayList<>();
+        long subBatchBytes = 0;
+        for (WriteModel<T> writeModel : writeModels) {
+            int size = sizer.applyAsInt(writeModel) + WRITE_MODEL_OVERHEAD_BYTES;
+            if (!subBatch.isEmpty() &&
+                    (subBatch.size() >= maxWriteBatchSize || subBatchBytes + size > maxBatchBytes)) {
+                subBatches.add(subBatch);
+                subBatch = new ArrayList<>();
+                subBatchBytes = 0;
+            }
+            subBatch.add(writeModel);
+            subBatchBytes += size;
+        }
+        subBatches.add(subBatch);
+        return subBatches;
+    }
+
+    private <T> List<List<WriteModel<T>>> partition(List<? extends WriteModel<T>> writeModels,
+                                                    ToIntFunction<WriteModel<T>> partitioner) {
+        List<List<WriteModel<T>>> lanes = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            lanes.add(new ArrayList<>());
+        }
+        int size = writeModels.size();
+        for (int i = 0; i < size; i++) {
+            WriteModel<T> writeModel = writeModels.get(i);
+            int lane = partitioner == null ? (int) ((long) i * parallelism / size) :
+                    Math.floorMod(partitioner.applyAsInt(writeModel), parallelism);
+            lanes.get(lane).add(writeModel);
+        }
+        return lanes;
+    }
+
+    private void awaitAll(List<Future<?>> futures) throws ConnectionUnavailableException {
+        Throwable failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MongoTableException("Interrupted while writing to the collection '" + collectionName +
+                        "'.", e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure instanceof ConnectionUnavailableException) {
+            throw (ConnectionUnavailableException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw new MongoTableException("Error in writing to the collection '" + collectionName + "' : " +
+                    failure.getLocalizedMessage(), failure);
+        }
+    }
+
+    /**
+     * Method for starting the executor of the concurrent sub-batches.
+     */
+    public synchronized void start() {
+        if (parallelism > 1 && executorService == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            executorService = Executors.newFixedThreadPool(parallelism, runnable -> {
+                Thread thread = new Thread(runnable,
+                        "MongoDBEventTable-BulkWrite-" + collectionName + "-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Method for stopping the executor of the concurrent sub-batches.
+     */
+    public synchronized void shutdown() {
+        if (executorService != null) {
+            executorService.shutdown();
+            executorService = null;
+        }
+    }
+
+    /**
+     * Writer which applies a sub-batch of write models.
+     */
+    @FunctionalInterface
+    public interface BatchWriter<T> {
+        void write(List<WriteModel<T>> subBatch) throws ConnectionUnavailableException;
+    }
+}
@@ -18,18 +18,30 @@
 package io.siddhi.extension.store.mongodb;
 
 import io.siddhi.core.util.collection.operator.CompiledCondition;
+import io.siddhi.extension.store.mongodb.util.MongoTableUtils;
+import org.bson.BsonDocument;
 
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Implementation class of {@link CompiledCondition} corresponding to the MongoDB Event Table.
  * Maintains the condition string returned by the ConditionVisitor as well as a map of parameters to be used at runtime.
+ * Conditions compiled for filtering also hold the pre-built filter template, so that only the parameter slots
+ * are bound at runtime.
  */
 public class MongoCompiledCondition implements CompiledCondition {
 
     private static final long serialVersionUID = 881116281383931987L;
 
     private String compiledQuery;
+    private BsonTemplate compiledFilter;
+    private Map<String, BsonTemplate> equalityFields;
+    private List<BsonTemplate.StoreValuesTemplate> storeValues;
+    private boolean primaryKeyLookup;
+    private BsonDocument probeProjection;
+    private boolean coveredProbe;
     private Map<String, Object> placeholders;
 
 
@@ -38,10 +50,76 @@ public class MongoCompiledCondition implements CompiledCondition {
         this.placeholders = parameters;
     }
 
+    public MongoCompiledCondition(String compiledQuery, BsonTemplate compiledFilter, Map<String, Object> parameters) {
+        this.compiledQuery = compiledQuery;
+        this.compiledFilter = compiledFilter;
+        this.equalityFields = MongoTableUtils.extractEqualityFields(compiledFilter);
+        this.storeValues = MongoTableUtils.extractStoreValues(compiledFilter);
+        this.placeholders = parameters;
+    }
+
+    public MongoCompiledCondition(String compiledQuery, BsonTemplate compiledFilter, Map<String, Object> parameters,
+                                  List<String> primaryKeyFields) {
+        this(compiledQuery, compiledFilter, parameters);
+        this.primaryKeyLookup = !primaryKeyFields.isEmpty() && this.equalityFields != null &&
+                this.equalityFields.keySet().equals(new HashSet<>(primaryKeyFields));
+    }
+
     public String getCompiledQuery() {
         return compiledQuery;
     }
 
+    public BsonTemplate getCompiledFilter() {
+        return compiledFilter;
+    }
+
+    /**
+     * Returns the value template of each field compared for equality, when the condition is a conjunction of
+     * equality comparisons.
+     *
+     * @return the equality fields in the order of the condition, or null for any other condition.
+     */
+    public Map<String, BsonTemplate> getEqualityFields() {
+        return equalityFields;
+    }
+
+    /**
+     * Returns the slots of the filter which hold the values of the stores referenced by IN conditions.
+     *
+     * @return the store value slots, which are empty if the condition has no IN conditions.
+     */
+    public List<BsonTemplate.StoreValuesTemplate> getStoreValues() {
+        return storeValues;
+    }
+
+    /**
+     * Returns whether the condition is an equality comparison on all the primary key fields of the table, so that
+     * it matches at most one document through the unique primary key index.
+     *
+     * @return true if the condition is a primary key lookup.
+     */
+    public boolean isPrimaryKeyLookup() {
+        return primaryKeyLookup;
+    }
+
+    public BsonDocument getProbeProjection() {
+        return probeProjection;
+    }
+
+    /**
+     * Returns whether the existence probe of the condition can be answered from an index alone.
+     *
+     * @return true if the probe projection only includes fields of an index which the condition uses.
+     */
+    public boolean isCoveredProbe() {
+        return coveredProbe;
+    }
+
+    public void setProbeProjection(BsonDocument probeProjection, boolean coveredProbe) {
+        this.probeProjection = probeProjection;
+        this.coveredProbe = coveredProbe;
+    }
+
     public String toString() {
         return getCompiledQuery();
     }
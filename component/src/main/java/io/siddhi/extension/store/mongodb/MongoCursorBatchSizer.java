@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.siddhi.extension.store.mongodb;
+
+import io.siddhi.extension.store.mongodb.util.MongoTableUtils;
+
+/**
+ * Class which picks the batch size of the cursors of the MongoDB Event Table. The batch size is either fixed, or
+ * adapted to what the previous cursors of the same kind of read observed: the number of documents they returned, the
+ * average size of a document and the speed at which the documents were consumed. A batch then holds the whole
+ * result of a small lookup, while the batches of a large scan are bounded in memory and in the time the consumer
+ * spends on them.
+ */
+public class MongoCursorBatchSizer {
+    private static final int MIN_BATCH_SIZE = 2;
+    private static final int MAX_BATCH_SIZE = 100000;
+    // Memory held by one batch, well below the 16MB the server returns at most per batch.
+    private static final long TARGET_BATCH_BYTES = 4L * 1024 * 1024;
+    // Time the consumer should spend on one batch, so that a slow consumer does not hold large batches.
+    private static final long TARGET_BATCH_NANOS = 200_000_000L;
+    private static final double SMOOTHING_FACTOR = 0.2;
+
+    private final Integer fixedBatchSize;
+    private double averageResultCount;
+    private double averageDocumentSize;
+    private double averageConsumeNanos;
+    private volatile Integer adaptiveBatchSize;
+
+    /**
+     * Creates a batch sizer.
+     *
+     * @param fixedBatchSize the batch size of every cursor, or null for a batch size adapted to the observed reads.
+     */
+    public MongoCursorBatchSizer(Integer fixedBatchSize) {
+        this.fixedBatchSize = fixedBatchSize;
+    }
+
+    public boolean isAdaptive() {
+        return this.fixedBatchSize == null;
+    }
+
+    /**
+     * Method which returns the batch size of the next cursor.
+     *
+     * @return the batch size, or null for the default batch size of the driver, until a read is observed.
+     */
+    public Integer getBatchSize() {
+        return this.isAdaptive() ? this.adaptiveBatchSize : this.fixedBatchSize;
+    }
+
+    /**
+     * Method for recording what a cursor observed once it is consumed.
+     *
+     * @param documentCount the number of documents the cursor returned.
+     * @param sampledBytes  the total estimated size of the sampled documents.
+     * @param sampleCount   the number of sampled documents.
+     * @param consumeNanos  the time between the first and the last document handed to the consumer.
+     */
+    public synchronized void record(long documentCount, long sampledBytes, long sampleCount, long consumeNanos) {
+        if (!this.isAdaptive()) {
+            return;
+        }
+        boolean firstRead = this.adaptiveBatchSize == null;
+        this.averageResultCount = this.smooth(this.averageResultCount, documentCount, firstRead);
+        if (sampleCount > 0) {
+            this.averageDocumentSize = this.smooth(this.averageDocumentSize, (double) sampledBytes / sampleCount,
+                    firstRead || this.averageDocumentSize == 0);
+        }
+        if (documentCount > 1) {
+            this.averageConsumeNanos = this.smooth(this.averageConsumeNanos,
+                    (double) consumeNanos / (documentCount - 1), firstRead || this.averageConsumeNanos == 0);
+        }
+        // One more than the expected documents, so that the server closes the cursor with the first batch.
+        double batchSize = this.averageResultCount + 1;
+        if (this.averageDocumentSize > 0) {
+            batchSize = Math.min(batchSize, TARGET_BATCH_BYTES / this.averageDocumentSize);
+        }
+        if (this.averageConsumeNanos > 0) {
+            batchSize = Math.min(batchSize, TARGET_BATCH_NANOS / this.averageConsumeNanos);
+        }
+        this.adaptiveBatchSize = (int) Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, Math.ceil(batchSize)));
+    }
+
+    private double smooth(double average, double value, boolean first) {
+        return first ? value : average + SMOOTHING_FACTOR * (value - average);
+    }
+
+    /**
+     * Method which starts the observation of a cursor, by whichever iterator hands its records to the consumer.
+     *
+     * @return the observation, or null if the batch size is fixed.
+     */
+    public Observation observe() {
+        return this.isAdaptive() ? new Observation(this) : null;
+    }
+
+    /**
+     * The observation of the records of one cursor as they are handed to the consumer, which is recorded by the
+     * batch sizer once the cursor is consumed.
+     */
+    public static final class Observation {
+        // One in this many records is measured for the average document size.
+        private static final int SAMPLING_INTERVAL = 16;
+
+        private MongoCursorBatchSizer batchSizer;
+        private long documentCount;
+        private long sampledBytes;
+        private long sampleCount;
+        private long firstNextNanos;
+        private long lastNextNanos;
+
+        private Observation(MongoCursorBatchSizer batchSizer) {
+            this.batchSizer = batchSizer;
+        }
+
+        /**
+         * Method for observing a record handed to the consumer.
+         *
+         * @param record the record.
+         */
+        public void onNext(Object[] record) {
+            this.lastNextNanos = System.nanoTime();
+            if (this.documentCount == 0) {
+                this.firstNextNanos = this.lastNextNanos;
+            }
+            if (this.documentCount % SAMPLING_INTERVAL == 0) {
+                this.sampledBytes += MongoTableUtils.estimateBsonSize(record);
+                this.sampleCount++;
+            }
+            this.documentCount++;
+        }
+
+        /**
+         * Method for recording the observation in the batch sizer, which only records it the first time.
+         */
+        public void report() {
+            if (this.batchSizer != null) {
+                this.batchSizer.record(this.documentCount, this.sampledBytes, this.sampleCount,
+                        this.lastNextNanos - this.firstNextNanos);
+                this.batchSizer = null;
+            }
+        }
+    }
+}
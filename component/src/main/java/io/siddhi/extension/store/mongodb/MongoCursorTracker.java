@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.siddhi.extension.store.mongodb;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCursor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class which keeps track of the server cursors opened by the iterators of a MongoDB Event Table. An iterator closes
+ * its cursor when it is closed or exhausted. A cursor whose iterator is garbage collected without either is counted as
+ * leaked and closed the next time a cursor is opened, and the cursors still open when the table is disconnected are
+ * closed as well, so that no cursor is left on the server until it times out.
+ */
+public class MongoCursorTracker {
+    private static final Logger log = LogManager.getLogger(MongoCursorTracker.class);
+
+    private final String collectionName;
+    private final Set<CursorReference> openCursors = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<MongoIterator> unreachableIterators = new ReferenceQueue<>();
+    private final AtomicLong closedCursorCount = new AtomicLong();
+    private final AtomicLong leakedCursorCount = new AtomicLong();
+
+    public MongoCursorTracker(String collectionName) {
+        this.collectionName = collectionName;
+    }
+
+    /**
+     * Method for tracking the cursor of an iterator.
+     *
+     * @param iterator the iterator which owns the cursor.
+     * @param cursor   the cursor.
+     * @return the handle through which the iterator closes the cursor.
+     */
+    public CursorReference track(MongoIterator iterator, MongoCursor<?> cursor) {
+        this.closeLeakedCursors();
+        CursorReference reference = new CursorReference(iterator, cursor, this);
+        this.openCursors.add(reference);
+        return reference;
+    }
+
+    /**
+     * Method for closing the cursors whose iterators were garbage collected without being closed.
+     */
+    public void closeLeakedCursors() {
+        Reference<? extends MongoIterator> reference;
+        while ((reference = this.unreachableIterators.poll()) != null) {
+            CursorReference cursorReference = (CursorReference) reference;
+            if (this.openCursors.remove(cursorReference)) {
+                this.leakedCursorCount.incrementAndGet();
+                this.closeCursor(cursorReference.cursor);
+            }
+        }
+    }
+
+    /**
+     * Method for closing every cursor which is still open, when the table is disconnected.
+     */
+    public void closeAll() {
+        this.closeLeakedCursors();
+        for (CursorReference reference : this.openCursors) {
+            if (this.openCursors.remove(reference)) {
+                this.leakedCursorCount.incrementAndGet();
+                reference.clear();
+                this.closeCursor(reference.cursor);
+            }
+        }
+    }
+
+    private void closeCursor(MongoCursor<?> cursor) {
+        try {
+            cursor.close();
+        } catch (MongoException e) {
+            log.warn("Closing a cursor of the collection '{}' is not successful due to {}.", this.collectionName,
+                    e.getLocalizedMessage());
+        }
+    }
+
+    public long getOpenCursorCount() {
+        return this.openCursors.size();
+    }
+
+    public long getClosedCursorCount() {
+        return this.closedCursorCount.get();
+    }
+
+    public long getLeakedCursorCount() {
+        return this.leakedCursorCount.get();
+    }
+
+    /**
+     * Handle of a tracked cursor, which becomes reachable from the reference queue once its iterator is garbage
+     * collected. It holds the cursor, but not the iterator, so that the cursor can be closed after the iterator is
+     * collected.
+     */
+    public static final class CursorReference extends PhantomReference<MongoIterator> {
+        private final MongoCursor<?> cursor;
+        private final MongoCursorTracker tracker;
+
+        private CursorReference(MongoIterator iterator, MongoCursor<?> cursor, MongoCursorTracker tracker) {
+            super(iterator, tracker.unreachableIterators);
+            this.cursor = cursor;
+            this.tracker = tracker;
+        }
+
+        /**
+         * Method for closing the cursor, which has no effect once the cursor is closed.
+         */
+        public void close() {
+            if (this.tracker.openCursors.remove(this)) {
+                this.clear();
+                this.tracker.closedCursorCount.incrementAndGet();
+                this.tracker.closeCursor(this.cursor);
+            }
+        }
+    }
+}
@@ -18,44 +18,96 @@
 package io.siddhi.extension.store.mongodb;
 
 import io.siddhi.core.util.collection.operator.CompiledSelection;
+import io.siddhi.extension.store.mongodb.util.MongoTableConstants;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Implementation class of corresponding to projection, groupBy, having, orderBy, limit and offset conditions.
+ * Implementation class of corresponding to projection, groupBy, having, orderBy, limit and offset conditions. The
+ * stages of the aggregation pipeline which follow the '$match' stage are built once here, and the stages without
+ * any stream attribute are bound once as well, so that a query only binds the parameters of the other stages.
  */
 public class MongoDBCompileSelection implements CompiledSelection {
 
     private static final long serialVersionUID = 9157816339757372848L;
 
-    private MongoCompiledCondition selection;
-    private MongoCompiledCondition groupBy;
-    private String having;
-    private String orderBy;
+    private BsonTemplate selection;
+    private BsonTemplate groupBy;
+    private BsonTemplate having;
+    private BsonTemplate orderBy;
     private Long limit;
     private Long offset;
+    private List<BsonTemplate> stages;
+    private transient MongoRecordDecoder recordDecoder;
+    private transient MongoCursorBatchSizer cursorBatchSizer;
 
-    public MongoDBCompileSelection(MongoCompiledCondition project, MongoCompiledCondition groupBy, String having,
-                                   String orderBy, Long limit, Long offset) {
+    public MongoDBCompileSelection(BsonTemplate project, BsonTemplate groupBy, BsonTemplate having,
+                                   BsonTemplate orderBy,
+                                   Long limit, Long offset, MongoRecordDecoder recordDecoder,
+                                   MongoCursorBatchSizer cursorBatchSizer) {
         this.selection = project;
         this.groupBy = groupBy;
         this.having = having;
         this.orderBy = orderBy;
         this.limit = limit;
         this.offset = offset;
+        this.recordDecoder = recordDecoder;
+        this.cursorBatchSizer = cursorBatchSizer;
+        List<BsonTemplate> pipelineStages = new ArrayList<>();
+        for (BsonTemplate stage : new BsonTemplate[]{groupBy, project, having, orderBy}) {
+            if (stage != null) {
+                pipelineStages.add(stage);
+            }
+        }
+        if (offset != null) {
+            pipelineStages.add(BsonTemplate.constant(new BsonDocument(MongoTableConstants.MONGO_SKIP,
+                    new BsonInt64(offset))));
+        }
+        if (limit != null) {
+            pipelineStages.add(BsonTemplate.constant(new BsonDocument(MongoTableConstants.MONGO_LIMIT,
+                    new BsonInt64(limit))));
+        }
+        this.stages = Collections.unmodifiableList(pipelineStages);
+    }
+
+    /**
+     * Method for binding the stages of the aggregation pipeline which follow the '$match' stage. The stages without
+     * any stream attribute are returned as they were bound at compile time.
+     *
+     * @param parameterMap the values of the stream attributes.
+     * @return the bound stages, in the order of the pipeline.
+     */
+    public List<Bson> bindStages(Map<String, Object> parameterMap) {
+        List<Bson> boundStages = new ArrayList<>(this.stages.size());
+        for (BsonTemplate stage : this.stages) {
+            boundStages.add(stage.bind(parameterMap).asDocument());
+        }
+        return boundStages;
     }
 
-    public MongoCompiledCondition getSelection() {
+    public List<BsonTemplate> getStages() {
+        return this.stages;
+    }
+
+    public BsonTemplate getSelection() {
         return selection;
     }
 
-    public MongoCompiledCondition getGroupBy() {
+    public BsonTemplate getGroupBy() {
         return groupBy;
     }
 
-    public String getHaving() {
+    public BsonTemplate getHaving() {
         return this.having;
     }
 
-    public String getOrderBy() {
+    public BsonTemplate getOrderBy() {
         return this.orderBy;
     }
 
@@ -66,4 +118,35 @@ public class MongoDBCompileSelection implements CompiledSelection {
     public Long getOffset() {
         return this.offset;
     }
+
+    /**
+     * Method which returns the decoder which reads the results of the selection into records, by the position of
+     * each output attribute.
+     *
+     * @return the decoder of the records of the selection.
+     */
+    public MongoRecordDecoder getRecordDecoder() {
+        return this.recordDecoder;
+    }
+
+    /**
+     * Method which returns the batch sizer of the cursors of the selection, which adapts to the results of the
+     * selection separately from the other reads of the table.
+     *
+     * @return the batch sizer, or null when the default batch size of the driver is used.
+     */
+    public MongoCursorBatchSizer getCursorBatchSizer() {
+        return this.cursorBatchSizer;
+    }
+
+    /**
+     * Method which returns whether the results of the selection are independent of the order and the grouping of the
+     * documents, so that the documents can be read by several cursors whose results are merged.
+     *
+     * @return true if the selection can be read by partitions.
+     */
+    public boolean isPartitionable() {
+        return this.groupBy == null && this.having == null && this.orderBy == null && this.limit == null &&
+                this.offset == null;
+    }
 }
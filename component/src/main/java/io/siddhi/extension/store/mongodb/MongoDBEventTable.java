@@ -20,18 +20,22 @@ package io.siddhi.extension.store.mongodb;
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCommandException;
 import com.mongodb.MongoException;
 import com.mongodb.MongoSocketOpenException;
-import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.DeleteManyModel;
 import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.InsertOneModel;
 import com.mongodb.client.model.UpdateManyModel;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.WriteModel;
 import io.siddhi.annotation.Example;
@@ -39,31 +43,63 @@ import io.siddhi.annotation.Extension;
 import io.siddhi.annotation.Parameter;
 import io.siddhi.annotation.SystemParameter;
 import io.siddhi.annotation.util.DataType;
+import io.siddhi.core.config.SiddhiQueryContext;
 import io.siddhi.core.exception.ConnectionUnavailableException;
 import io.siddhi.core.exception.SiddhiAppCreationException;
+import io.siddhi.core.executor.VariableExpressionExecutor;
+import io.siddhi.core.table.Table;
 import io.siddhi.core.table.record.AbstractQueryableRecordTable;
 import io.siddhi.core.table.record.ExpressionBuilder;
 import io.siddhi.core.table.record.RecordIterator;
 import io.siddhi.core.util.collection.operator.CompiledCondition;
 import io.siddhi.core.util.collection.operator.CompiledExpression;
 import io.siddhi.core.util.collection.operator.CompiledSelection;
+import io.siddhi.core.util.collection.operator.MatchingMetaInfoHolder;
 import io.siddhi.core.util.config.ConfigReader;
 import io.siddhi.extension.store.mongodb.exception.MongoTableException;
+import io.siddhi.extension.store.mongodb.util.BsonTypeBinder;
 import io.siddhi.extension.store.mongodb.util.MongoTableConstants;
 import io.siddhi.extension.store.mongodb.util.MongoTableUtils;
 import io.siddhi.query.api.annotation.Annotation;
 import io.siddhi.query.api.definition.Attribute;
 import io.siddhi.query.api.definition.TableDefinition;
+import io.siddhi.query.api.expression.Expression;
 import io.siddhi.query.api.util.AnnotationHelper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 import static io.siddhi.core.util.SiddhiConstants.ANNOTATION_INDEX;
@@ -118,6 +154,166 @@ import static io.siddhi.core.util.SiddhiConstants.ANNOTATION_STORE;
                         description = "Password to access the keystore",
                         optional = true,
                         defaultValue = "wso2carbon",
+                        type = {DataType.STRING}),
+                @Parameter(name = "bulk.write.ordered",
+                        description = "Describes whether the bulk writes of add, update and delete operations " +
+                                "are executed in order. When set to false, the server continues with the rest of " +
+                                "the batch when a write fails and may apply the writes in parallel across shards. " +
+                                "Use this only for tables where the order of the writes does not matter.",
+                        optional = true,
+                        defaultValue = "true",
+                        type = {DataType.BOOL}),
+                @Parameter(name = "write.behind.enabled",
+                        description = "Enables the write-behind mode, where the events inserted into the table " +
+                                "are queued and written to MongoDB in batches by a background writer, so that the " +
+                                "ingestion latency does not depend on the latency of MongoDB. Update and delete " +
+                                "operations always wait until the queued events are written. Queued events which " +
+                                "cannot be written are logged and kept in the 'error.collection.name' collection, " +
+                                "as they are no longer handled by the 'on.error' action of the table.",
+                        optional = true,
+                        defaultValue = "false",
+                        type = {DataType.BOOL}),
+                @Parameter(name = "write.behind.queue.size",
+                        description = "The maximum number of events queued in the write-behind mode. Inserts " +
+                                "block when the queue is full.",
+                        optional = true,
+                        defaultValue = "10000",
+                        type = {DataType.INT}),
+                @Parameter(name = "write.behind.batch.size",
+                        description = "The maximum number of queued events written in a single batch in the " +
+                                "write-behind mode.",
+                        optional = true,
+                        defaultValue = "1000",
+                        type = {DataType.INT}),
+                @Parameter(name = "write.behind.flush.interval",
+                        description = "The maximum time in milliseconds a queued event waits for its batch to be " +
+                                "filled in the write-behind mode.",
+                        optional = true,
+                        defaultValue = "1000",
+                        type = {DataType.LONG}),
+                @Parameter(name = "write.behind.flush.timeout",
+                        description = "The maximum time in milliseconds an operation waits until the queued " +
+                                "events are written in the write-behind mode, after which it fails as the " +
+                                "connection to MongoDB is unavailable.",
+                        optional = true,
+                        defaultValue = "30000",
+                        type = {DataType.LONG}),
+                @Parameter(name = "write.behind.flush.on.read",
+                        description = "Describes whether find, contains and on-demand queries wait until the " +
+                                "queued events are written in the write-behind mode, so that they see all the " +
+                                "earlier inserts.",
+                        optional = true,
+                        defaultValue = "true",
+                        type = {DataType.BOOL}),
+                @Parameter(name = "bulk.write.parallelism",
+                        description = "The number of sub-batches of a large insert, update or update-or-insert " +
+                                "operation that are written concurrently. Batches are split by the write batch and " +
+                                "message size limits of the server, and the writes of the same primary key, or of " +
+                                "the same update condition, are always written in order. Only applies when " +
+                                "'bulk.write.ordered' is 'false', as ordered bulk writes are written one sub-batch " +
+                                "at a time.",
+                        optional = true,
+                        defaultValue = "1",
+                        type = {DataType.INT}),
+                @Parameter(name = "bloom.filter.enabled",
+                        description = "Enables a client-side Bloom filter over the primary key values, so that " +
+                                "contains and find lookups on the primary key which certainly match no document " +
+                                "are answered without querying MongoDB. Requires a 'PrimaryKey' to be defined.",
+                        optional = true,
+                        defaultValue = "false",
+                        type = {DataType.BOOL}),
+                @Parameter(name = "bloom.filter.expected.keys",
+                        description = "The minimum number of keys the Bloom filter is sized for. The filter is " +
+                                "sized for twice the number of documents when the collection is larger.",
+                        optional = true,
+                        defaultValue = "100000",
+                        type = {DataType.LONG}),
+                @Parameter(name = "bloom.filter.false.positive.rate",
+                        description = "The rate of lookups of missing keys which the Bloom filter still sends to " +
+                                "MongoDB. Lower rates use more memory.",
+                        optional = true,
+                        defaultValue = "0.01",
+                        type = {DataType.DOUBLE}),
+                @Parameter(name = "bloom.filter.rebuild.interval",
+                        description = "The interval in milliseconds at which the Bloom filter is rebuilt from the " +
+                                "collection, as deleted keys are not removed from it. The filter is built in the " +
+                                "background, and lookups are sent to MongoDB until it is built.",
+                        optional = true,
+                        defaultValue = "3600000",
+                        type = {DataType.LONG}),
+                @Parameter(name = "bloom.filter.max.memory",
+                        description = "The maximum memory in bytes the Bloom filter may use. When the filter for " +
+                                "the number of documents in the collection needs more, the filter is disabled " +
+                                "until a later rebuild fits, and lookups are sent to MongoDB.",
+                        optional = true,
+                        defaultValue = "67108864",
+                        type = {DataType.LONG}),
+                @Parameter(name = "lookup.batching.enabled",
+                        description = "Enables batching of the lookups of joins and find operations whose " +
+                                "condition compares a single table attribute for equality. Lookups which arrive " +
+                                "while a lookup of the same attribute is in flight are sent together as one '$in' " +
+                                "query, and the matching documents are spread back to each lookup. Lookups are " +
+                                "only batched when they run concurrently, such as from '@async' streams, as a " +
+                                "single thread runs its lookups one after the other.",
+                        optional = true,
+                        defaultValue = "false",
+                        type = {DataType.BOOL}),
+                @Parameter(name = "lookup.batch.size",
+                        description = "The maximum number of distinct values sent in one batched lookup query.",
+                        optional = true,
+                        defaultValue = "1000",
+                        type = {DataType.INT}),
+                @Parameter(name = "cursor.batch.size",
+                        description = "The number of documents fetched per round trip by the cursors of find " +
+                                "and query operations. When set to 'adaptive', the batch size is picked from the " +
+                                "number of documents, the average document size and the consumer speed observed " +
+                                "by the previous reads. When not given, the default batch size of the driver is " +
+                                "used.",
+                        optional = true,
+                        defaultValue = "null",
+                        type = {DataType.STRING}),
+                @Parameter(name = "cursor.prefetch.enabled",
+                        description = "Enables reading the results of find and query operations ahead of the " +
+                                "consumer on a background thread, so that the next batches of the cursor are " +
+                                "fetched while the current documents are consumed.",
+                        optional = true,
+                        defaultValue = "false",
+                        type = {DataType.BOOL}),
+                @Parameter(name = "cursor.prefetch.buffer.size",
+                        description = "The maximum number of documents read ahead of the consumer when " +
+                                "'cursor.prefetch.enabled' is set.",
+                        optional = true,
+                        defaultValue = "10000",
+                        type = {DataType.INT}),
+                @Parameter(name = "parallel.scan.partitions",
+                        description = "The number of '_id' ranges which are read in parallel by find operations " +
+                                "without a condition, such as joins without an 'on' condition, and by query " +
+                                "operations without an 'on' condition and without group by, having, order by, " +
+                                "limit and offset clauses. The ranges are computed by a '$bucketAuto' stage on a " +
+                                "background thread, and refreshed every ten minutes. The documents whose '_id' is " +
+                                "of another type than the ranges are read by one more cursor. Until the ranges " +
+                                "are computed, and for collections with fewer than 10000 documents per range or " +
+                                "with '_id' values of several types, the documents are read by a single cursor.",
+                        optional = true,
+                        defaultValue = "1",
+                        type = {DataType.INT}),
+                @Parameter(name = "in.max.values",
+                        description = "The maximum number of distinct values read from the table referenced by " +
+                                "an IN condition such as '(FooTable.symbol) in SymbolTable', where the referenced " +
+                                "table must be a MongoDB Event Table of the same Siddhi app which has the same " +
+                                "attribute. The values are read from the collection of the referenced table by " +
+                                "an aggregation before each find, contains, update, delete and query which uses " +
+                                "the condition, so IN conditions suit small referenced tables. An operation " +
+                                "whose referenced table has more values fails instead of matching a part of them.",
+                        optional = true,
+                        defaultValue = "10000",
+                        type = {DataType.LONG}),
+                @Parameter(name = "error.collection.name",
+                        description = "The name of the collection to which the events rejected by the server " +
+                                "during add, update and delete operations are written, along with the error " +
+                                "code and message. When not given, the rejected events are only logged.",
+                        optional = true,
+                        defaultValue = "null",
                         type = {DataType.STRING})
         },
         systemParameter = {
@@ -265,6 +461,10 @@ import static io.siddhi.core.util.SiddhiConstants.ANNOTATION_STORE;
 )
 public class MongoDBEventTable extends AbstractQueryableRecordTable {
     private static final Logger log = LogManager.getLogger(MongoDBEventTable.class);
+    private static final int DELETE_IN_CHUNK_SIZE = 1000;
+    // The time the distinct values read for the IN conditions of other tables are reused, when the table is not
+    // written in the meantime, so that the values are not aggregated for each operation of a batch of events.
+    private static final long DISTINCT_VALUES_TTL_MILLIS = 1000;
 
     private ConnectionString mongoConnectionString;
     private MongoClientSettings mongoClientSettings;
@@ -272,13 +472,50 @@ public class MongoDBEventTable extends AbstractQueryableRecordTable {
     private String databaseName;
     private String collectionName;
     private List<String> attributeNames;
+    private BsonDocument findProjection;
     private ArrayList<IndexModel> expectedIndexModels;
     private boolean initialCollectionTest;
+    private MongoRecordCodec recordCodec;
+    private CodecRegistry recordCodecRegistry;
+    private List<String> primaryKeyAttributes;
+    private int[] primaryKeyPositions;
+    private BsonTypeBinder[] primaryKeyBinders;
+    private MongoKeyBloomFilter keyBloomFilter;
+    private long bloomFilterRebuildInterval;
+    private ScheduledExecutorService bloomFilterRebuilder;
+    private MongoLookupBatcher lookupBatcher;
+    private boolean cursorBatchSizeAdaptive;
+    private Integer cursorBatchSize;
+    private MongoCursorBatchSizer findBatchSizer;
+    private MongoBatchDispatcher batchDispatcher;
+    private BulkWriteOptions bulkWriteOptions;
+    private MongoWriteErrorSink writeErrorSink;
+    private MongoWriteBehindBuffer writeBehindBuffer;
+    private boolean writeBehindFlushOnRead;
+    private MongoCursorTracker cursorTracker;
+    private boolean prefetchEnabled;
+    private int prefetchBufferSize;
+    private MongoScanPartitioner scanPartitioner;
+    private volatile ExecutorService prefetchExecutor;
+    // The tables of the Siddhi app, from which the tables referenced by IN conditions are resolved.
+    private Map<String, Table> tableMap = Collections.emptyMap();
+    private final Map<String, DistinctValues> distinctValuesCache = new ConcurrentHashMap<>();
+    private final AtomicLong writeCount = new AtomicLong();
+    private long inMaxValues;
+    private final AtomicLong containsProbeCount = new AtomicLong();
+    private final AtomicLong coveredContainsProbeCount = new AtomicLong();
 
     @Override
     protected void init(TableDefinition tableDefinition, ConfigReader configReader) {
         this.attributeNames =
                 tableDefinition.getAttributeList().stream().map(Attribute::getName).collect(Collectors.toList());
+        // Only the attributes of the table are fetched, so that '_id' and the fields added by other writers are
+        // neither sent nor decoded, and a find whose fields are all in an index is covered by the index.
+        this.findProjection = new BsonDocument();
+        this.attributeNames.forEach(attributeName -> this.findProjection.append(attributeName, new BsonInt32(1)));
+        if (!this.attributeNames.contains(MongoTableConstants.MONGO_OBJECT_ID)) {
+            this.findProjection.append(MongoTableConstants.MONGO_OBJECT_ID, new BsonInt32(0));
+        }
 
         Annotation storeAnnotation = AnnotationHelper
                 .getAnnotation(ANNOTATION_STORE, tableDefinition.getAnnotations());
@@ -286,6 +523,10 @@ public class MongoDBEventTable extends AbstractQueryableRecordTable {
                 .getAnnotation(ANNOTATION_PRIMARY_KEY, tableDefinition.getAnnotations());
 
         this.initializeConnectionParameters(storeAnnotation, configReader);
+        CodecRegistry codecRegistry = this.mongoClientSettings.getCodecRegistry();
+        this.recordCodec = new MongoRecordCodec(tableDefinition.getAttributeList(), codecRegistry);
+        this.recordCodecRegistry = CodecRegistries.fromRegistries(CodecRegistries.fromCodecs(this.recordCodec),
+                codecRegistry);
 
         String customCollectionName = storeAnnotation.getElement(
                 MongoTableConstants.ANNOTATION_ELEMENT_COLLECTION_NAME);
@@ -293,11 +534,77 @@ public class MongoDBEventTable extends AbstractQueryableRecordTable {
                 tableDefinition.getId() : customCollectionName;
         this.initialCollectionTest = false;
 
+        String bulkWriteOrdered = storeAnnotation.getElement(MongoTableConstants.ANNOTATION_ELEMENT_BULK_WRITE_ORDERED);
+        this.bulkWriteOptions = new BulkWriteOptions().ordered(MongoTableUtils.isEmpty(bulkWriteOrdered) ||
+                MongoTableUtils.parseBoolean(bulkWriteOrdered, storeAnnotation,
+                        MongoTableConstants.ANNOTATION_ELEMENT_BULK_WRITE_ORDERED));
+        String errorCollectionName = storeAnnotation.getElement(
+                MongoTableConstants.ANNOTATION_ELEMENT_ERROR_COLLECTION_NAME);
+        this.writeErrorSink = new MongoWriteErrorSink(this.collectionName, this.attributeNames,
+                MongoTableUtils.isEmpty(errorCollectionName) ? null : errorCollectionName);
+        int bulkWriteParallelism = (int) MongoTableUtils.parsePositiveLong(storeAnnotation,
+                MongoTableConstants.ANNOTATION_ELEMENT_BULK_WRITE_PARALLELISM,
+                MongoTableConstants.DEFAULT_BULK_WRITE_PARALLELISM);
+        if (bulkWriteParallelism > 1 && this.bulkWriteOptions.isOrdered()) {
+            // Concurrent sub-batches would neither keep the order of the writes nor stop at the first failure.
+            log.warn("The element '{}' of the MongoDB Event Table '{}' is ignored as bulk writes are ordered. Set " +
+                    "'{}' to 'false' to write sub-batches concurrently.",
+                    MongoTableConstants.ANNOTATION_ELEMENT_BULK_WRITE_PARALLELISM, this.collectionName,
+                    MongoTableConstants.ANNOTATION_ELEMENT_BULK_WRITE_ORDERED);
+            bulkWriteParallelism = 1;
+        }
+        this.batchDispatcher = new MongoBatchDispatcher(this.collectionName, bulkWriteParallelism);
+        this.initializeWriteBehindBuffer(storeAnnotation);
+        String lookupBatchingEnabled = storeAnnotation.getElement(
+                MongoTableConstants.ANNOTATION_ELEMENT_LOOKUP_BATCHING_ENABLED);
+        if (!MongoTableUtils.isEmpty(lookupBatchingEnabled) && MongoTableUtils.parseBoolean(lookupBatchingEnabled,
+                storeAnnotation, MongoTableConstants.ANNOTATION_ELEMENT_LOOKUP_BATCHING_ENABLED)) {
+            this.lookupBatcher = new MongoLookupBatcher(this.collectionName, this.attributeNames,
+                    (int) MongoTableUtils.parsePositiveLong(storeAnnotation,
+                            MongoTableConstants.ANNOTATION_ELEMENT_LOOKUP_BATCH_SIZE,
+                            MongoTableConstants.DEFAULT_LOOKUP_BATCH_SIZE));
+        }
+        String cursorBatchSizeElement = storeAnnotation.getElement(
+                MongoTableConstants.ANNOTATION_ELEMENT_CURSOR_BATCH_SIZE);
+        if (!MongoTableUtils.isEmpty(cursorBatchSizeElement)) {
+            this.cursorBatchSizeAdaptive = cursorBatchSizeElement.trim()
+                    .equalsIgnoreCase(MongoTableConstants.CURSOR_BATCH_SIZE_ADAPTIVE);
+            if (!this.cursorBatchSizeAdaptive) {
+                this.cursorBatchSize = (int) Math.min(Integer.MAX_VALUE, MongoTableUtils.parsePositiveLong(
+                        storeAnnotation, MongoTableConstants.ANNOTATION_ELEMENT_CURSOR_BATCH_SIZE, 0));
+            }
+        }
+        this.findBatchSizer = this.newCursorBatchSizer();
+        this.cursorTracker = new MongoCursorTracker(this.collectionName);
+        String cursorPrefetchEnabled = storeAnnotation.getElement(
+                MongoTableConstants.ANNOTATION_ELEMENT_CURSOR_PREFETCH_ENABLED);
+        this.prefetchEnabled = !MongoTableUtils.isEmpty(cursorPrefetchEnabled) && MongoTableUtils.parseBoolean(
+                cursorPrefetchEnabled, storeAnnotation, MongoTableConstants.ANNOTATION_ELEMENT_CURSOR_PREFETCH_ENABLED);
+        this.prefetchBufferSize = (int) Math.min(Integer.MAX_VALUE, MongoTableUtils.parsePositiveLong(
+                storeAnnotation, MongoTableConstants.ANNOTATION_ELEMENT_CURSOR_PREFETCH_BUFFER_SIZE,
+                MongoTableConstants.DEFAULT_CURSOR_PREFETCH_BUFFER_SIZE));
+        int scanPartitionCount = (int) Math.min(Integer.MAX_VALUE, MongoTableUtils.parsePositiveLong(storeAnnotation,
+                MongoTableConstants.ANNOTATION_ELEMENT_PARALLEL_SCAN_PARTITIONS,
+                MongoTableConstants.DEFAULT_PARALLEL_SCAN_PARTITIONS));
+        if (scanPartitionCount > 1) {
+            this.scanPartitioner = new MongoScanPartitioner(this.collectionName, scanPartitionCount);
+        }
+        this.inMaxValues = MongoTableUtils.parsePositiveLong(storeAnnotation,
+                MongoTableConstants.ANNOTATION_ELEMENT_IN_MAX_VALUES, MongoTableConstants.DEFAULT_IN_MAX_VALUES);
+
         this.expectedIndexModels = new ArrayList<>();
+        this.primaryKeyAttributes = new ArrayList<>();
         IndexModel primaryKey = MongoTableUtils.extractPrimaryKey(primaryKeys, this.attributeNames);
         if (primaryKey != null) {
             this.expectedIndexModels.add(primaryKey);
+            primaryKeys.getElements().forEach(element -> this.primaryKeyAttributes.add(element.getValue()));
+            this.primaryKeyPositions = this.primaryKeyAttributes.stream()
+                    .mapToInt(this.attributeNames::indexOf).toArray();
+            this.primaryKeyBinders = Arrays.stream(this.primaryKeyPositions)
+                    .mapToObj(position -> BsonTypeBinder.of(tableDefinition.getAttributeList().get(position).getType()))
+                    .toArray(BsonTypeBinder[]::new);
         }
+        this.initializeKeyBloomFilter(storeAnnotation);
 
         List<Annotation> indices = AnnotationHelper
                 .getAnnotations(ANNOTATION_INDEX, tableDefinition.getAnnotations());
@@ -340,6 +647,166 @@ public class MongoDBEventTable extends AbstractQueryableRecordTable {
         }
     }
 
+    /**
+     * Method for initializing the write-behind buffer, when it is enabled in the store annotation.
+     *
+     * @param storeAnnotation the source annotation which contains the needed parameters.
+     */
+    private void initializeWriteBehindBuffer(Annotation storeAnnotation) {
+        String writeBehindEnabled = storeAnnotation.getElement(
+                MongoTableConstants.ANNOTATION_ELEMENT_WRITE_BEHIND_ENABLED);
+        if (MongoTableUtils.isEmpty(writeBehindEnabled) || !MongoTableUtils.parseBoolean(writeBehindEnabled,
+                storeAnnotation, MongoTableConstants.ANNOTATION_ELEMENT_WRITE_BEHIND_ENABLED)) {
+            return;
+        }
+        int queueSize = (int) MongoTableUtils.parsePositiveLong(storeAnnotation,
+                MongoTableConstants.ANNOTATION_ELEMENT_WRITE_BEHIND_QUEUE_SIZE,
+                MongoTableConstants.DEFAULT_WRITE_BEHIND_QUEUE_SIZE);
+        int batchSize = (int) MongoTableUtils.parsePositiveLong(storeAnnotation,
+                MongoTableConstants.ANNOTATION_ELEMENT_WRITE_BEHIND_BATCH_SIZE,
+                MongoTableConstants.DEFAULT_WRITE_BEHIND_BATCH_SIZE);
+        long flushInterval = MongoTableUtils.parsePositiveLong(storeAnnotation,
+                MongoTableConstants.ANNOTATION_ELEMENT_WRITE_BEHIND_FLUSH_INTERVAL,
+                MongoTableConstants.DEFAULT_WRITE_BEHIND_FLUSH_INTERVAL);
+        long flushTimeout = MongoTableUtils.parsePositiveLong(storeAnnotation,
+                MongoTableConstants.ANNOTATION_ELEMENT_WRITE_BEHIND_FLUSH_TIMEOUT,
+                MongoTableConstants.DEFAULT_WRITE_BEHIND_FLUSH_TIMEOUT);
+        String flushOnRead = storeAnnotation.getElement(
+                MongoTableConstants.ANNOTATION_ELEMENT_WRITE_BEHIND_FLUSH_ON_READ);
+        this.writeBehindFlushOnRead = MongoTableUtils.isEmpty(flushOnRead) || MongoTableUtils.parseBoolean(
+                flushOnRead, storeAnnotation, MongoTableConstants.ANNOTATION_ELEMENT_WRITE_BEHIND_FLUSH_ON_READ);
+        this.writeBehindBuffer = new MongoWriteBehindBuffer(this.collectionName, queueSize, batchSize,
+                flushInterval, flushTimeout, this::writeRecords, this::rejectRecords);
+    }
+
+    /**
+     * Method for initializing the Bloom filter over the primary key, when it is enabled in the store annotation.
+     *
+     * @param storeAnnotation the source annotation which contains the needed parameters.
+     */
+    private void initializeKeyBloomFilter(Annotation storeAnnotation) {
+        String bloomFilterEnabled = storeAnnotation.getElement(
+                MongoTableConstants.ANNOTATION_ELEMENT_BLOOM_FILTER_ENABLED);
+        if (MongoTableUtils.isEmpty(bloomFilterEnabled) || !MongoTableUtils.parseBoolean(bloomFilterEnabled,
+                storeAnnotation, MongoTableConstants.ANNOTATION_ELEMENT_BLOOM_FILTER_ENABLED)) {
+            return;
+        }
+        if (this.primaryKeyAttributes.isEmpty()) {
+            throw new SiddhiAppCreationException("Annotation '" + storeAnnotation.getName() + "' enables '" +
+                    MongoTableConstants.ANNOTATION_ELEMENT_BLOOM_FILTER_ENABLED + "' for the table '" +
+                    this.collectionName + "' which does not define a 'PrimaryKey'. Please check your query and " +
+                    "try again.");
+        }
+        long expectedKeys = MongoTableUtils.parsePositiveLong(storeAnnotation,
+                MongoTableConstants.ANNOTATION_ELEMENT_BLOOM_FILTER_EXPECTED_KEYS,
+                MongoTableConstants.DEFAULT_BLOOM_FILTER_EXPECTED_KEYS);
+        double falsePositiveRate = MongoTableUtils.parseProbability(storeAnnotation,
+                MongoTableConstants.ANNOTATION_ELEMENT_BLOOM_FILTER_FALSE_POSITIVE_RATE,
+                MongoTableConstants.DEFAULT_BLOOM_FILTER_FALSE_POSITIVE_RATE);
+        this.bloomFilterRebuildInterval = MongoTableUtils.parsePositiveLong(storeAnnotation,
+                MongoTableConstants.ANNOTATION_ELEMENT_BLOOM_FILTER_REBUILD_INTERVAL,
+                MongoTableConstants.DEFAULT_BLOOM_FILTER_REBUILD_INTERVAL);
+        long maxMemory = MongoTableUtils.parsePositiveLong(storeAnnotation,
+                MongoTableConstants.ANNOTATION_ELEMENT_BLOOM_FILTER_MAX_MEMORY,
+                MongoTableConstants.DEFAULT_BLOOM_FILTER_MAX_MEMORY);
+        this.keyBloomFilter = new MongoKeyBloomFilter(this.collectionName, this.primaryKeyAttributes, expectedKeys,
+                falsePositiveRate, maxMemory);
+    }
+
+    /**
+     * Method for rebuilding the Bloom filter over the primary key from the collection. The filter stays disabled
+     * when the rebuild fails, so that lookups are sent to the collection.
+     */
+    private void rebuildKeyBloomFilter() {
+        try {
+            this.keyBloomFilter.rebuild(this.getCollectionObject().withDocumentClass(BsonDocument.class));
+        } catch (MongoException e) {
+            this.keyBloomFilter.invalidate();
+            log.warn("Rebuilding the primary key Bloom filter of the MongoDB Event Table '{}' is not successful " +
+                    "due to {}. Lookups are sent to the collection until it is rebuilt.", this.collectionName,
+                    e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Method for checking whether a primary key lookup certainly matches no document, using the Bloom filter.
+     *
+     * @param compiledCondition     the compiled condition of the lookup.
+     * @param conditionParameterMap the runtime values of the condition.
+     * @return true if no document has the primary key of the lookup.
+     */
+    private boolean isCertainKeyMiss(MongoCompiledCondition compiledCondition,
+                                     Map<String, Object> conditionParameterMap) {
+        if (this.keyBloomFilter == null || !compiledCondition.isPrimaryKeyLookup()) {
+            return false;
+        }
+        Map<String, BsonTemplate> equalityFields = compiledCondition.getEqualityFields();
+        BsonValue[] key = new BsonValue[this.primaryKeyAttributes.size()];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = equalityFields.get(this.primaryKeyAttributes.get(i)).bind(conditionParameterMap);
+        }
+        return !this.keyBloomFilter.mightContain(key);
+    }
+
+    /**
+     * Method for adding the primary keys of written records to the Bloom filter. Keys are added before the records
+     * are written, so that a concurrent lookup of a committed key is never a certain miss. The keys of records which
+     * fail to be written are only false positives.
+     *
+     * @param records the records which are written to the collection.
+     */
+    private void trackKeys(List<Object[]> records) {
+        if (this.keyBloomFilter == null) {
+            return;
+        }
+        for (Object[] record : records) {
+            BsonValue[] key = new BsonValue[this.primaryKeyPositions.length];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = this.primaryKeyBinders[i].bind(record[this.primaryKeyPositions[i]]);
+            }
+            this.keyBloomFilter.put(key);
+        }
+    }
+
+    /**
+     * Method for tracking the primary keys which are changed by updates in the Bloom filter, before the updates are
+     * written. When only some of the primary key attributes are set, the new keys are not known, hence the filter is
+     * disabled until it is rebuilt, and is disabled again by {@link #invalidateUntrackedKeys(Set)} once they are
+     * written.
+     *
+     * @param setAttributes the names of the attributes which are set.
+     * @param setValueMaps  the set values of each event.
+     */
+    private void trackUpdatedKeys(Set<String> setAttributes, List<Map<String, Object>> setValueMaps) {
+        if (this.keyBloomFilter == null || Collections.disjoint(setAttributes, this.primaryKeyAttributes)) {
+            return;
+        }
+        if (!setAttributes.containsAll(this.primaryKeyAttributes)) {
+            this.keyBloomFilter.invalidate();
+            return;
+        }
+        for (Map<String, Object> setValueMap : setValueMaps) {
+            BsonValue[] key = new BsonValue[this.primaryKeyAttributes.size()];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = this.primaryKeyBinders[i].bind(setValueMap.get(this.primaryKeyAttributes.get(i)));
+            }
+            this.keyBloomFilter.put(key);
+        }
+    }
+
+    /**
+     * Method for disabling the Bloom filter after writing updates which change the primary keys in a way which
+     * cannot be tracked, as a rebuild which scanned the collection during the write may have missed the new keys.
+     *
+     * @param setAttributes the names of the attributes which are set.
+     */
+    private void invalidateUntrackedKeys(Set<String> setAttributes) {
+        if (this.keyBloomFilter != null && !Collections.disjoint(setAttributes, this.primaryKeyAttributes) &&
+                !setAttributes.containsAll(this.primaryKeyAttributes)) {
+            this.keyBloomFilter.invalidate();
+        }
+    }
+
     /**
      * Method for checking if the collection exists or not.
      *
@@ -382,6 +849,19 @@ public class MongoDBEventTable extends AbstractQueryableRecordTable {
         return this.mongoClient.getDatabase(this.databaseName);
     }
 
+    /**
+     * Method for creating the batch sizer of the cursors of a kind of read, such as the find operations or a
+     * compiled selection, as configured by the 'cursor.batch.size' element.
+     *
+     * @return the batch sizer, or null when the default batch size of the driver is used.
+     */
+    private MongoCursorBatchSizer newCursorBatchSizer() {
+        if (!this.cursorBatchSizeAdaptive && this.cursorBatchSize == null) {
+            return null;
+        }
+        return new MongoCursorBatchSizer(this.cursorBatchSize);
+    }
+
     /**
      * Method for returning a collection object.
      *
@@ -391,6 +871,15 @@ public class MongoDBEventTable extends AbstractQueryableRecordTable {
         return this.getDatabaseObject().getCollection(this.collectionName);
     }
 
+    /**
+     * Method for returning a collection object which encodes Siddhi records directly by attribute position.
+     *
+     * @return a new {@link MongoCollection} instance which accepts records as documents.
+     */
+    private MongoCollection<Object[]> getRecordCollectionObject() {
+        return this.getCollectionObject().withDocumentClass(Object[].class).withCodecRegistry(recordCodecRegistry);
+    }
+
     /**
      * Method for creating indices on the collection.
      */
@@ -415,67 +904,206 @@ public class MongoDBEventTable extends AbstractQueryableRecordTable {
      * @throws MongoTableException if the write fails
      */
     private void bulkWrite(List<? extends WriteModel<Document>> parsedRecords) throws ConnectionUnavailableException {
-        try {
-            if (!parsedRecords.isEmpty()) {
-                this.getCollectionObject().bulkWrite(parsedRecords);
+        this.bulkWrite(this.getCollectionObject(), parsedRecords);
+    }
+
+    /**
+     * Method for doing bulk write operations on the given collection. An ordered write stops at its first failure,
+     * hence the unprocessed tail which follows the failure is resubmitted once, as an unordered write, so that each
+     * failure of the tail is reported without resubmitting the write models which follow it again.
+     *
+     * @param mongoCollection the collection to which the WriteModels are applied
+     * @param parsedRecords   a List of WriteModels to be applied
+     * @throws MongoTableException if the write fails
+     */
+    private <T> void bulkWrite(MongoCollection<T> mongoCollection, List<? extends WriteModel<T>> parsedRecords)
+            throws ConnectionUnavailableException {
+        List<Document> errorDocuments = this.writeErrorSink.newErrorDocuments();
+        WriteErrorCounts errorCounts = new WriteErrorCounts();
+        List<? extends WriteModel<T>> unprocessedRecords = this.bulkWrite(mongoCollection, parsedRecords,
+                this.bulkWriteOptions, errorCounts, errorDocuments);
+        if (!unprocessedRecords.isEmpty()) {
+            errorCounts.retriedCount = unprocessedRecords.size();
+            BulkWriteOptions retryOptions = new BulkWriteOptions().ordered(false)
+                    .bypassDocumentValidation(this.bulkWriteOptions.getBypassDocumentValidation());
+            this.bulkWrite(mongoCollection, unprocessedRecords, retryOptions, errorCounts, errorDocuments);
+        }
+        if (errorCounts.failedCount > 0 || errorCounts.unacknowledgedCount > 0) {
+            this.writeErrorSink.report(parsedRecords.size(), errorCounts.failedCount,
+                    errorCounts.unacknowledgedCount, errorCounts.retriedCount);
+            if (errorDocuments != null) {
+                this.writeErrorSink.flush(this.getDatabaseObject()
+                        .getCollection(this.writeErrorSink.getErrorCollectionName()), errorDocuments);
             }
+        }
+    }
+
+    /**
+     * Method for doing one bulk write, whose failed write models are rejected to the error sink.
+     *
+     * @return the write models which the server did not process as an ordered write stopped at a failure.
+     */
+    private <T> List<? extends WriteModel<T>> bulkWrite(MongoCollection<T> mongoCollection,
+                                                         List<? extends WriteModel<T>> writeModels,
+                                                         BulkWriteOptions options, WriteErrorCounts errorCounts,
+                                                         List<Document> errorDocuments)
+            throws ConnectionUnavailableException {
+        try {
+            mongoCollection.bulkWrite(writeModels, options);
+            return Collections.emptyList();
         } catch (MongoSocketOpenException e) {
             throw new ConnectionUnavailableException(e);
         } catch (MongoBulkWriteException e) {
-            List<com.mongodb.bulk.BulkWriteError> writeErrors = e.getWriteErrors();
-            int failedIndex;
-            Object failedModel;
-            for (com.mongodb.bulk.BulkWriteError bulkWriteError : writeErrors) {
-                failedIndex = bulkWriteError.getIndex();
-                failedModel = parsedRecords.get(failedIndex);
-                if (failedModel instanceof UpdateManyModel) {
-                    log.error("The update filter '{}' failed to update with event '{}' in the MongoDB Event" +
-                                    " Table due to {}", ((UpdateManyModel) failedModel).getFilter().toString(),
-                            ((UpdateManyModel) failedModel).getUpdate().toString(), bulkWriteError.getMessage());
-                } else {
-                    if (failedModel instanceof InsertOneModel) {
-                        log.error("The event '{}' failed to insert into the Mongo Event Table due to {}",
-                                ((InsertOneModel) failedModel).getDocument().toString(), bulkWriteError.getMessage());
-                    } else {
-                        log.error("The delete filter '{}' failed to delete the events from the MongoDB Event" +
-                                        " Table due to {}", ((DeleteManyModel) failedModel).getFilter().toString(),
-                                bulkWriteError.getMessage());
+            Set<Integer> failedIndices = new HashSet<>();
+            int lastFailedIndex = -1;
+            for (com.mongodb.bulk.BulkWriteError bulkWriteError : e.getWriteErrors()) {
+                this.writeErrorSink.reject(writeModels.get(bulkWriteError.getIndex()), bulkWriteError,
+                        errorDocuments);
+                failedIndices.add(bulkWriteError.getIndex());
+                lastFailedIndex = Math.max(lastFailedIndex, bulkWriteError.getIndex());
+                errorCounts.failedCount++;
+            }
+            // Unordered writes are all attempted by the server, while an ordered write stops at the first failure.
+            boolean unprocessedTail = options.isOrdered() && !failedIndices.isEmpty() &&
+                    lastFailedIndex + 1 < writeModels.size();
+            if (e.getWriteConcernError() != null) {
+                // The processed write models which did not fail were applied, but may be rolled back, hence they
+                // are reported rather than resubmitted.
+                int processedCount = unprocessedTail ? lastFailedIndex : writeModels.size();
+                for (int i = 0; i < processedCount; i++) {
+                    if (!failedIndices.contains(i)) {
+                        this.writeErrorSink.rejectUnacknowledged(writeModels.get(i), e.getWriteConcernError(),
+                                errorDocuments);
+                        errorCounts.unacknowledgedCount++;
                     }
                 }
-                if (failedIndex + 1 < parsedRecords.size()) {
-                    this.bulkWrite(parsedRecords.subList(failedIndex + 1, parsedRecords.size() - 1));
-                }
             }
+            return unprocessedTail ? writeModels.subList(lastFailedIndex + 1, writeModels.size()) :
+                    Collections.emptyList();
         } catch (MongoException e) {
             this.destroy();
             throw new MongoTableException("Error in writing to the collection '"
                     + this.collectionName + "' : " + e.getLocalizedMessage(), e);
         }
+        } finally {
+            // Written or not, the distinct values cached for the IN conditions of other tables may be stale.
+            this.writeCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * The numbers of write models of a bulk write which failed, were not acknowledged or were resubmitted.
+     */
+    private static final class WriteErrorCounts {
+        private int failedCount;
+        private int unacknowledgedCount;
+        private int retriedCount;
+    }
+
+    /**
+     * Method for flushing the write-behind buffer, so that the following operation sees all the earlier writes.
+     *
+     * @param isRead whether the following operation is a read.
+     * @throws ConnectionUnavailableException if the queued events are not written within the flush timeout.
+     */
+    private void flushWriteBehindBuffer(boolean isRead) throws ConnectionUnavailableException {
+        if (this.writeBehindBuffer != null && (!isRead || this.writeBehindFlushOnRead)) {
+            this.writeBehindBuffer.flush();
+        }
     }
 
     @Override
     protected void add(List<Object[]> records) throws ConnectionUnavailableException {
-        List<InsertOneModel<Document>> parsedRecords = records.stream().map(record -> {
-            Map<String, Object> insertMap = MongoTableUtils.mapValuesToAttributes(record, this.attributeNames);
-            Document insertDocument = new Document(insertMap);
+        if (this.writeBehindBuffer == null || !this.writeBehindBuffer.add(records)) {
+            this.writeRecords(records);
+        }
+    }
+
+    /**
+     * Method for inserting records into the collection.
+     *
+     * @param records the records to be inserted
+     * @throws ConnectionUnavailableException if the connection to the server is unavailable
+     */
+    private void writeRecords(List<Object[]> records) throws ConnectionUnavailableException {
+        List<InsertOneModel<Object[]>> parsedRecords = new ArrayList<>(records.size());
+        for (Object[] record : records) {
             if (log.isDebugEnabled()) {
-                log.debug("Event formatted as document '{}' is used for building Mongo Insert Model",
-                        insertDocument.toJson());
+                log.debug("Event '{}' is used for building Mongo Insert Model", Arrays.toString(record));
             }
-            return new InsertOneModel<>(insertDocument);
-        }).collect(Collectors.toList());
-        this.bulkWrite(parsedRecords);
+            parsedRecords.add(new InsertOneModel<>(record));
+        }
+        MongoCollection<Object[]> recordCollection = this.getRecordCollectionObject();
+        ToIntFunction<WriteModel<Object[]>> partitioner = this.primaryKeyPositions == null ? null :
+                writeModel -> this.hashPrimaryKey(((InsertOneModel<Object[]>) writeModel).getDocument());
+        this.trackKeys(records);
+        this.batchDispatcher.dispatch(parsedRecords,
+                writeModel -> this.recordCodec.getEncodedSize(((InsertOneModel<Object[]>) writeModel).getDocument()),
+                partitioner, subBatch -> this.bulkWrite(recordCollection, subBatch));
+    }
+
+    /**
+     * Method for reporting records which could not be written to the write error sink, so that they are logged and
+     * kept in the error collection instead of being lost.
+     *
+     * @param records the records which were not written.
+     * @param cause   the failure of the write.
+     */
+    private void rejectRecords(List<Object[]> records, Exception cause) {
+        List<Document> errorDocuments = this.writeErrorSink.newErrorDocuments();
+        this.writeErrorSink.rejectRecords(records, cause, errorDocuments);
+        if (errorDocuments != null) {
+            this.writeErrorSink.flush(this.getDatabaseObject()
+                    .getCollection(this.writeErrorSink.getErrorCollectionName()), errorDocuments);
+        }
+    }
+
+    /**
+     * Method for hashing the primary key values of a record, so that the writes of a key stay in order.
+     *
+     * @param record the record.
+     * @return the hash of the primary key values.
+     */
+    private int hashPrimaryKey(Object[] record) {
+        int hash = 1;
+        for (int position : this.primaryKeyPositions) {
+            hash = 31 * hash + Objects.hashCode(record[position]);
+        }
+        return hash;
     }
 
     @Override
     protected RecordIterator<Object[]> find(Map<String, Object> findConditionParameterMap,
                                             CompiledCondition compiledCondition)
             throws ConnectionUnavailableException {
+        this.flushWriteBehindBuffer(true);
+        if (this.isCertainKeyMiss((MongoCompiledCondition) compiledCondition, findConditionParameterMap)) {
+            return new MongoIterator();
+        }
+        Map<String, BsonTemplate> equalityFields = ((MongoCompiledCondition) compiledCondition).getEqualityFields();
+        if (this.lookupBatcher != null && equalityFields != null && equalityFields.size() == 1) {
+            Map.Entry<String, BsonTemplate> equalityField = equalityFields.entrySet().iterator().next();
+            BsonValue value = equalityField.getValue().bind(findConditionParameterMap);
+            // Arrays are matched as a whole by an equality comparison, but element-wise by '$in'.
+            if (!value.isArray()) {
+                return new MongoIterator(this.lookupBatcher.lookup(equalityField.getKey(), value,
+                        this::findRecords));
+            }
+        }
         try {
-            Document findFilter = MongoTableUtils.resolveCondition(
-                    (MongoCompiledCondition) compiledCondition, findConditionParameterMap, "on condition");
-            MongoCollection<? extends Document> mongoCollection = this.getCollectionObject();
-            return new MongoIterator(mongoCollection.find(findFilter), this.attributeNames);
+            BsonDocument findFilter = MongoTableUtils.bindCondition((MongoCompiledCondition) compiledCondition,
+                    this.withStoreValues(findConditionParameterMap,
+                            this.resolveStoreValues((MongoCompiledCondition) compiledCondition)), "on condition");
+            if (equalityFields == null) {
+                RecordIterator<Object[]> partitions = this.scanInParallel(findFilter,
+                        partitionFilter -> new MongoIterator(this.getRecordCollectionObject().find(partitionFilter)
+                                .projection(this.findProjection), this.findBatchSizer, this.cursorTracker));
+                if (partitions != null) {
+                    return partitions;
+                }
+            }
+            return this.prefetch(new MongoIterator(this.getRecordCollectionObject().find(findFilter)
+                    .projection(this.findProjection), this.findBatchSizer, this.cursorTracker));
         } catch (MongoSocketOpenException e) {
             throw new ConnectionUnavailableException(e);
         } catch (MongoException e) {
@@ -485,13 +1113,219 @@ public class MongoDBEventTable extends AbstractQueryableRecordTable {
         }
     }
 
+    /**
+     * Method for reading the records of an iterator ahead of the consumer, when prefetching is enabled.
+     *
+     * @param iterator the iterator over the cursor.
+     * @return the prefetching iterator, or the given iterator when prefetching is not enabled.
+     */
+    private RecordIterator<Object[]> prefetch(MongoIterator iterator) {
+        ExecutorService executor = this.prefetchExecutor;
+        if (!this.prefetchEnabled || executor == null) {
+            return iterator;
+        }
+        try {
+            return new MongoPrefetchingIterator(iterator, this.prefetchBufferSize, executor);
+        } catch (RejectedExecutionException e) {
+            // The table is being disconnected, hence the records are read by the consumer itself.
+            return iterator;
+        }
+    }
+
+    /**
+     * Method for reading every document of the collection by '_id' ranges in parallel, when parallel scans are
+     * enabled and the collection is large enough to be split. Reads with a condition, such as the lookups of joins,
+     * are left to a single cursor, which can use the indexes of the condition.
+     *
+     * @param filter the filter, which is empty for the reads without a condition.
+     * @param reader the function which opens the cursor over the documents which match a filter.
+     * @return the iterator which merges the records of the ranges, or null when the documents are to be read by a
+     * single cursor.
+     */
+    private RecordIterator<Object[]> scanInParallel(BsonDocument filter,
+                                                    Function<BsonDocument, MongoIterator> reader) {
+        ExecutorService executor = this.prefetchExecutor;
+        if (this.scanPartitioner == null || executor == null || !filter.isEmpty()) {
+            return null;
+        }
+        List<BsonDocument> ranges = this.scanPartitioner.getRanges(
+                this.getCollectionObject().withDocumentClass(BsonDocument.class), executor);
+        if (ranges.isEmpty()) {
+            return null;
+        }
+        List<MongoIterator> partitions = new ArrayList<>(ranges.size());
+        try {
+            for (BsonDocument range : ranges) {
+                partitions.add(reader.apply(MongoScanPartitioner.restrict(filter, range)));
+            }
+            return new MongoPrefetchingIterator(partitions, this.prefetchBufferSize, executor);
+        } catch (RuntimeException e) {
+            partitions.forEach(MongoIterator::close);
+            if (e instanceof RejectedExecutionException) {
+                // The table is being disconnected, hence the documents are read by a single cursor.
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Method for fetching all the records which match a filter.
+     *
+     * @param filter the filter.
+     * @return the matching records.
+     * @throws ConnectionUnavailableException if the connection to the server is unavailable.
+     */
+    private List<Object[]> findRecords(BsonDocument filter) throws ConnectionUnavailableException {
+        try {
+            return this.getRecordCollectionObject().find(filter).projection(this.findProjection)
+                    .into(new ArrayList<>());
+        } catch (MongoSocketOpenException e) {
+            throw new ConnectionUnavailableException(e);
+        } catch (MongoException e) {
+            this.destroy();
+            throw new MongoTableException("Error in retrieving documents from the collection '"
+                    + this.collectionName + "' : " + e.getLocalizedMessage(), e);
+        }
+    }
+
+    /**
+     * Method for resolving the values of the stores referenced by the IN conditions of a compiled condition. The
+     * distinct values of the attribute are read from the collection of the referenced MongoDB Event Table, with its
+     * own connection, by one aggregation per referenced attribute, which reads at most 'in.max.values' values.
+     *
+     * @param compiledCondition the compiled condition.
+     * @return the distinct values of each referenced store, keyed by the slot of the filter which holds them.
+     * @throws ConnectionUnavailableException if the connection to the server is unavailable.
+     */
+    private Map<String, Object> resolveStoreValues(MongoCompiledCondition compiledCondition)
+            throws ConnectionUnavailableException {
+        List<BsonTemplate.StoreValuesTemplate> storeValueSlots = compiledCondition.getStoreValues();
+        if (storeValueSlots == null || storeValueSlots.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> storeValues = new HashMap<>();
+        for (BsonTemplate.StoreValuesTemplate storeValueSlot : storeValueSlots) {
+            if (!storeValues.containsKey(storeValueSlot.getKey())) {
+                storeValues.put(storeValueSlot.getKey(), this.getReferencedTable(storeValueSlot)
+                        .findDistinctValues(storeValueSlot.getFieldName(), this.inMaxValues, this.collectionName));
+            }
+        }
+        return storeValues;
+    }
+
+    /**
+     * Method for returning the table referenced by an IN condition, which must be a MongoDB Event Table of the same
+     * Siddhi app which has the compared attribute, so that its values are read from its own collection.
+     *
+     * @param storeValueSlot the slot of the filter which holds the values of the referenced table.
+     * @return the referenced table.
+     */
+    private MongoDBEventTable getReferencedTable(BsonTemplate.StoreValuesTemplate storeValueSlot) {
+        Table table = this.tableMap.get(storeValueSlot.getStoreId());
+        MongoDBEventTable referencedTable = table instanceof MongoDBEventTable ? (MongoDBEventTable) table : null;
+        if (referencedTable == null || !referencedTable.attributeNames.contains(storeValueSlot.getFieldName())) {
+            throw new MongoTableException("MongoDB Event Table '" + this.collectionName + "' only supports IN " +
+                    "operations on another MongoDB Event Table which has the attribute '" +
+                    storeValueSlot.getFieldName() + "', but found '" + storeValueSlot.getStoreId() + "'. Please " +
+                    "check your query and try again.");
+        }
+        return referencedTable;
+    }
+
+    /**
+     * Method for reading the distinct values of an attribute of the table, for the IN conditions of other tables.
+     * The values are reused for a short time, unless the table is written in the meantime, so that the values are
+     * not aggregated again for each operation which references them.
+     *
+     * @param fieldName            the attribute.
+     * @param maxValues            the maximum number of values read.
+     * @param referencingTableName the name of the table whose IN condition references this table.
+     * @return the distinct values.
+     * @throws ConnectionUnavailableException if the connection to the server is unavailable.
+     */
+    private BsonArray findDistinctValues(String fieldName, long maxValues, String referencingTableName)
+            throws ConnectionUnavailableException {
+        String cacheKey = fieldName + ":" + maxValues;
+        long writeCountBeforeRead = this.writeCount.get();
+        DistinctValues cachedValues = this.distinctValuesCache.get(cacheKey);
+        if (cachedValues != null && cachedValues.writeCount == writeCountBeforeRead &&
+                System.currentTimeMillis() - cachedValues.readAt < DISTINCT_VALUES_TTL_MILLIS) {
+            return cachedValues.values;
+        }
+        long readAt = System.currentTimeMillis();
+        List<BsonDocument> pipeline = Arrays.asList(
+                new BsonDocument(MongoTableConstants.MONGO_GROUP, new BsonDocument(MongoTableConstants.MONGO_OBJECT_ID,
+                        new BsonString("$" + fieldName))),
+                new BsonDocument(MongoTableConstants.MONGO_LIMIT, new BsonInt64(maxValues + 1)));
+        BsonArray values = new BsonArray();
+        try {
+            for (BsonDocument group : this.getCollectionObject().withDocumentClass(BsonDocument.class)
+                    .aggregate(pipeline)) {
+                values.add(group.get(MongoTableConstants.MONGO_OBJECT_ID));
+            }
+        } catch (MongoSocketOpenException e) {
+            throw new ConnectionUnavailableException(e);
+        } catch (MongoException e) {
+            throw new MongoTableException("Error in retrieving the values referenced by the IN condition of the " +
+                    "collection '" + referencingTableName + "' : " + e.getLocalizedMessage(), e);
+        }
+        if (values.size() > maxValues) {
+            throw new MongoTableException("The attribute '" + fieldName + "' of the collection '" +
+                    this.collectionName + "' referenced by the IN condition of the collection '" +
+                    referencingTableName + "' has more than " + maxValues + " distinct values. Increase '" +
+                    MongoTableConstants.ANNOTATION_ELEMENT_IN_MAX_VALUES + "' of the collection '" +
+                    referencingTableName + "' or use a join instead.");
+        }
+        this.distinctValuesCache.put(cacheKey, new DistinctValues(values, readAt, writeCountBeforeRead));
+        return values;
+    }
+
+    /**
+     * The distinct values of an attribute, with the time they were read and the number of writes before the read.
+     */
+    private static final class DistinctValues {
+        private final BsonArray values;
+        private final long readAt;
+        private final long writeCount;
+
+        private DistinctValues(BsonArray values, long readAt, long writeCount) {
+            this.values = values;
+            this.readAt = readAt;
+            this.writeCount = writeCount;
+        }
+    }
+
+    private Map<String, Object> withStoreValues(Map<String, Object> conditionParameterMap,
+                                                Map<String, Object> storeValues) {
+        if (storeValues.isEmpty()) {
+            return conditionParameterMap;
+        }
+        Map<String, Object> parameterMap = new HashMap<>(conditionParameterMap);
+        parameterMap.putAll(storeValues);
+        return parameterMap;
+    }
+
     @Override
     protected boolean contains(Map<String, Object> containsConditionParameterMap, CompiledCondition
             compiledCondition) throws ConnectionUnavailableException {
+        this.flushWriteBehindBuffer(true);
+        if (this.isCertainKeyMiss((MongoCompiledCondition) compiledCondition, containsConditionParameterMap)) {
+            return false;
+        }
         try {
-            Document containsFilter = MongoTableUtils.resolveCondition(
-                    (MongoCompiledCondition) compiledCondition, containsConditionParameterMap, "contains");
-            return this.getCollectionObject().countDocuments(containsFilter) > 0;
+            MongoCompiledCondition mongoCompiledCondition = (MongoCompiledCondition) compiledCondition;
+            BsonDocument containsFilter = MongoTableUtils.bindCondition(mongoCompiledCondition,
+                    this.withStoreValues(containsConditionParameterMap,
+                            this.resolveStoreValues(mongoCompiledCondition)), "contains");
+            this.containsProbeCount.incrementAndGet();
+            if (mongoCompiledCondition.isCoveredProbe()) {
+                this.coveredContainsProbeCount.incrementAndGet();
+            }
+            // Only the existence of a document is needed, hence a single document is fetched, projecting only the
+            // fields which an index can provide, rather than counting every matching document.
+            return this.getCollectionObject().withDocumentClass(BsonDocument.class).find(containsFilter)
+                    .projection(mongoCompiledCondition.getProbeProjection()).limit(1).first() != null;
         } catch (MongoSocketOpenException e) {
             throw new ConnectionUnavailableException(e);
         } catch (MongoException e) {
@@ -504,30 +1338,79 @@ public class MongoDBEventTable extends AbstractQueryableRecordTable {
     @Override
     protected void delete(List<Map<String, Object>> deleteConditionParameterMaps, CompiledCondition compiledCondition)
             throws ConnectionUnavailableException {
+        this.flushWriteBehindBuffer(false);
+        MongoCompiledCondition mongoCompiledCondition = (MongoCompiledCondition) compiledCondition;
+        Map<String, BsonTemplate> equalityFields = mongoCompiledCondition.getEqualityFields();
+        if (deleteConditionParameterMaps.size() > 1 && equalityFields != null && equalityFields.size() == 1) {
+            Map.Entry<String, BsonTemplate> equalityField = equalityFields.entrySet().iterator().next();
+            List<DeleteManyModel<Document>> parsedRecords = this.buildCoalescedDeleteModels(
+                    equalityField.getKey(), equalityField.getValue(), deleteConditionParameterMaps);
+            if (parsedRecords != null) {
+                this.bulkWrite(parsedRecords);
+                return;
+            }
+        }
+        Map<String, Object> storeValues = this.resolveStoreValues(mongoCompiledCondition);
         List<DeleteManyModel<Document>> parsedRecords = deleteConditionParameterMaps.stream().map(
                 (Map<String, Object> conditionParameterMap) -> {
-                    Document deleteFilter = MongoTableUtils.resolveCondition(
-                            (MongoCompiledCondition) compiledCondition, conditionParameterMap, "delete");
+                    BsonDocument deleteFilter = MongoTableUtils.bindCondition(mongoCompiledCondition,
+                            this.withStoreValues(conditionParameterMap, storeValues), "delete");
                     return new DeleteManyModel<Document>(deleteFilter);
                 }).collect(Collectors.toList());
         this.bulkWrite(parsedRecords);
     }
 
+    /**
+     * Method for merging the deletes of a condition which compares a single field for equality into deletes of
+     * the form '{field:{$in:[...]}}', each matching at most {@link #DELETE_IN_CHUNK_SIZE} distinct values.
+     *
+     * @param fieldName              the field compared by the condition.
+     * @param valueTemplate          the template of the value compared with the field.
+     * @param conditionParameterMaps the condition parameters of each event.
+     * @return the merged delete models, or null if a value is an array, which $in would match element-wise.
+     */
+    private List<DeleteManyModel<Document>> buildCoalescedDeleteModels(
+            String fieldName, BsonTemplate valueTemplate, List<Map<String, Object>> conditionParameterMaps) {
+        Set<BsonValue> values = new LinkedHashSet<>();
+        for (Map<String, Object> conditionParameterMap : conditionParameterMaps) {
+            BsonValue value = valueTemplate.bind(conditionParameterMap);
+            if (value.isArray()) {
+                return null;
+            }
+            values.add(value);
+        }
+        List<DeleteManyModel<Document>> parsedRecords = new ArrayList<>();
+        BsonArray chunk = new BsonArray();
+        for (BsonValue value : values) {
+            chunk.add(value);
+            if (chunk.size() == DELETE_IN_CHUNK_SIZE) {
+                parsedRecords.add(new DeleteManyModel<>(new BsonDocument(fieldName,
+                        new BsonDocument(MongoTableConstants.MONGO_IN, chunk))));
+                chunk = new BsonArray();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            parsedRecords.add(new DeleteManyModel<>(new BsonDocument(fieldName,
+                    new BsonDocument(MongoTableConstants.MONGO_IN, chunk))));
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Merged {} deletes on the field '{}' into {} deletes of the MongoDB Event Table '{}'.",
+                    conditionParameterMaps.size(), fieldName, parsedRecords.size(), this.collectionName);
+        }
+        return parsedRecords;
+    }
+
     @Override
     protected void update(CompiledCondition compiledCondition,
                           List<Map<String, Object>> list,
                           Map<String, CompiledExpression> map,
                           List<Map<String, Object>> list1) throws ConnectionUnavailableException {
-        List<UpdateManyModel<Document>> parsedRecords = list.stream().map(
-                conditionParameterMap -> {
-                    int ordinal = list.indexOf(conditionParameterMap);
-                    Document updateFilter = MongoTableUtils.resolveCondition(
-                            (MongoCompiledCondition) compiledCondition, conditionParameterMap, "update set");
-                    Document updateDocument = new Document()
-                            .append("$set", list1.get(ordinal));
-                    return new UpdateManyModel<Document>(updateFilter, updateDocument);
-                }).collect(Collectors.toList());
+        this.flushWriteBehindBuffer(false);
+        List<WriteModel<Document>> parsedRecords = this.buildUpdateModels(
+                (MongoCompiledCondition) compiledCondition, list, list1, false, "update set");
+        this.trackUpdatedKeys(map.keySet(), list1);
         this.bulkWrite(parsedRecords);
+        this.invalidateUntrackedKeys(map.keySet());
     }
 
     @Override
@@ -536,24 +1419,133 @@ public class MongoDBEventTable extends AbstractQueryableRecordTable {
                                Map<String, CompiledExpression> map,
                                List<Map<String, Object>> list1,
                                List<Object[]> list2) throws ConnectionUnavailableException {
-        List<UpdateManyModel<Document>> parsedRecords = list.stream().map(
-                conditionParameterMap -> {
-                    int ordinal = list.indexOf(conditionParameterMap);
-                    Document updateFilter = MongoTableUtils.resolveCondition(
-                            (MongoCompiledCondition) compiledCondition, conditionParameterMap, "insert or update set");
-                    Document updateDocument = new Document()
-                            .append("$set", list1.get(ordinal));
-                    UpdateOptions updateOptions = new UpdateOptions().upsert(true);
-                    return new UpdateManyModel<Document>(updateFilter, updateDocument, updateOptions);
-                }).collect(Collectors.toList());
-        this.bulkWrite(parsedRecords);
+        this.flushWriteBehindBuffer(false);
+        List<WriteModel<Document>> parsedRecords = this.buildUpdateModels(
+                (MongoCompiledCondition) compiledCondition, list, list1, true, "insert or update set");
+        this.trackUpdatedKeys(map.keySet(), list1);
+        this.trackKeys(list2);
+        // Upserts with the same filter are kept in the same lane, so that they are applied in order.
+        this.batchDispatcher.dispatch(parsedRecords, MongoDBEventTable::estimateUpdateModelSize,
+                writeModel -> getUpdateModelFilter(writeModel).hashCode(), this::bulkWrite);
+        this.invalidateUntrackedKeys(map.keySet());
+    }
+
+    /**
+     * Method for building the update models in a single pass, binding the condition parameters and the set values
+     * of each event by their position in the batch. Conditions which look up the primary key update a single
+     * document. Only the set attributes are updated, so that the other fields of the documents are kept.
+     *
+     * @param compiledCondition      the compiled condition of the update.
+     * @param conditionParameterMaps the condition parameters of each event.
+     * @param setValueMaps           the set values of each event, in the same order as the condition parameters.
+     * @param upsert                 whether a document is inserted when no document matches the condition.
+     * @param queryType              the type of the query, used for logging.
+     * @return the update models in the order of the events.
+     * @throws ConnectionUnavailableException if the connection to the server is unavailable.
+     */
+    private List<WriteModel<Document>> buildUpdateModels(MongoCompiledCondition compiledCondition,
+                                                         List<Map<String, Object>> conditionParameterMaps,
+                                                         List<Map<String, Object>> setValueMaps,
+                                                         boolean upsert, String queryType)
+            throws ConnectionUnavailableException {
+        boolean primaryKeyLookup = compiledCondition.isPrimaryKeyLookup();
+        UpdateOptions updateOptions = new UpdateOptions().upsert(upsert);
+        int size = conditionParameterMaps.size();
+        List<WriteModel<Document>> parsedRecords = new ArrayList<>(size);
+        Map<String, Object> storeValues = this.resolveStoreValues(compiledCondition);
+        for (int i = 0; i < size; i++) {
+            BsonDocument updateFilter = MongoTableUtils.bindCondition(compiledCondition,
+                    this.withStoreValues(conditionParameterMaps.get(i), storeValues), queryType);
+            Document updateDocument = new Document("$set", setValueMaps.get(i));
+            parsedRecords.add(primaryKeyLookup ? new UpdateOneModel<>(updateFilter, updateDocument, updateOptions) :
+                    new UpdateManyModel<>(updateFilter, updateDocument, updateOptions));
+        }
+        return parsedRecords;
+    }
+
+    private static Bson getUpdateModelFilter(WriteModel<Document> writeModel) {
+        if (writeModel instanceof UpdateOneModel) {
+            return ((UpdateOneModel<Document>) writeModel).getFilter();
+        }
+        return ((UpdateManyModel<Document>) writeModel).getFilter();
+    }
+
+    private static int estimateUpdateModelSize(WriteModel<Document> writeModel) {
+        Object update;
+        if (writeModel instanceof UpdateOneModel) {
+            update = ((UpdateOneModel<Document>) writeModel).getUpdate();
+        } else {
+            update = ((UpdateManyModel<Document>) writeModel).getUpdate();
+        }
+        return MongoTableUtils.estimateBsonSize(getUpdateModelFilter(writeModel)) +
+                MongoTableUtils.estimateBsonSize(update);
+    }
+
+    @Override
+    public CompiledCondition compileCondition(Expression condition, MatchingMetaInfoHolder matchingMetaInfoHolder,
+                                              List<VariableExpressionExecutor> variableExpressionExecutors,
+                                              Map<String, Table> tableMap, SiddhiQueryContext siddhiQueryContext) {
+        // The tables referenced by IN conditions are resolved from the tables of the Siddhi app.
+        if (tableMap != null) {
+            this.tableMap = tableMap;
+        }
+        return super.compileCondition(condition, matchingMetaInfoHolder, variableExpressionExecutors, tableMap,
+                siddhiQueryContext);
     }
 
     @Override
     protected CompiledCondition compileCondition(ExpressionBuilder expressionBuilder) {
         MongoExpressionVisitor visitor = new MongoExpressionVisitor();
         expressionBuilder.build(visitor);
-        return new MongoCompiledCondition(visitor.getCompiledCondition(), visitor.getPlaceholders());
+        MongoCompiledCondition compiledCondition = new MongoCompiledCondition(visitor.getCompiledCondition(),
+                MongoFilterNormalizer.normalize(visitor.getCompiledFilter()), visitor.getPlaceholders(),
+                this.primaryKeyAttributes);
+        if (compiledCondition.getStoreValues() != null) {
+            compiledCondition.getStoreValues().forEach(this::getReferencedTable);
+        }
+        this.setProbeProjection(compiledCondition);
+        return compiledCondition;
+    }
+
+    /**
+     * Method for picking the projection of the existence probe of a condition. When the condition compares the
+     * leading fields of an index for equality, only those fields are projected so that the probe is covered by the
+     * index. Otherwise only the '_id' field is projected.
+     *
+     * @param compiledCondition the compiled condition.
+     */
+    private void setProbeProjection(MongoCompiledCondition compiledCondition) {
+        BsonDocument idProjection = new BsonDocument(MongoTableConstants.MONGO_OBJECT_ID, new BsonInt32(1));
+        Map<String, BsonTemplate> equalityFields = compiledCondition.getEqualityFields();
+        if (equalityFields == null) {
+            compiledCondition.setProbeProjection(idProjection, false);
+            return;
+        }
+        if (equalityFields.size() == 1 && equalityFields.containsKey(MongoTableConstants.MONGO_OBJECT_ID)) {
+            compiledCondition.setProbeProjection(idProjection, true);
+            return;
+        }
+        for (IndexModel indexModel : this.expectedIndexModels) {
+            IndexOptions indexOptions = indexModel.getOptions();
+            if (indexOptions.isSparse() || indexOptions.getPartialFilterExpression() != null) {
+                continue;
+            }
+            Document indexKeys = (Document) indexModel.getKeys();
+            // Text and hashed indexes cannot cover a query, unlike the ascending and descending ones.
+            if (!indexKeys.values().stream().allMatch(Number.class::isInstance)) {
+                continue;
+            }
+            List<String> indexFields = new ArrayList<>(indexKeys.keySet());
+            if (indexFields.size() >= equalityFields.size() && equalityFields.keySet().equals(
+                    new HashSet<>(indexFields.subList(0, equalityFields.size())))) {
+                BsonDocument coveredProjection = new BsonDocument();
+                equalityFields.keySet().forEach(field -> coveredProjection.append(field, new BsonInt32(1)));
+                coveredProjection.append(MongoTableConstants.MONGO_OBJECT_ID, new BsonInt32(0));
+                compiledCondition.setProbeProjection(coveredProjection, true);
+                return;
+            }
+        }
+        compiledCondition.setProbeProjection(idProjection, false);
     }
 
     @Override
@@ -590,6 +1582,7 @@ public class MongoDBEventTable extends AbstractQueryableRecordTable {
                 }
                 MongoTableUtils.checkExistingIndices(expectedIndexModels, existingIndicesIterator);
             }
+            this.readServerLimits();
             this.initialCollectionTest = true;
         } else {
             try {
@@ -598,10 +1591,119 @@ public class MongoDBEventTable extends AbstractQueryableRecordTable {
                 throw new ConnectionUnavailableException(e);
             }
         }
+        this.batchDispatcher.start();
+        if (this.keyBloomFilter != null && this.bloomFilterRebuilder == null) {
+            // The filter is built in the background, so that the scan of the keys does not delay the connection.
+            this.bloomFilterRebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "MongoDBEventTable-BloomFilter-" + this.collectionName);
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.bloomFilterRebuilder.scheduleWithFixedDelay(this::rebuildKeyBloomFilter, 0,
+                    this.bloomFilterRebuildInterval, TimeUnit.MILLISECONDS);
+        }
+        if ((this.prefetchEnabled || this.scanPartitioner != null) && this.prefetchExecutor == null) {
+            AtomicInteger prefetchThreadCount = new AtomicInteger();
+            this.prefetchExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "MongoDBEventTable-Prefetch-" + this.collectionName + "-" +
+                        prefetchThreadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if (this.writeBehindBuffer != null) {
+            this.writeBehindBuffer.start();
+        }
+    }
+
+    /**
+     * Method for reading the batch limits of the server from the 'hello' command, so that bulk writes are split
+     * into batches the server accepts as they are.
+     *
+     * @throws ConnectionUnavailableException if the connection to the server is unavailable.
+     */
+    private void readServerLimits() throws ConnectionUnavailableException {
+        Document helloResponse;
+        try {
+            try {
+                helloResponse = this.getDatabaseObject().runCommand(new Document("hello", 1));
+            } catch (MongoCommandException e) {
+                // Servers older than 4.4.2 do not support 'hello', but return the same limits for 'isMaster'.
+                helloResponse = this.getDatabaseObject().runCommand(new Document("isMaster", 1));
+            }
+        } catch (MongoSocketOpenException e) {
+            throw new ConnectionUnavailableException(e);
+        } catch (MongoException e) {
+            log.warn("Retrieving the batch limits of the server for the MongoDB Event Table '{}' is not " +
+                    "successful due to {}. Default limits are used instead.", this.collectionName,
+                    e.getLocalizedMessage());
+            return;
+        }
+        this.batchDispatcher.updateServerLimits(helloResponse);
     }
 
     @Override
     protected void disconnect() {
+        if (this.writeBehindBuffer != null) {
+            this.writeBehindBuffer.stop();
+        }
+        this.batchDispatcher.shutdown();
+        if (this.prefetchExecutor != null) {
+            this.prefetchExecutor.shutdownNow();
+            this.prefetchExecutor = null;
+        }
+        this.cursorTracker.closeAll();
+        if (this.bloomFilterRebuilder != null) {
+            this.bloomFilterRebuilder.shutdownNow();
+            this.bloomFilterRebuilder = null;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("{} of {} existence probes of the MongoDB Event Table '{}' were covered by an index.",
+                    this.getCoveredContainsProbeCount(), this.getContainsProbeCount(), this.collectionName);
+            log.debug("{} cursors of the MongoDB Event Table '{}' were closed by their iterators, and {} were " +
+                    "closed after being left open.", this.getClosedCursorCount(), this.collectionName,
+                    this.getLeakedCursorCount());
+            if (this.keyBloomFilter != null) {
+                log.debug("{} lookups of the MongoDB Event Table '{}' were answered by the primary key Bloom filter.",
+                        this.keyBloomFilter.getSkippedLookupCount(), this.collectionName);
+            }
+        }
+    }
+
+    public long getOpenCursorCount() {
+        return this.cursorTracker.getOpenCursorCount();
+    }
+
+    public long getClosedCursorCount() {
+        return this.cursorTracker.getClosedCursorCount();
+    }
+
+    public long getLeakedCursorCount() {
+        return this.cursorTracker.getLeakedCursorCount();
+    }
+
+    public long getContainsProbeCount() {
+        return this.containsProbeCount.get();
+    }
+
+    public long getCoveredContainsProbeCount() {
+        return this.coveredContainsProbeCount.get();
+    }
+
+    public int getScanRangeCount() {
+        return this.scanPartitioner == null ? 0 : this.scanPartitioner.getRangeCount();
+    }
+
+    public Integer getFindCursorBatchSize() {
+        return this.findBatchSizer == null ? null : this.findBatchSizer.getBatchSize();
+    }
+
+    public boolean isKeyBloomFilterReady() {
+        return this.keyBloomFilter != null && this.keyBloomFilter.isReady();
+    }
+
+    public long getKeyBloomFilterSkippedLookupCount() {
+        return this.keyBloomFilter == null ? 0 : this.keyBloomFilter.getSkippedLookupCount();
     }
 
     @Override
@@ -615,55 +1717,33 @@ public class MongoDBEventTable extends AbstractQueryableRecordTable {
     protected RecordIterator<Object[]> query(Map<String, Object> parameterMap, CompiledCondition compiledCondition,
                                              CompiledSelection compiledSelection, Attribute[] outputAttributes)
             throws ConnectionUnavailableException {
-        List<Document> aggregateList = new ArrayList<>();
+        this.flushWriteBehindBuffer(true);
         MongoDBCompileSelection compileSelection = (MongoDBCompileSelection) compiledSelection;
-        Document findFilter = MongoTableUtils
-                .resolveCondition((MongoCompiledCondition) compiledCondition, parameterMap, "on condition");
+        BsonDocument findFilter = MongoTableUtils.bindCondition((MongoCompiledCondition) compiledCondition,
+                this.withStoreValues(parameterMap, this.resolveStoreValues((MongoCompiledCondition) compiledCondition)),
+                "on condition");
+        // Only the '$match' stage and the stages with stream attributes are bound here, the others are precompiled.
+        List<Bson> stages = compileSelection.bindStages(parameterMap);
+        List<Bson> aggregateList = new ArrayList<>(stages.size() + 1);
         if (!findFilter.isEmpty()) {
-            Document matchFilter = new Document("$match", findFilter);
-            aggregateList.add(matchFilter);
-        }
-        MongoCompiledCondition groupByQuery = compileSelection.getGroupBy();
-        if (groupByQuery != null) {
-            Document groupBy = MongoTableUtils.resolveCondition(groupByQuery, parameterMap, "group by");
-            aggregateList.add(groupBy);
-        }
-        MongoCompiledCondition selectQuery = compileSelection.getSelection();
-        if (selectQuery != null) {
-            Document project = MongoTableUtils.resolveCondition(selectQuery, parameterMap, "select");
-            aggregateList.add(project);
-        }
-        String havingQuery = compileSelection.getHaving();
-        if (havingQuery != null) {
-            Document having = Document.parse(havingQuery);
-            aggregateList.add(having);
-            MongoTableUtils.logQuery("Having", having.toJson());
-        }
-        String orderByQuery = compileSelection.getOrderBy();
-        if (orderByQuery != null) {
-            Document orderBy = Document.parse(orderByQuery);
-            aggregateList.add(orderBy);
-            MongoTableUtils.logQuery("OrderBy", orderBy.toJson());
-        }
-        Long offsetValue = compileSelection.getOffset();
-        if (offsetValue != null) {
-            Document offsetFilter = Document.parse("{ $skip :" + offsetValue + "}");
-            aggregateList.add(offsetFilter);
-            MongoTableUtils.logQuery("Offset", offsetFilter.toJson());
-        }
-        Long limitValue = compileSelection.getLimit();
-        if (limitValue != null) {
-            Document limitFilter = Document.parse("{ $limit :" + limitValue + "}");
-            aggregateList.add(limitFilter);
-            MongoTableUtils.logQuery("Limit", limitFilter.toJson());
-        }
-        List<String> attributeList = new ArrayList<>();
-        for (Attribute outputAttribute : outputAttributes) {
-            attributeList.add(outputAttribute.getName());
+            aggregateList.add(new BsonDocument(MongoTableConstants.MONGO_MATCH, findFilter));
         }
+        aggregateList.addAll(stages);
         try {
-            AggregateIterable<Document> aggregate = this.getCollectionObject().aggregate(aggregateList);
-            return new MongoIterator(aggregate, attributeList);
+            if (compileSelection.isPartitionable()) {
+                RecordIterator<Object[]> partitions = this.scanInParallel(findFilter, partitionFilter -> {
+                    List<Bson> partitionAggregateList = new ArrayList<>(stages.size() + 1);
+                    partitionAggregateList.add(new BsonDocument(MongoTableConstants.MONGO_MATCH, partitionFilter));
+                    partitionAggregateList.addAll(stages);
+                    return new MongoIterator(this.aggregateRecords(partitionAggregateList, compileSelection),
+                            compileSelection.getCursorBatchSizer(), this.cursorTracker);
+                });
+                if (partitions != null) {
+                    return partitions;
+                }
+            }
+            return this.prefetch(new MongoIterator(this.aggregateRecords(aggregateList, compileSelection),
+                    compileSelection.getCursorBatchSizer(), this.cursorTracker));
         } catch (MongoSocketOpenException e) {
             throw new ConnectionUnavailableException(e);
         } catch (MongoException e) {
@@ -673,156 +1753,137 @@ public class MongoDBEventTable extends AbstractQueryableRecordTable {
         }
     }
 
+    /**
+     * Method for running the aggregation of a selection, whose results are read as raw documents and decoded into
+     * records by the position of each output attribute.
+     */
+    private MongoIterable<Object[]> aggregateRecords(List<Bson> aggregateList,
+                                                    MongoDBCompileSelection compileSelection) {
+        MongoRecordDecoder recordDecoder = compileSelection.getRecordDecoder();
+        return this.getCollectionObject().withDocumentClass(RawBsonDocument.class).aggregate(aggregateList)
+                .map(document -> document.decode(recordDecoder));
+    }
+
     @Override
     protected CompiledSelection compileSelection(List<SelectAttributeBuilder> selectAttributeBuilders,
                                                  List<ExpressionBuilder> groupByExpressionBuilders,
                                                  ExpressionBuilder havingExpressionBuilder,
                                                  List<OrderByAttributeBuilder> orderByAttributeBuilders,
                                                  Long limit, Long offset) {
-        MongoCompiledCondition project;
-        MongoCompiledCondition groupBy = null;
+        BsonTemplate project;
+        BsonTemplate groupBy = null;
         if (groupByExpressionBuilders == null) {
-            project = getProjectionString(selectAttributeBuilders);
+            project = getProjectionStage(selectAttributeBuilders);
         } else {
-            groupBy = getGroupByString(selectAttributeBuilders, groupByExpressionBuilders);
-            project = getGroupByProjectionString(selectAttributeBuilders);
+            groupBy = getGroupByStage(selectAttributeBuilders, groupByExpressionBuilders);
+            project = getGroupByProjectionStage(selectAttributeBuilders);
         }
-        String having = null;
+        BsonTemplate having = null;
         if (havingExpressionBuilder != null) {
-            having = getHavingString(havingExpressionBuilder);
+            having = getHavingStage(havingExpressionBuilder);
         }
-        String orderBy = null;
+        BsonTemplate orderBy = null;
         if (orderByAttributeBuilders != null) {
-            orderBy = getOrderByString(orderByAttributeBuilders);
+            orderBy = getOrderByStage(orderByAttributeBuilders);
         }
-        return new MongoDBCompileSelection(project, groupBy, having, orderBy, limit, offset);
+        // The results are decoded by the position of each output attribute, which is resolved once here.
+        MongoRecordDecoder selectionDecoder = new MongoRecordDecoder(selectAttributeBuilders.stream()
+                .map(SelectAttributeBuilder::getRename).toArray(String[]::new),
+                this.mongoClientSettings.getCodecRegistry());
+        return new MongoDBCompileSelection(project, groupBy, having, orderBy, limit, offset, selectionDecoder,
+                this.newCursorBatchSizer());
     }
 
-    private MongoCompiledCondition getProjectionString(List<SelectAttributeBuilder> selectAttributeBuilders) {
+    private BsonTemplate getProjectionStage(List<SelectAttributeBuilder> selectAttributeBuilders) {
         List<MongoSelectExpressionVisitor> selectExpressionVisitorList =
                 getSelectAttributesList(selectAttributeBuilders);
-        StringBuilder compiledProjectionJSON = new StringBuilder();
-        compiledProjectionJSON.append("{$project:{_id:0, ");
-        Map<String, Object> placeholdersMap = new HashMap<>();
+        Map<String, BsonTemplate> projection = new LinkedHashMap<>();
+        projection.put(MongoTableConstants.MONGO_OBJECT_ID, BsonTemplate.constant(new BsonInt32(0)));
         for (int i = 0; i < selectExpressionVisitorList.size(); i++) {
-            MongoSelectExpressionVisitor selectExpressionVisitor = selectExpressionVisitorList.get(i);
             String rename = selectAttributeBuilders.get(i).getRename();
-            compiledProjectionJSON.append(rename).append(":").append(selectExpressionVisitor.getCompiledCondition())
-                    .append((selectExpressionVisitorList.indexOf(selectExpressionVisitor) ==
-                            (selectExpressionVisitorList.size() - 1)) ? '}' : ',');
-            placeholdersMap.putAll(selectExpressionVisitor.getPlaceholders());
+            projection.put(rename, selectExpressionVisitorList.get(i).getCompiledExpression());
         }
-        compiledProjectionJSON.append('}');
-        return new MongoCompiledCondition(compiledProjectionJSON.toString(), placeholdersMap);
+        return BsonTemplate.document(MongoTableConstants.MONGO_PROJECT, BsonTemplate.document(projection));
     }
 
-    private MongoCompiledCondition getGroupByString(List<SelectAttributeBuilder> selectAttributeBuilders,
-                                                    List<ExpressionBuilder> groupByExpressionBuilders) {
+    private BsonTemplate getGroupByStage(List<SelectAttributeBuilder> selectAttributeBuilders,
+                                         List<ExpressionBuilder> groupByExpressionBuilders) {
         List<String> groupByAttributesList = new ArrayList<>();
-        StringBuilder compiledGroupByJSON = new StringBuilder();
-        StringBuilder groupBySelectString = new StringBuilder();
-        List<MongoExpressionVisitor> groupByExpressionVisitorList =
-                getExpressionVisitorList(groupByExpressionBuilders);
-        compiledGroupByJSON.append((groupByExpressionVisitorList.size() == 1) ? "{$group:{_id:" : "{$group:{_id:{");
-        for (MongoExpressionVisitor visitor : groupByExpressionVisitorList) {
-            String groupByAttribute = visitor.getConditionOperands().get(0);
-            groupByAttributesList.add(groupByAttribute);
-            if (visitor.getStreamVarCount() == 0 && visitor.getConstantCount() == 0) {
-                if (groupByExpressionVisitorList.size() == 1) {
-                    compiledGroupByJSON.append("'$").append(groupByAttribute).append("'");
-                    groupBySelectString.append(groupByAttribute).append(":{$first:'$").
-                            append(groupByAttribute).append("'}");
-                } else {
-                    compiledGroupByJSON.append(groupByAttribute).append(":").append("'$")
-                            .append(groupByAttribute).append("'");
-                    groupBySelectString.append(groupByAttribute).append(":{$first:'$")
-                            .append(groupByAttribute).append("'}");
-                    if (groupByExpressionVisitorList.indexOf(visitor) != (groupByExpressionVisitorList.size() - 1)) {
-                        groupBySelectString.append(",");
-                        compiledGroupByJSON.append(",");
-                    }
-                }
-            } else {
+        for (MongoExpressionVisitor visitor : getExpressionVisitorList(groupByExpressionBuilders)) {
+            if (!(visitor.getCompiledExpression() instanceof MongoExpressionNode.FieldNode)) {
                 throw new MongoTableException("The MongoDB Event table does not support 'group by' clause with " +
                         "stream attributes.");
             }
+            groupByAttributesList.add(((MongoExpressionNode.FieldNode) visitor.getCompiledExpression()).getName());
         }
-        compiledGroupByJSON.append((groupByAttributesList.size() == 1) ? ',' : "},");
-        List<MongoSelectExpressionVisitor> getSelectExpressionVisitorList =
+        Map<String, BsonTemplate> group = new LinkedHashMap<>();
+        if (groupByAttributesList.size() == 1) {
+            group.put(MongoTableConstants.MONGO_OBJECT_ID,
+                    new MongoExpressionNode.FieldNode(groupByAttributesList.get(0)).toAggregationExpression());
+        } else {
+            Map<String, BsonTemplate> groupKey = new LinkedHashMap<>();
+            groupByAttributesList.forEach(groupByAttribute -> groupKey.put(groupByAttribute,
+                    new MongoExpressionNode.FieldNode(groupByAttribute).toAggregationExpression()));
+            group.put(MongoTableConstants.MONGO_OBJECT_ID, BsonTemplate.document(groupKey));
+        }
+        List<MongoSelectExpressionVisitor> selectExpressionVisitorList =
                 getSelectAttributesList(selectAttributeBuilders);
-        Map<String, Object> placeholdersMap = new HashMap<>();
-        for (int i = 0; i < getSelectExpressionVisitorList.size(); i++) {
-            MongoSelectExpressionVisitor visitor = getSelectExpressionVisitorList.get(i);
+        for (int i = 0; i < selectExpressionVisitorList.size(); i++) {
+            MongoSelectExpressionVisitor visitor = selectExpressionVisitorList.get(i);
             String rename = selectAttributeBuilders.get(i).getRename();
-            placeholdersMap.putAll(visitor.getPlaceholders());
             if (!groupByAttributesList.contains(rename)) {
-                String compiledCondition = visitor.getCompiledCondition();
-                boolean isFunctionUsed = visitor.isFunctionsPresent();
-                if (isFunctionUsed) {
-                    compiledGroupByJSON.append(rename).append(":").append(compiledCondition);
-                } else {
-                    compiledGroupByJSON.append(rename).append(":{$last:").append(compiledCondition)
-                            .append('}');
-                }
-                compiledGroupByJSON.append(',');
-            }
-            if (getSelectExpressionVisitorList.indexOf(visitor) == (getSelectExpressionVisitorList.size() - 1)) {
-                compiledGroupByJSON.append(groupBySelectString).append("}");
+                // Attributes which are not aggregated take the value of the last document of the group.
+                group.put(rename, visitor.isFunctionsPresent() ? visitor.getCompiledExpression() :
+                        BsonTemplate.document("$last", visitor.getCompiledExpression()));
             }
         }
-        compiledGroupByJSON.append("}");
-        return new MongoCompiledCondition(compiledGroupByJSON.toString(), placeholdersMap);
+        groupByAttributesList.forEach(groupByAttribute -> group.put(groupByAttribute, BsonTemplate.document("$first",
+                new MongoExpressionNode.FieldNode(groupByAttribute).toAggregationExpression())));
+        return BsonTemplate.document(MongoTableConstants.MONGO_GROUP, BsonTemplate.document(group));
     }
 
-    private MongoCompiledCondition getGroupByProjectionString(List<SelectAttributeBuilder> selectAttributeBuilders) {
-        StringBuilder compiledProjectionJSON = new StringBuilder();
-        List<MongoSelectExpressionVisitor> getSelectExpressionVisitorList =
-                getSelectAttributesList(selectAttributeBuilders);
-        compiledProjectionJSON.append("{$project:{_id:0,");
-        for (int i = 0; i < getSelectExpressionVisitorList.size(); i++) {
-            MongoSelectExpressionVisitor visitor = getSelectExpressionVisitorList.get(i);
-            String rename = selectAttributeBuilders.get(i).getRename();
-            compiledProjectionJSON.append(rename).append(":1");
-            if (getSelectExpressionVisitorList.indexOf(visitor) == (getSelectExpressionVisitorList.size() - 1)) {
-                compiledProjectionJSON.append("}");
-            } else {
-                compiledProjectionJSON.append(",");
-            }
+    private BsonTemplate getGroupByProjectionStage(List<SelectAttributeBuilder> selectAttributeBuilders) {
+        Map<String, BsonTemplate> projection = new LinkedHashMap<>();
+        projection.put(MongoTableConstants.MONGO_OBJECT_ID, BsonTemplate.constant(new BsonInt32(0)));
+        for (SelectAttributeBuilder selectAttributeBuilder : selectAttributeBuilders) {
+            projection.put(selectAttributeBuilder.getRename(), BsonTemplate.constant(new BsonInt32(1)));
         }
-        compiledProjectionJSON.append("}");
-        return new MongoCompiledCondition(compiledProjectionJSON.toString(), Collections.emptyMap());
+        return BsonTemplate.document(MongoTableConstants.MONGO_PROJECT, BsonTemplate.document(projection));
     }
 
-    private String getHavingString(ExpressionBuilder havingExpressionBuilder) {
+    private BsonTemplate getHavingStage(ExpressionBuilder havingExpressionBuilder) {
         MongoExpressionVisitor visitor = new MongoExpressionVisitor(true);
         havingExpressionBuilder.build(visitor);
-        return "{$match:" + visitor.getCompiledCondition() + "}";
+        BsonTemplate havingStage = BsonTemplate.document(MongoTableConstants.MONGO_MATCH,
+                MongoFilterNormalizer.normalize(visitor.getCompiledFilter()));
+        if (havingStage.isStatic()) {
+            MongoTableUtils.logQuery("Having", havingStage.bind(Collections.emptyMap()).asDocument().toJson());
+        }
+        return havingStage;
     }
 
-    private String getOrderByString(List<OrderByAttributeBuilder> orderByAttributeBuilders) {
+    private BsonTemplate getOrderByStage(List<OrderByAttributeBuilder> orderByAttributeBuilders) {
         List<ExpressionBuilder> orderByExpressionBuilders = new ArrayList<>();
         for (OrderByAttributeBuilder builder : orderByAttributeBuilders) {
             orderByExpressionBuilders.add(builder.getExpressionBuilder());
         }
         List<MongoExpressionVisitor> orderByExpressionVisitorList =
                 getExpressionVisitorList(orderByExpressionBuilders);
-        StringBuilder compiledOrderByJSON = new StringBuilder();
-        compiledOrderByJSON.append("{$sort:{");
+        BsonDocument sort = new BsonDocument();
         for (int i = 0; i < orderByExpressionVisitorList.size(); i++) {
             MongoExpressionVisitor visitor = orderByExpressionVisitorList.get(i);
             String order = orderByAttributeBuilders.get(i).getOrder().name();
-            if (visitor.getStreamVarCount() == 0) {
-                compiledOrderByJSON.append(visitor.getCompiledCondition())
-                        .append((order.equalsIgnoreCase("ASC")) ? ":1" : ":-1")
-                        .append((orderByExpressionVisitorList.indexOf(visitor) ==
-                                (orderByExpressionVisitorList.size() - 1)) ? '}' : ',');
+            if (visitor.getCompiledExpression() instanceof MongoExpressionNode.FieldNode) {
+                sort.append(((MongoExpressionNode.FieldNode) visitor.getCompiledExpression()).getName(),
+                        new BsonInt32(order.equalsIgnoreCase("ASC") ? 1 : -1));
             } else {
                 throw new MongoTableException("The MongoDB Event table does not support 'order by' clause with " +
                         "stream attributes.");
             }
         }
-        compiledOrderByJSON.append('}');
-        return compiledOrderByJSON.toString();
+        BsonDocument orderByStage = new BsonDocument(MongoTableConstants.MONGO_SORT, sort);
+        MongoTableUtils.logQuery("OrderBy", orderByStage.toJson());
+        return BsonTemplate.constant(orderByStage);
     }
 
     private List<MongoSelectExpressionVisitor> getSelectAttributesList(List<SelectAttributeBuilder>
@@ -0,0 +1,460 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.siddhi.extension.store.mongodb;
+
+import io.siddhi.extension.store.mongodb.exception.MongoTableException;
+import io.siddhi.extension.store.mongodb.util.BsonTypeBinder;
+import io.siddhi.extension.store.mongodb.util.MongoTableConstants;
+import io.siddhi.extension.store.mongodb.util.MongoTableUtils;
+import io.siddhi.query.api.definition.Attribute;
+import io.siddhi.query.api.expression.condition.Compare;
+import org.bson.BsonInt32;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Typed intermediate tree of a Siddhi expression, built by the expression visitors of the MongoDB Event Table. The
+ * visitors decide what each operand holds from the type of its node, and the BSON of the query filters and the
+ * aggregation expressions is produced from the tree.
+ */
+public abstract class MongoExpressionNode {
+
+    /**
+     * Method which returns whether the node evaluates to a boolean, so that it can be used as a filter.
+     *
+     * @return true if the node is a condition.
+     */
+    public boolean isCondition() {
+        return false;
+    }
+
+    /**
+     * Method which returns the Siddhi type the node evaluates to.
+     *
+     * @return the type, or null if it is not known.
+     */
+    public Attribute.Type getType() {
+        return null;
+    }
+
+    /**
+     * Method which produces the aggregation expression of the node, as used by '$expr' and the stages of an
+     * aggregation pipeline, where table attributes are referred to as field paths.
+     *
+     * @return the template of the aggregation expression.
+     */
+    public abstract BsonTemplate toAggregationExpression();
+
+    /**
+     * Node of an attribute of the table.
+     */
+    public static class FieldNode extends MongoExpressionNode {
+        private final String name;
+        private final Attribute.Type type;
+
+        public FieldNode(String name) {
+            this(name, null);
+        }
+
+        public FieldNode(String name, Attribute.Type type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Attribute.Type getType() {
+            return type;
+        }
+
+        @Override
+        public BsonTemplate toAggregationExpression() {
+            return BsonTemplate.constant(new BsonString("$" + name));
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Node of a value which is known when the filter is bound, either a stream variable or a constant.
+     */
+    public abstract static class ValueNode extends MongoExpressionNode {
+
+        /**
+         * Method which produces the template of the value in the given BSON type.
+         *
+         * @param binder the binder of the BSON type of the value.
+         * @return the template of the value.
+         */
+        public abstract BsonTemplate toValue(BsonTypeBinder binder);
+
+        @Override
+        public abstract Attribute.Type getType();
+
+        public BsonTemplate toValue() {
+            return this.toValue(BsonTypeBinder.of(this.getType()));
+        }
+
+        @Override
+        public BsonTemplate toAggregationExpression() {
+            // Values are kept as literals, so that a string starting with '$' is not read as a field path.
+            return BsonTemplate.document(MongoTableConstants.MONGO_LITERAL, this.toValue());
+        }
+    }
+
+    /**
+     * Node of a stream variable, which is bound to the value of each event.
+     */
+    public static class ParameterNode extends ValueNode {
+        private final String id;
+        private final Attribute.Type type;
+
+        public ParameterNode(String id, Attribute.Type type) {
+            this.id = id;
+            this.type = type;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public Attribute.Type getType() {
+            return type;
+        }
+
+        @Override
+        public BsonTemplate toValue(BsonTypeBinder binder) {
+            return binder == BsonTypeBinder.OBJECT_ID ? BsonTemplate.objectIdParameter(id, type) :
+                    BsonTemplate.parameter(id, type);
+        }
+
+        @Override
+        public String toString() {
+            return "?" + id;
+        }
+    }
+
+    /**
+     * Node of a constant, which is converted to BSON at compile time.
+     */
+    public static class ConstantNode extends ValueNode {
+        private final Object value;
+        private final Attribute.Type type;
+
+        public ConstantNode(Object value, Attribute.Type type) {
+            this.value = value;
+            this.type = type;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public Attribute.Type getType() {
+            return type;
+        }
+
+        @Override
+        public boolean isCondition() {
+            return type == Attribute.Type.BOOL;
+        }
+
+        @Override
+        public BsonTemplate toValue(BsonTypeBinder binder) {
+            return BsonTemplate.constant(binder.bind(value));
+        }
+
+        @Override
+        public String toString() {
+            return type == Attribute.Type.STRING ? "'" + value + "'" : String.valueOf(value);
+        }
+    }
+
+    /**
+     * Node of a comparison between two operands.
+     */
+    public static class CompareNode extends MongoExpressionNode {
+        private final Compare.Operator operator;
+        private final MongoExpressionNode left;
+        private final MongoExpressionNode right;
+
+        public CompareNode(Compare.Operator operator, MongoExpressionNode left, MongoExpressionNode right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        public Compare.Operator getOperator() {
+            return operator;
+        }
+
+        public MongoExpressionNode getLeft() {
+            return left;
+        }
+
+        public MongoExpressionNode getRight() {
+            return right;
+        }
+
+        @Override
+        public boolean isCondition() {
+            return true;
+        }
+
+        @Override
+        public BsonTemplate toAggregationExpression() {
+            return BsonTemplate.document(MongoTableUtils.getCompareOperator(operator), BsonTemplate.array(
+                    Arrays.asList(left.toAggregationExpression(), right.toAggregationExpression())));
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " " + MongoTableUtils.getCompareOperator(operator) + " " + right + ")";
+        }
+    }
+
+    /**
+     * Node of a logical AND or OR between two conditions.
+     */
+    public static class LogicalNode extends MongoExpressionNode {
+        private final String operator;
+        private final MongoExpressionNode left;
+        private final MongoExpressionNode right;
+
+        public LogicalNode(String operator, MongoExpressionNode left, MongoExpressionNode right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        public String getOperator() {
+            return operator;
+        }
+
+        public MongoExpressionNode getLeft() {
+            return left;
+        }
+
+        public MongoExpressionNode getRight() {
+            return right;
+        }
+
+        @Override
+        public boolean isCondition() {
+            return true;
+        }
+
+        @Override
+        public BsonTemplate toAggregationExpression() {
+            return BsonTemplate.document(operator, BsonTemplate.array(
+                    Arrays.asList(left.toAggregationExpression(), right.toAggregationExpression())));
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " " + operator + " " + right + ")";
+        }
+    }
+
+    /**
+     * Node of the negation of a condition.
+     */
+    public static class NotNode extends MongoExpressionNode {
+        private final MongoExpressionNode operand;
+
+        public NotNode(MongoExpressionNode operand) {
+            this.operand = operand;
+        }
+
+        public MongoExpressionNode getOperand() {
+            return operand;
+        }
+
+        @Override
+        public boolean isCondition() {
+            return true;
+        }
+
+        @Override
+        public BsonTemplate toAggregationExpression() {
+            return BsonTemplate.document(MongoTableConstants.MONGO_NOT,
+                    BsonTemplate.array(Collections.singletonList(operand.toAggregationExpression())));
+        }
+
+        @Override
+        public String toString() {
+            return "(" + MongoTableConstants.MONGO_NOT + " " + operand + ")";
+        }
+    }
+
+    /**
+     * Node of a null check of an operand.
+     */
+    public static class IsNullNode extends MongoExpressionNode {
+        private final MongoExpressionNode operand;
+
+        public IsNullNode(MongoExpressionNode operand) {
+            this.operand = operand;
+        }
+
+        public MongoExpressionNode getOperand() {
+            return operand;
+        }
+
+        @Override
+        public boolean isCondition() {
+            return true;
+        }
+
+        @Override
+        public BsonTemplate toAggregationExpression() {
+            return BsonTemplate.document(MongoTableConstants.MONGO_COMPARE_EQUAL, BsonTemplate.array(Arrays.asList(
+                    operand.toAggregationExpression(), BsonTemplate.constant(BsonNull.VALUE))));
+        }
+
+        @Override
+        public String toString() {
+            return "(" + operand + " is null)";
+        }
+    }
+
+    /**
+     * Node of a membership check of an operand in the values of another store.
+     */
+    public static class InNode extends MongoExpressionNode {
+        private final MongoExpressionNode operand;
+        private final String storeId;
+
+        public InNode(MongoExpressionNode operand, String storeId) {
+            this.operand = operand;
+            this.storeId = storeId;
+        }
+
+        public MongoExpressionNode getOperand() {
+            return operand;
+        }
+
+        public String getStoreId() {
+            return storeId;
+        }
+
+        @Override
+        public boolean isCondition() {
+            return true;
+        }
+
+        @Override
+        public BsonTemplate toAggregationExpression() {
+            throw new MongoTableException("The MongoDB Event table does not support IN operations in " +
+                    "aggregation expressions. Please check your query and try again.");
+        }
+
+        @Override
+        public String toString() {
+            return "(" + operand + " in " + storeId + ")";
+        }
+    }
+
+    /**
+     * Node of an arithmetic operation between two operands, such as '$add'.
+     */
+    public static class MathNode extends MongoExpressionNode {
+        private final String operator;
+        private final MongoExpressionNode left;
+        private final MongoExpressionNode right;
+
+        public MathNode(String operator, MongoExpressionNode left, MongoExpressionNode right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Attribute.Type getType() {
+            Attribute.Type leftType = left.getType();
+            Attribute.Type rightType = right.getType();
+            if (leftType == null || rightType == null) {
+                return null;
+            }
+            // Siddhi widens the operands of a math operation to the wider of the two numeric types.
+            for (Attribute.Type type : new Attribute.Type[]{Attribute.Type.DOUBLE, Attribute.Type.FLOAT,
+                    Attribute.Type.LONG}) {
+                if (leftType == type || rightType == type) {
+                    return type;
+                }
+            }
+            return leftType;
+        }
+
+        @Override
+        public BsonTemplate toAggregationExpression() {
+            BsonTemplate expression = BsonTemplate.document(operator, BsonTemplate.array(
+                    Arrays.asList(left.toAggregationExpression(), right.toAggregationExpression())));
+            Attribute.Type type = this.getType();
+            if (MongoTableConstants.MONGO_DIVIDE.equals(operator) &&
+                    (type == Attribute.Type.INT || type == Attribute.Type.LONG)) {
+                // Siddhi divides integers with integer division, while '$divide' always returns a double.
+                return BsonTemplate.document(MongoTableConstants.MONGO_TRUNC, expression);
+            }
+            return expression;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " " + operator + " " + right + ")";
+        }
+    }
+
+    /**
+     * Node of an aggregate function such as 'sum', where the argument of 'count' is absent.
+     */
+    public static class FunctionNode extends MongoExpressionNode {
+        private final String name;
+        private final MongoExpressionNode argument;
+
+        public FunctionNode(String name, MongoExpressionNode argument) {
+            this.name = name;
+            this.argument = argument;
+        }
+
+        @Override
+        public BsonTemplate toAggregationExpression() {
+            if (argument == null) {
+                // count() counts the documents of the group.
+                return BsonTemplate.document("$sum", BsonTemplate.constant(new BsonInt32(1)));
+            }
+            return BsonTemplate.document("$" + name, argument.toAggregationExpression());
+        }
+
+        @Override
+        public String toString() {
+            return name + "(" + (argument == null ? "" : argument) + ")";
+        }
+    }
+}
@@ -19,79 +19,78 @@ package io.siddhi.extension.store.mongodb;
 
 import io.siddhi.core.table.record.BaseExpressionVisitor;
 import io.siddhi.extension.store.mongodb.exception.MongoTableException;
-import io.siddhi.extension.store.mongodb.util.Constant;
+import io.siddhi.extension.store.mongodb.util.BsonTypeBinder;
 import io.siddhi.extension.store.mongodb.util.MongoTableConstants;
 import io.siddhi.extension.store.mongodb.util.MongoTableUtils;
 import io.siddhi.query.api.definition.Attribute;
 import io.siddhi.query.api.expression.condition.Compare;
+import org.bson.BsonBoolean;
+import org.bson.BsonNull;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Stack;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Class which is used by the Siddhi runtime for instructions on converting the SiddhiQL condition to the condition
- * format understood by the MongoDB.
+ * format understood by the MongoDB. The visitor builds a typed {@link MongoExpressionNode} tree of the condition,
+ * from which the filter template is produced.
  */
 public class MongoExpressionVisitor extends BaseExpressionVisitor {
-    private Stack<String> conditionOperands;
+    private Stack<MongoExpressionNode> operands;
     private Map<String, Object> placeholders;
-
-    private int streamVarCount;
-    private int constantCount;
     private boolean isHavingClause;
 
     public MongoExpressionVisitor() {
-        this.streamVarCount = 0;
-        this.constantCount = 0;
-        this.conditionOperands = new Stack<>();
-        this.placeholders = new HashMap<>();
-        this.isHavingClause = false;
+        this(false);
     }
 
     public MongoExpressionVisitor(boolean isHavingClause) {
-        this.streamVarCount = 0;
-        this.constantCount = 0;
-        this.conditionOperands = new Stack<>();
+        this.operands = new Stack<>();
         this.placeholders = new HashMap<>();
         this.isHavingClause = isHavingClause;
     }
 
     public String getCompiledCondition() {
-        String compiledCondition = this.conditionOperands.pop();
-        for (Map.Entry<String, Object> entry : this.placeholders.entrySet()) {
-            if (entry.getValue() instanceof Constant) {
-                Constant constant = (Constant) entry.getValue();
-                if (constant.getType().equals(Attribute.Type.STRING)) {
-                    compiledCondition = compiledCondition.replaceAll(entry.getKey(),
-                            "'" + constant.getValue().toString() + "'");
-                } else {
-                    compiledCondition = compiledCondition.replaceAll(entry.getKey(),
-                            constant.getValue().toString());
-                }
-            }
-        }
-        // Remove constants after resolving
-        this.placeholders.values().removeIf((value) -> value instanceof Constant);
-        return compiledCondition;
+        return this.operands.peek().toString();
     }
 
-    public Map<String, Object> getPlaceholders() {
-        return placeholders;
-    }
-
-    public Stack<String> getConditionOperands() {
-        return this.conditionOperands;
+    /**
+     * Method which returns the typed tree of the visited expression.
+     *
+     * @return the root node of the expression.
+     */
+    public MongoExpressionNode getCompiledExpression() {
+        return this.operands.peek();
     }
 
-    public int getStreamVarCount() {
-        return this.streamVarCount;
+    /**
+     * Method which returns the filter template built from the typed tree of the condition, which only needs the
+     * stream variables to be bound at runtime.
+     *
+     * @return the pre-built filter template of the condition.
+     */
+    public BsonTemplate getCompiledFilter() {
+        MongoExpressionNode condition = this.operands.peek();
+        if (!condition.isCondition()) {
+            throw new MongoTableException("MongoDB Event Table found operand '" + condition + "' as the " +
+                    "condition. The Mongo Event table only supports conditions which are expressions. " +
+                    "Please check your query and try again.");
+        }
+        return this.toFilter(condition);
     }
 
-    public int getConstantCount() {
-        return this.constantCount;
+    /**
+     * Method which returns the stream variables of the condition.
+     *
+     * @return the attribute of each stream variable, keyed by its id.
+     */
+    public Map<String, Object> getPlaceholders() {
+        return placeholders;
     }
 
     @Override
@@ -100,19 +99,7 @@ public class MongoExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void endVisitAnd() {
-        String rightOperand = this.conditionOperands.pop();
-        String leftOperand = this.conditionOperands.pop();
-        if (rightOperand.matches(MongoTableConstants.REG_EXPRESSION) &&
-                leftOperand.matches(MongoTableConstants.REG_EXPRESSION)) {
-            String andFilter = MongoTableConstants.MONGO_AND_FILTER
-                    .replace(MongoTableConstants.PLACEHOLDER_LEFT_OPERAND, leftOperand)
-                    .replace(MongoTableConstants.PLACEHOLDER_RIGHT_OPERAND, rightOperand);
-            this.conditionOperands.push(andFilter);
-        } else {
-            throw new MongoTableException("MongoDB Event Table found operands '" + leftOperand + "' and '" +
-                    rightOperand + "' for AND operation. Mongo Event table only supports AND operation between " +
-                    "two expressions. Please check your query and try again.");
-        }
+        this.pushLogical(MongoTableConstants.MONGO_AND, "AND");
     }
 
     @Override
@@ -137,19 +124,7 @@ public class MongoExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void endVisitOr() {
-        String rightOperand = this.conditionOperands.pop();
-        String leftOperand = this.conditionOperands.pop();
-        if (rightOperand.matches(MongoTableConstants.REG_EXPRESSION) &&
-                leftOperand.matches(MongoTableConstants.REG_EXPRESSION)) {
-            String orFilter = MongoTableConstants.MONGO_OR_FILTER
-                    .replace(MongoTableConstants.PLACEHOLDER_LEFT_OPERAND, leftOperand)
-                    .replace(MongoTableConstants.PLACEHOLDER_RIGHT_OPERAND, rightOperand);
-            this.conditionOperands.push(orFilter);
-        } else {
-            throw new MongoTableException("MongoDB Event Table found operands '" + leftOperand + "' and '" +
-                    rightOperand + "' for OR operation.The Mongo Event table only supports OR operation between " +
-                    "two expressions. Please check your query and try again.");
-        }
+        this.pushLogical(MongoTableConstants.MONGO_OR, "OR");
     }
 
     @Override
@@ -174,21 +149,13 @@ public class MongoExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void endVisitNot() {
-        String operand = this.conditionOperands.pop();
-        Pattern pattern = Pattern.compile(MongoTableConstants.REG_SIMPLE_EXPRESSION);
-        Matcher matcher = pattern.matcher(operand);
-        if (matcher.find()) {
-            String fieldName = matcher.group(1);
-            operand = operand.replace(fieldName, MongoTableConstants.MONGO_NOT);
-            String notFilter = MongoTableConstants.MONGO_NOT_FILTER
-                    .replace(MongoTableConstants.PLACEHOLDER_FIELD_NAME, fieldName)
-                    .replace(MongoTableConstants.PLACEHOLDER_OPERAND, operand);
-            this.conditionOperands.push(notFilter);
-        } else {
+        MongoExpressionNode operand = this.operands.pop();
+        if (!operand.isCondition()) {
             throw new MongoTableException("MongoDB Event Table found operand '" + operand + "' for NOT operation. " +
-                    "The Mongo Event table only supports NOT operation on simple expression such as compare and null " +
-                    "check. Please check your query and try again.");
+                    "The Mongo Event table only supports NOT operation on conditions. Please check your query " +
+                    "and try again.");
         }
+        this.operands.push(new MongoExpressionNode.NotNode(operand));
     }
 
     @Override
@@ -197,47 +164,25 @@ public class MongoExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void endVisitCompare(Compare.Operator operator) {
-        String rightOperand = this.conditionOperands.pop();
-        String leftOperand = this.conditionOperands.pop();
-        String compareFilter;
-        if (rightOperand.equals(MongoTableConstants.MONGO_OBJECT_ID) ||
-                leftOperand.equals((MongoTableConstants.MONGO_OBJECT_ID))) {
-            compareFilter = MongoTableConstants.MONGO_COMPARE_FILTER_FOR_OBJECT_ID;
-        } else {
-            compareFilter = MongoTableConstants.MONGO_COMPARE_FILTER;
-        }
-        String compareOperator = MongoTableUtils.getCompareOperator(operator);
-        compareFilter = compareFilter.replace(MongoTableConstants.PLACEHOLDER_COMPARE_OPERATOR, compareOperator);
-
-        if (!rightOperand.matches(MongoTableConstants.REG_EXPRESSION) &&
-                !leftOperand.matches(MongoTableConstants.REG_EXPRESSION)) {
-            if (leftOperand.matches(MongoTableConstants.REG_STREAMVAR_OR_CONST) !=
-                    rightOperand.matches(MongoTableConstants.REG_STREAMVAR_OR_CONST)) {
-                if (!rightOperand.matches(MongoTableConstants.REG_STREAMVAR_OR_CONST)) {
-                    compareFilter = compareFilter
-                            .replace(MongoTableConstants.PLACEHOLDER_LEFT_OPERAND, rightOperand)
-                            .replace(MongoTableConstants.PLACEHOLDER_RIGHT_OPERAND, leftOperand);
-                } else {
-                    compareFilter = compareFilter
-                            .replace(MongoTableConstants.PLACEHOLDER_LEFT_OPERAND, leftOperand)
-                            .replace(MongoTableConstants.PLACEHOLDER_RIGHT_OPERAND, rightOperand);
-                }
-                this.conditionOperands.push(compareFilter);
-            } else if (isHavingClause) {
+        MongoExpressionNode rightOperand = this.operands.pop();
+        MongoExpressionNode leftOperand = this.operands.pop();
+        if (isConditionExpression(leftOperand) || isConditionExpression(rightOperand)) {
+            throw new MongoTableException("MongoDB Event Table found operands '" + leftOperand + "' and '" +
+                    rightOperand + "' for COMPARE operation. The Mongo Event table does not supports COMPARE " +
+                    "operation between expressions. Please check your query and try again.");
+        } else if (leftOperand instanceof MongoExpressionNode.ValueNode &&
+                rightOperand instanceof MongoExpressionNode.ValueNode) {
+            if (isHavingClause) {
                 throw new MongoTableException("The Mongo Event table only supports COMPARE " +
                         "operation between Table/ Stream attribute and Constant in HAVING clause. " +
                         "Please check your query and try again.");
-            } else {
-                throw new MongoTableException("MongoDB Event Table found operands '" + leftOperand + "' and '" +
-                        rightOperand + "' for COMPARE operation. The Mongo Event table only supports COMPARE " +
-                        "operation between table attribute and Stream variable/ Constant. Please check your query " +
-                        "and try again.");
             }
-        } else {
             throw new MongoTableException("MongoDB Event Table found operands '" + leftOperand + "' and '" +
-                    rightOperand + "' for COMPARE operation. The Mongo Event table does not supports COMPARE " +
-                    "operation between expressions. Please check your query and try again.");
+                    rightOperand + "' for COMPARE operation. The Mongo Event table only supports COMPARE " +
+                    "operation between table attribute and Stream variable/ Constant. Please check your query " +
+                    "and try again.");
         }
+        this.operands.push(new MongoExpressionNode.CompareNode(operator, leftOperand, rightOperand));
     }
 
     @Override
@@ -259,44 +204,53 @@ public class MongoExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitIsNull(String streamId) {
-        if (isHavingClause) {
-            throw new MongoTableException("MongoDB Event Table does not support IS NULL in having clause.");
-        }
     }
 
     @Override
     public void endVisitIsNull(String streamId) {
-        String operand = this.conditionOperands.pop();
-        if (!operand.matches(MongoTableConstants.REG_EXPRESSION) &&
-                !operand.matches(MongoTableConstants.REG_STREAMVAR_OR_CONST)) {
-            String isNullFilter = MongoTableConstants.MONGO_IS_NULL_FILTER
-                    .replace(MongoTableConstants.PLACEHOLDER_OPERAND, operand);
-            this.conditionOperands.push(isNullFilter);
-        } else {
+        MongoExpressionNode operand = this.operands.pop();
+        if (!(operand instanceof MongoExpressionNode.FieldNode)) {
             throw new MongoTableException("MongoDB Event Table found operand '" + operand + "' for is NULL operation." +
                     " The Mongo Event table only supports is NULL operation on a table attribute. Please check your" +
                     " query and try again.");
         }
+        this.operands.push(new MongoExpressionNode.IsNullNode(operand));
     }
 
     @Override
     public void beginVisitIn(String storeId) {
-        throw new MongoTableException("MongoDB Event Table does not support IN operations. Please check your" +
-                " query and try again.");
+        if (isHavingClause) {
+            throw new MongoTableException("MongoDB Event Table does not support IN in having clause.");
+        }
     }
 
     @Override
     public void endVisitIn(String storeId) {
+        MongoExpressionNode operand = this.operands.pop();
+        if (!(operand instanceof MongoExpressionNode.FieldNode)) {
+            throw new MongoTableException("MongoDB Event Table found operand '" + operand + "' for IN operation." +
+                    " The Mongo Event table only supports IN operation on a table attribute. Please check your" +
+                    " query and try again.");
+        }
+        this.operands.push(new MongoExpressionNode.InNode(operand, storeId));
     }
 
     @Override
     public void beginVisitMath(MathOperator mathOperator) {
-        throw new MongoTableException("The Mongo Event table do not support MATH operations. " +
-                " Please check your query and try again.");
     }
 
     @Override
     public void endVisitMath(MathOperator mathOperator) {
+        MongoExpressionNode rightOperand = this.operands.pop();
+        MongoExpressionNode leftOperand = this.operands.pop();
+        if (isConditionExpression(leftOperand) || isConditionExpression(rightOperand)) {
+            throw new MongoTableException("MongoDB Event Table found operands '" + leftOperand + "' and '" +
+                    rightOperand + "' for MATH operation. The Mongo Event table only supports MATH operations " +
+                    "between table attributes, Stream variables and Constants. Please check your query and try " +
+                    "again.");
+        }
+        this.operands.push(new MongoExpressionNode.MathNode("$" + mathOperator.name().toLowerCase(Locale.ENGLISH),
+                leftOperand, rightOperand));
     }
 
     @Override
@@ -336,9 +290,8 @@ public class MongoExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitStreamVariable(String id, String streamId, String attributeName, Attribute.Type type) {
-        String name = this.generateStreamVarName();
-        this.placeholders.put(name, new Attribute(id, type));
-        conditionOperands.push(name);
+        this.placeholders.put(id, new Attribute(id, type));
+        this.operands.push(new MongoExpressionNode.ParameterNode(id, type));
     }
 
     @Override
@@ -347,9 +300,7 @@ public class MongoExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitConstant(Object value, Attribute.Type type) {
-        String name = this.generateConstantName();
-        this.placeholders.put(name, new Constant(value, type));
-        conditionOperands.push(name);
+        this.operands.push(new MongoExpressionNode.ConstantNode(value, type));
     }
 
     @Override
@@ -358,7 +309,7 @@ public class MongoExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitStoreVariable(String storeId, String attributeName, Attribute.Type type) {
-        this.conditionOperands.push(attributeName);
+        this.operands.push(new MongoExpressionNode.FieldNode(attributeName, type));
     }
 
     @Override
@@ -366,24 +317,102 @@ public class MongoExpressionVisitor extends BaseExpressionVisitor {
     }
 
     /**
-     * Method for generating a temporary placeholder for stream variables.
-     *
-     * @return a placeholder string of known format.
+     * Method which returns whether a node is a condition built from other operands, rather than a boolean value.
      */
-    private String generateStreamVarName() {
-        String name = "strVar" + this.streamVarCount;
-        this.streamVarCount++;
-        return name;
+    private static boolean isConditionExpression(MongoExpressionNode node) {
+        return node.isCondition() && !(node instanceof MongoExpressionNode.ValueNode);
+    }
+
+    private void pushLogical(String logicalOperator, String operationName) {
+        MongoExpressionNode rightOperand = this.operands.pop();
+        MongoExpressionNode leftOperand = this.operands.pop();
+        if (!leftOperand.isCondition() || !rightOperand.isCondition()) {
+            throw new MongoTableException("MongoDB Event Table found operands '" + leftOperand + "' and '" +
+                    rightOperand + "' for " + operationName + " operation. Mongo Event table only supports " +
+                    operationName + " operation between two expressions. Please check your query and try again.");
+        }
+        this.operands.push(new MongoExpressionNode.LogicalNode(logicalOperator, leftOperand, rightOperand));
     }
 
     /**
-     * Method for generating a temporary placeholder for constants.
+     * Method for producing the filter template of a condition node.
      *
-     * @return a placeholder string of known format.
+     * @param condition the condition node.
+     * @return the filter template.
      */
-    private String generateConstantName() {
-        String name = "const" + this.constantCount;
-        this.constantCount++;
-        return name;
+    private BsonTemplate toFilter(MongoExpressionNode condition) {
+        if (condition instanceof MongoExpressionNode.CompareNode) {
+            return this.toCompareFilter((MongoExpressionNode.CompareNode) condition);
+        } else if (condition instanceof MongoExpressionNode.LogicalNode) {
+            MongoExpressionNode.LogicalNode logical = (MongoExpressionNode.LogicalNode) condition;
+            return BsonTemplate.document(logical.getOperator(), BsonTemplate.array(Arrays.asList(
+                    this.toFilter(logical.getLeft()), this.toFilter(logical.getRight()))));
+        } else if (condition instanceof MongoExpressionNode.NotNode) {
+            return this.toNotFilter(this.toFilter(((MongoExpressionNode.NotNode) condition).getOperand()));
+        } else if (condition instanceof MongoExpressionNode.IsNullNode) {
+            String fieldName = ((MongoExpressionNode.FieldNode)
+                    ((MongoExpressionNode.IsNullNode) condition).getOperand()).getName();
+            return BsonTemplate.document(fieldName, BsonTemplate.document(
+                    MongoTableConstants.MONGO_COMPARE_EQUAL, BsonTemplate.constant(BsonNull.VALUE)));
+        } else if (condition instanceof MongoExpressionNode.InNode) {
+            MongoExpressionNode.InNode in = (MongoExpressionNode.InNode) condition;
+            String fieldName = ((MongoExpressionNode.FieldNode) in.getOperand()).getName();
+            // The values of the same attribute of the referenced store are resolved at runtime.
+            return BsonTemplate.document(fieldName, BsonTemplate.document(
+                    MongoTableConstants.MONGO_IN, BsonTemplate.storeValues(in.getStoreId(), fieldName)));
+        }
+        // A boolean constant, where true matches every document.
+        boolean value = Boolean.TRUE.equals(((MongoExpressionNode.ConstantNode) condition).getValue());
+        return value ? BsonTemplate.document(new LinkedHashMap<>()) :
+                BsonTemplate.document(MongoTableConstants.MONGO_EXPR, BsonTemplate.constant(BsonBoolean.FALSE));
+    }
+
+    /**
+     * Method for producing the filter template of a comparison. A comparison between a table attribute and a value
+     * is a field predicate which can use the indexes of the collection, where the operator is mirrored when the
+     * attribute is on the right. Any other comparison is evaluated as an aggregation expression by '$expr'.
+     */
+    private BsonTemplate toCompareFilter(MongoExpressionNode.CompareNode compare) {
+        MongoExpressionNode left = compare.getLeft();
+        MongoExpressionNode right = compare.getRight();
+        if (left instanceof MongoExpressionNode.FieldNode && right instanceof MongoExpressionNode.ValueNode) {
+            return this.toFieldPredicate((MongoExpressionNode.FieldNode) left, compare.getOperator(),
+                    (MongoExpressionNode.ValueNode) right);
+        } else if (right instanceof MongoExpressionNode.FieldNode && left instanceof MongoExpressionNode.ValueNode) {
+            return this.toFieldPredicate((MongoExpressionNode.FieldNode) right,
+                    MongoTableUtils.mirrorCompareOperator(compare.getOperator()), (MongoExpressionNode.ValueNode) left);
+        }
+        return BsonTemplate.document(MongoTableConstants.MONGO_EXPR, compare.toAggregationExpression());
+    }
+
+    private BsonTemplate toFieldPredicate(MongoExpressionNode.FieldNode field, Compare.Operator operator,
+                                         MongoExpressionNode.ValueNode value) {
+        BsonTemplate valueFilter;
+        // Values compared with the field '_id' are converted to an ObjectId, unless they are not strings.
+        if (field.getName().equals(MongoTableConstants.MONGO_OBJECT_ID) &&
+                (value instanceof MongoExpressionNode.ParameterNode || value.getType() == Attribute.Type.STRING)) {
+            valueFilter = value.toValue(BsonTypeBinder.OBJECT_ID);
+        } else {
+            valueFilter = value.toValue();
+        }
+        return BsonTemplate.document(field.getName(),
+                BsonTemplate.document(MongoTableUtils.getCompareOperator(operator), valueFilter));
+    }
+
+    /**
+     * Method for negating a filter, where a predicate of a single field is negated with '$not' on the field and
+     * any other filter with '$nor'.
+     */
+    private BsonTemplate toNotFilter(BsonTemplate filter) {
+        Map<String, BsonTemplate> entries = ((BsonTemplate.DocumentTemplate) filter).getEntries();
+        if (entries.size() == 1) {
+            Map.Entry<String, BsonTemplate> entry = entries.entrySet().iterator().next();
+            if (!entry.getKey().startsWith("$") && entry.getValue() instanceof BsonTemplate.DocumentTemplate) {
+                return BsonTemplate.document(entry.getKey(),
+                        BsonTemplate.document(MongoTableConstants.MONGO_NOT, entry.getValue()));
+            }
+        }
+        return BsonTemplate.document(MongoTableConstants.MONGO_NOR,
+                BsonTemplate.array(Collections.singletonList(filter)));
     }
 }
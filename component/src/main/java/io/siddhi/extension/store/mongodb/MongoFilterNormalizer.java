@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.siddhi.extension.store.mongodb;
+
+import io.siddhi.extension.store.mongodb.util.MongoTableConstants;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class which rewrites a compiled filter template into a simpler equivalent filter, once at compile time. The
+ * visitor emits one binary '$and' or '$or' per Siddhi operator, which is flattened into n-ary operators, the
+ * comparisons of the same field in a conjunction are merged into one predicate of the field, equality comparisons
+ * of the same field in a disjunction are merged into an '$in', and branches which are always true are dropped.
+ */
+public final class MongoFilterNormalizer {
+
+    // Operators of a field predicate which can be merged with the other operators of the same field.
+    private static final Set<String> MERGEABLE_OPERATORS = new HashSet<>(Arrays.asList(
+            MongoTableConstants.MONGO_COMPARE_EQUAL, MongoTableConstants.MONGO_COMPARE_NOT_EQUAL,
+            MongoTableConstants.MONGO_COMPARE_GREATER_THAN, MongoTableConstants.MONGO_COMPARE_GREATER_THAN_EQUAL,
+            MongoTableConstants.MONGO_COMPARE_LESS_THAN, MongoTableConstants.MONGO_COMPARE_LESS_THAN_EQUAL,
+            MongoTableConstants.MONGO_IN));
+
+    private MongoFilterNormalizer() {
+    }
+
+    /**
+     * Method for normalizing a compiled filter template.
+     *
+     * @param filter the filter template built by the condition visitor.
+     * @return the equivalent normalized filter template, where an empty document matches every document.
+     */
+    public static BsonTemplate normalize(BsonTemplate filter) {
+        if (!(filter instanceof BsonTemplate.DocumentTemplate)) {
+            return filter;
+        }
+        Map<String, BsonTemplate> entries = ((BsonTemplate.DocumentTemplate) filter).getEntries();
+        if (entries.size() == 1) {
+            Map.Entry<String, BsonTemplate> entry = entries.entrySet().iterator().next();
+            if (entry.getValue() instanceof BsonTemplate.ArrayTemplate) {
+                List<BsonTemplate> operands = ((BsonTemplate.ArrayTemplate) entry.getValue()).getValues();
+                if (entry.getKey().equals(MongoTableConstants.MONGO_AND)) {
+                    return normalizeAnd(operands);
+                } else if (entry.getKey().equals(MongoTableConstants.MONGO_OR)) {
+                    return normalizeOr(operands);
+                }
+            }
+        }
+        return filter;
+    }
+
+    private static BsonTemplate normalizeAnd(List<BsonTemplate> operands) {
+        List<BsonTemplate> flattened = new ArrayList<>();
+        for (BsonTemplate operand : operands) {
+            BsonTemplate normalized = normalize(operand);
+            List<BsonTemplate> andOperands = getOperands(normalized, MongoTableConstants.MONGO_AND);
+            if (andOperands != null) {
+                flattened.addAll(andOperands);
+            } else if (normalized instanceof BsonTemplate.DocumentTemplate) {
+                // An implicit conjunction of fields is split, so that each field can be merged, and an empty
+                // document, which is always true, is dropped.
+                for (Map.Entry<String, BsonTemplate> entry :
+                        ((BsonTemplate.DocumentTemplate) normalized).getEntries().entrySet()) {
+                    flattened.add(BsonTemplate.document(entry.getKey(), entry.getValue()));
+                }
+            } else {
+                flattened.add(normalized);
+            }
+        }
+        Map<String, Map<String, BsonTemplate>> fieldPredicates = new LinkedHashMap<>();
+        List<BsonTemplate> others = new ArrayList<>();
+        for (BsonTemplate operand : flattened) {
+            Map.Entry<String, Map<String, BsonTemplate>> fieldPredicate = getFieldPredicate(operand);
+            if (fieldPredicate == null || !isMergeable(fieldPredicate.getValue())) {
+                others.add(operand);
+                continue;
+            }
+            Map<String, BsonTemplate> merged = fieldPredicates.get(fieldPredicate.getKey());
+            if (merged == null) {
+                fieldPredicates.put(fieldPredicate.getKey(), new LinkedHashMap<>(fieldPredicate.getValue()));
+            } else if (fieldPredicate.getValue().keySet().stream().noneMatch(merged::containsKey)) {
+                merged.putAll(fieldPredicate.getValue());
+            } else {
+                // The same operator twice on a field cannot be merged without the runtime values.
+                others.add(operand);
+            }
+        }
+        Map<String, BsonTemplate> fields = new LinkedHashMap<>();
+        fieldPredicates.forEach((field, predicate) -> fields.put(field, BsonTemplate.document(predicate)));
+        if (others.isEmpty()) {
+            return BsonTemplate.document(fields);
+        }
+        List<BsonTemplate> conjunction = new ArrayList<>();
+        fields.forEach((field, predicate) -> conjunction.add(BsonTemplate.document(field, predicate)));
+        conjunction.addAll(others);
+        return conjunction.size() == 1 ? conjunction.get(0) :
+                BsonTemplate.document(MongoTableConstants.MONGO_AND, BsonTemplate.array(conjunction));
+    }
+
+    private static BsonTemplate normalizeOr(List<BsonTemplate> operands) {
+        List<BsonTemplate> flattened = new ArrayList<>();
+        for (BsonTemplate operand : operands) {
+            BsonTemplate normalized = normalize(operand);
+            if (isAlwaysTrue(normalized)) {
+                return normalized;
+            }
+            List<BsonTemplate> orOperands = getOperands(normalized, MongoTableConstants.MONGO_OR);
+            if (orOperands != null) {
+                flattened.addAll(orOperands);
+            } else {
+                flattened.add(normalized);
+            }
+        }
+        Map<String, List<BsonTemplate>> equalityValues = new LinkedHashMap<>();
+        for (BsonTemplate operand : flattened) {
+            Map.Entry<String, BsonTemplate> equality = getEquality(operand);
+            if (equality != null) {
+                equalityValues.computeIfAbsent(equality.getKey(), field -> new ArrayList<>())
+                        .add(equality.getValue());
+            }
+        }
+        List<BsonTemplate> disjunction = new ArrayList<>();
+        for (BsonTemplate operand : flattened) {
+            Map.Entry<String, BsonTemplate> equality = getEquality(operand);
+            if (equality == null) {
+                disjunction.add(operand);
+                continue;
+            }
+            List<BsonTemplate> values = equalityValues.remove(equality.getKey());
+            if (values == null) {
+                // The equality was already merged into the '$in' of its field.
+                continue;
+            }
+            disjunction.add(values.size() == 1 ? operand : BsonTemplate.document(equality.getKey(),
+                    BsonTemplate.document(MongoTableConstants.MONGO_IN, BsonTemplate.array(values))));
+        }
+        return disjunction.size() == 1 ? disjunction.get(0) :
+                BsonTemplate.document(MongoTableConstants.MONGO_OR, BsonTemplate.array(disjunction));
+    }
+
+    private static boolean isAlwaysTrue(BsonTemplate filter) {
+        return filter instanceof BsonTemplate.DocumentTemplate &&
+                ((BsonTemplate.DocumentTemplate) filter).getEntries().isEmpty();
+    }
+
+    /**
+     * Method which returns the operands of a logical operator filter such as '{$and:[...]}'.
+     */
+    private static List<BsonTemplate> getOperands(BsonTemplate filter, String logicalOperator) {
+        if (!(filter instanceof BsonTemplate.DocumentTemplate)) {
+            return null;
+        }
+        Map<String, BsonTemplate> entries = ((BsonTemplate.DocumentTemplate) filter).getEntries();
+        BsonTemplate operands = entries.get(logicalOperator);
+        if (entries.size() != 1 || !(operands instanceof BsonTemplate.ArrayTemplate)) {
+            return null;
+        }
+        return ((BsonTemplate.ArrayTemplate) operands).getValues();
+    }
+
+    /**
+     * Method which returns the field and the operators of a filter on a single field such as '{a:{$gt:x}}'.
+     */
+    private static Map.Entry<String, Map<String, BsonTemplate>> getFieldPredicate(BsonTemplate filter) {
+        if (!(filter instanceof BsonTemplate.DocumentTemplate)) {
+            return null;
+        }
+        Map<String, BsonTemplate> entries = ((BsonTemplate.DocumentTemplate) filter).getEntries();
+        if (entries.size() != 1) {
+            return null;
+        }
+        Map.Entry<String, BsonTemplate> entry = entries.entrySet().iterator().next();
+        if (entry.getKey().startsWith("$") || !(entry.getValue() instanceof BsonTemplate.DocumentTemplate)) {
+            return null;
+        }
+        Map<String, BsonTemplate> predicate = ((BsonTemplate.DocumentTemplate) entry.getValue()).getEntries();
+        return predicate.isEmpty() ? null : new AbstractMap.SimpleImmutableEntry<>(entry.getKey(),
+                predicate);
+    }
+
+    private static boolean isMergeable(Map<String, BsonTemplate> predicate) {
+        return MERGEABLE_OPERATORS.containsAll(predicate.keySet());
+    }
+
+    /**
+     * Method which returns the field and the compared value of an equality filter such as '{a:{$eq:x}}'.
+     */
+    private static Map.Entry<String, BsonTemplate> getEquality(BsonTemplate filter) {
+        Map.Entry<String, Map<String, BsonTemplate>> fieldPredicate = getFieldPredicate(filter);
+        if (fieldPredicate == null || fieldPredicate.getValue().size() != 1) {
+            return null;
+        }
+        BsonTemplate value = fieldPredicate.getValue().get(MongoTableConstants.MONGO_COMPARE_EQUAL);
+        return value == null ? null : new AbstractMap.SimpleImmutableEntry<>(fieldPredicate.getKey(),
+                value);
+    }
+}
@@ -17,68 +17,105 @@
  */
 package io.siddhi.extension.store.mongodb;
 
-import com.mongodb.client.AggregateIterable;
-import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoIterable;
 import io.siddhi.core.table.record.RecordIterator;
-import org.bson.Document;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 /**
  * A class representing a RecordIterator which is responsible for processing MongoDB Event Table find() operations in a
- * streaming fashion.
+ * streaming fashion. The documents are decoded straight into records by the {@link MongoRecordDecoder} of the
+ * collection or the selection, hence the iterator hands them over as they are. The iterator owns the server cursor it
+ * reads from, and closes it as soon as it is exhausted or closed, so that an iteration which stops early does not
+ * leave the cursor open on the server.
  */
 public class MongoIterator implements RecordIterator<Object[]> {
-    private MongoCursor documents;
-    private List<String> attributeNames;
+    private Iterator<Object[]> documents;
+    private MongoCursorTracker.CursorReference cursorReference;
+    private MongoCursorBatchSizer.Observation observation;
 
-    public MongoIterator(FindIterable documents, List<String> attributeNames) {
-        this.documents = documents.iterator();
-        this.attributeNames = attributeNames;
+    /**
+     * Creates an iterator over a cursor whose batch size is picked by a batch sizer, to which the iterator
+     * reports what it observed once the cursor is consumed.
+     *
+     * @param documents     the documents of the cursor.
+     * @param batchSizer    the batch sizer of the cursor, or null for the default batch size of the driver.
+     * @param cursorTracker the tracker of the cursors of the table.
+     */
+    public MongoIterator(MongoIterable<Object[]> documents, MongoCursorBatchSizer batchSizer,
+                         MongoCursorTracker cursorTracker) {
+        Integer batchSize = batchSizer == null ? null : batchSizer.getBatchSize();
+        if (batchSize != null) {
+            documents.batchSize(batchSize);
+        }
+        MongoCursor<Object[]> cursor = documents.iterator();
+        this.documents = cursor;
+        this.cursorReference = cursorTracker.track(this, cursor);
+        this.observation = batchSizer == null ? null : batchSizer.observe();
     }
 
-    public MongoIterator(AggregateIterable documents, List<String> attributeNames) {
+    /**
+     * Creates an iterator over records which are already fetched, such as the results of a batched lookup.
+     *
+     * @param documents the fetched records.
+     */
+    public MongoIterator(List<Object[]> documents) {
         this.documents = documents.iterator();
-        this.attributeNames = attributeNames;
+    }
+
+    /**
+     * Creates an iterator without any records, for lookups which are known to match no document.
+     */
+    public MongoIterator() {
+        this(Collections.emptyList());
     }
 
     @Override
     public boolean hasNext() {
-        return this.documents.hasNext();
+        boolean hasNext = this.documents.hasNext();
+        if (!hasNext) {
+            this.close();
+        }
+        return hasNext;
     }
 
     @Override
     public Object[] next() {
-        return this.extractRecord((Document) this.documents.next());
+        Object[] record = this.documents.next();
+        if (this.observation != null) {
+            this.observation.onNext(record);
+        }
+        return record;
     }
 
     /**
-     * Method which is used for extracting record values (in the form of an Object array) from a
-     * MongoDB {@link Document}, according to the table's field type order.
+     * Method which hands the observation of the cursor over to another iterator, such as one which reads this
+     * iterator ahead of the consumer, so that the batch sizer observes the speed of the actual consumer rather than
+     * the speed of the reads ahead.
      *
-     * @param document the {@link Document} from which the values should be retrieved.
-     * @return an array of extracted values, all cast to {@link Object} type for portability.
+     * @return the observation of the cursor, or null if its batch size is not adapted.
      */
-    private Object[] extractRecord(Document document) {
-        List<Object> result = new ArrayList<>();
-        for (String attributeName : this.attributeNames) {
-            Object attributeValue = document.get(attributeName);
-            if (attributeValue instanceof Document) {
-                HashMap<Object, Object> attributAsAMap = new HashMap<>();
-                ((Document) attributeValue).forEach(attributAsAMap::put);
-                result.add(attributAsAMap);
-            } else {
-                result.add(attributeValue);
-            }
-        }
-        return result.toArray();
+    public MongoCursorBatchSizer.Observation detachObservation() {
+        MongoCursorBatchSizer.Observation detached = this.observation;
+        this.observation = null;
+        return detached;
     }
 
     @Override
     public void close() {
-
+        if (this.cursorReference != null) {
+            this.cursorReference.close();
+            this.cursorReference = null;
+            // A closed cursor cannot be read any more, hence the iterator is left without records.
+            this.documents = Collections.emptyIterator();
+        }
+        if (this.observation != null) {
+            // Each cursor is reported once.
+            this.observation.report();
+            this.observation = null;
+        }
     }
 }
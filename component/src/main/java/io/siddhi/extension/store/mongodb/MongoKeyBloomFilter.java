@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.siddhi.extension.store.mongodb;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Client-side Bloom filter over the primary key values of a MongoDB Event Table. A lookup of a key which was never
+ * added is answered as a certain miss without querying the collection. Deleted keys are not removed from the filter,
+ * hence the filter is rebuilt from the collection from time to time. Until the first rebuild completes, and while the
+ * collection needs more memory than the filter is allowed to use, every key may exist, so that lookups are sent to
+ * the collection.
+ */
+public class MongoKeyBloomFilter {
+    private static final Logger log = LogManager.getLogger(MongoKeyBloomFilter.class);
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final String collectionName;
+    private final List<String> keyFields;
+    private final long expectedKeys;
+    private final double falsePositiveRate;
+    private final long maxMemoryBytes;
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private final AtomicLong skippedLookupCount = new AtomicLong();
+
+    private volatile Bits current;
+    private volatile Bits pending;
+    private volatile boolean valid;
+
+    public MongoKeyBloomFilter(String collectionName, List<String> keyFields, long expectedKeys,
+                               double falsePositiveRate, long maxMemoryBytes) {
+        this.collectionName = collectionName;
+        this.keyFields = keyFields;
+        this.expectedKeys = expectedKeys;
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxMemoryBytes = maxMemoryBytes;
+    }
+
+    /**
+     * Method for rebuilding the filter by streaming the primary key values of the collection. Keys added while the
+     * collection is scanned are added to both the current and the new filter. When the filter for the size of the
+     * collection needs more memory than allowed, the filter is dropped until a later rebuild fits.
+     *
+     * @param collection the collection of the table.
+     */
+    public synchronized void rebuild(MongoCollection<BsonDocument> collection) {
+        long keyCount = Math.max(this.expectedKeys, 2 * collection.estimatedDocumentCount());
+        long requiredBytes = Bits.getWordCount(keyCount, this.falsePositiveRate) * Long.BYTES;
+        if (requiredBytes > this.maxMemoryBytes) {
+            this.valid = false;
+            this.current = null;
+            log.warn("The primary key Bloom filter of the MongoDB Event Table '{}' is disabled until the next " +
+                    "rebuild, as {} keys need {} bytes, which is more than the {} bytes it may use.",
+                    this.collectionName, keyCount, requiredBytes, this.maxMemoryBytes);
+            return;
+        }
+        Bits rebuiltBits = new Bits(keyCount, this.falsePositiveRate);
+        long invalidationsBeforeScan = this.invalidationCount.get();
+        this.pending = rebuiltBits;
+        try {
+            BsonDocument projection = new BsonDocument("_id", new BsonInt32(0));
+            this.keyFields.forEach(keyField -> projection.append(keyField, new BsonInt32(1)));
+            BsonValue[] key = new BsonValue[this.keyFields.size()];
+            try (MongoCursor<BsonDocument> keys = collection.find().projection(projection).iterator()) {
+                while (keys.hasNext()) {
+                    BsonDocument keyDocument = keys.next();
+                    for (int i = 0; i < key.length; i++) {
+                        key[i] = keyDocument.get(this.keyFields.get(i));
+                    }
+                    rebuiltBits.put(key);
+                }
+            }
+            this.current = rebuiltBits;
+            // A key change which could not be tracked during the scan keeps the filter disabled until the next
+            // rebuild, as the scan may have missed it.
+            this.valid = this.invalidationCount.get() == invalidationsBeforeScan;
+        } finally {
+            this.pending = null;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Rebuilt the primary key Bloom filter of the MongoDB Event Table '{}' with {} bits and {} " +
+                    "hash functions.", this.collectionName, rebuiltBits.bitCount, rebuiltBits.hashCount);
+        }
+    }
+
+    /**
+     * Method for adding the primary key of a document written to the collection.
+     *
+     * @param key the primary key values, in the order of the key fields.
+     */
+    public void put(BsonValue[] key) {
+        Bits currentBits = this.current;
+        if (currentBits != null) {
+            currentBits.put(key);
+        }
+        Bits pendingBits = this.pending;
+        if (pendingBits != null) {
+            pendingBits.put(key);
+        }
+    }
+
+    /**
+     * Method for disabling the filter until it is rebuilt, when keys are changed in a way which cannot be tracked.
+     */
+    public void invalidate() {
+        this.invalidationCount.incrementAndGet();
+        this.valid = false;
+    }
+
+    /**
+     * Method for checking whether a primary key may exist in the collection.
+     *
+     * @param key the primary key values, in the order of the key fields.
+     * @return false only if the key certainly does not exist in the collection.
+     */
+    public boolean mightContain(BsonValue[] key) {
+        Bits currentBits = this.current;
+        if (!this.valid || currentBits == null || currentBits.mightContain(key)) {
+            return true;
+        }
+        this.skippedLookupCount.incrementAndGet();
+        return false;
+    }
+
+    public long getSkippedLookupCount() {
+        return this.skippedLookupCount.get();
+    }
+
+    /**
+     * Method which returns whether the filter answers lookups, rather than treating every key as existing.
+     *
+     * @return true once a rebuild completed and the filter is not disabled.
+     */
+    public boolean isReady() {
+        return this.valid && this.current != null;
+    }
+
+    /**
+     * Method which hashes a key so that values which MongoDB considers equal have the same hash.
+     *
+     * @param key the key values.
+     * @return the 64 bit hash, or null if a value is of a type which is not hashed.
+     */
+    private static Long hash(BsonValue[] key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (BsonValue value : key) {
+            Long valueHash = hash(value);
+            if (valueHash == null) {
+                return null;
+            }
+            hash = mix(hash * 31 + valueHash);
+        }
+        return hash;
+    }
+
+    private static Long hash(BsonValue value) {
+        if (value == null) {
+            return null;
+        }
+        switch (value.getBsonType()) {
+            case STRING:
+                return hash(value.asString().getValue());
+            case INT32:
+            case INT64:
+                // Numbers of different BSON types match each other, hence whole numbers are hashed as longs.
+                return value.asNumber().longValue();
+            case DOUBLE:
+                double doubleValue = value.asDouble().getValue();
+                long longValue = (long) doubleValue;
+                return longValue == doubleValue ? longValue : Double.doubleToLongBits(doubleValue);
+            case BOOLEAN:
+                return value.asBoolean().getValue() ? 1L : 0L;
+            case OBJECT_ID:
+                return hash(value.asObjectId().getValue().toHexString()) ^ BsonType.OBJECT_ID.getValue();
+            case DATE_TIME:
+                return value.asDateTime().getValue() ^ BsonType.DATE_TIME.getValue();
+            default:
+                return null;
+        }
+    }
+
+    private static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Bit array of the filter, sized for the number of keys and the false positive rate.
+     */
+    private static final class Bits {
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashCount;
+
+        private Bits(long keyCount, double falsePositiveRate) {
+            this.words = new AtomicLongArray((int) getWordCount(keyCount, falsePositiveRate));
+            this.bitCount = this.words.length() * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) this.bitCount / keyCount * Math.log(2)));
+        }
+
+        private static long getWordCount(long keyCount, double falsePositiveRate) {
+            long bits = (long) Math.ceil(-keyCount * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            return Math.min(Integer.MAX_VALUE, (bits + 63) / 64);
+        }
+
+        private void put(BsonValue[] key) {
+            Long hash = MongoKeyBloomFilter.hash(key);
+            if (hash == null) {
+                return;
+            }
+            long secondHash = mix(hash ^ FNV_PRIME) | 1;
+            for (int i = 0; i < this.hashCount; i++) {
+                long bit = Long.remainderUnsigned(hash + i * secondHash, this.bitCount);
+                long mask = 1L << bit;
+                this.words.getAndAccumulate((int) (bit >>> 6), mask, (word, bitMask) -> word | bitMask);
+            }
+        }
+
+        private boolean mightContain(BsonValue[] key) {
+            Long hash = MongoKeyBloomFilter.hash(key);
+            if (hash == null) {
+                return true;
+            }
+            long secondHash = mix(hash ^ FNV_PRIME) | 1;
+            for (int i = 0; i < this.hashCount; i++) {
+                long bit = Long.remainderUnsigned(hash + i * secondHash, this.bitCount);
+                if ((this.words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
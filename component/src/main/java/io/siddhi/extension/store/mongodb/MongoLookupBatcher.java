@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.siddhi.extension.store.mongodb;
+
+import io.siddhi.core.exception.ConnectionUnavailableException;
+import io.siddhi.extension.store.mongodb.exception.MongoTableException;
+import io.siddhi.extension.store.mongodb.util.MongoTableConstants;
+import io.siddhi.extension.store.mongodb.util.MongoTableUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonNull;
+import org.bson.BsonValue;
+import org.bson.types.Decimal128;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class which batches the lookups of the MongoDB Event Table which compare a single field for equality. Lookups
+ * which arrive while a query of the same field is in flight are gathered, and sent together as one '$in' query
+ * whose results are spread back to each lookup on the client. A lookup which arrives when no query is in flight is
+ * sent right away, so that a single caller is never delayed. Lookups are therefore only batched when they are run
+ * concurrently, such as by the threads of '@async' streams, and not when a single thread runs them one by one.
+ * The caller which sends the queries returns once its own lookup is answered, and hands the sending of the pending
+ * lookups over to the first of their callers, so that no caller keeps sending the lookups of the others.
+ */
+public class MongoLookupBatcher {
+    private static final Logger log = LogManager.getLogger(MongoLookupBatcher.class);
+
+    private final String collectionName;
+    private final List<String> attributeNames;
+    private final int maxBatchSize;
+    private final Map<String, FieldLookups> fieldLookups = new ConcurrentHashMap<>();
+    private final LongAdder batchedLookupCount = new LongAdder();
+
+    public MongoLookupBatcher(String collectionName, List<String> attributeNames, int maxBatchSize) {
+        this.collectionName = collectionName;
+        this.attributeNames = attributeNames;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Method which returns the number of lookups which were sent together with other lookups, which is zero when
+     * the lookups never overlap, such as when a single thread runs them one after the other.
+     */
+    public long getBatchedLookupCount() {
+        return this.batchedLookupCount.sum();
+    }
+
+    /**
+     * Method which returns the number of lookups of a field which wait to be sent.
+     */
+    public int getPendingLookupCount(String fieldName) {
+        FieldLookups lookups = this.fieldLookups.get(fieldName);
+        if (lookups == null) {
+            return 0;
+        }
+        synchronized (lookups) {
+            return lookups.pending.size();
+        }
+    }
+
+    /**
+     * Method for looking up the records whose field is equal to the given value.
+     *
+     * @param fieldName the compared field, which is an attribute of the table.
+     * @param value     the value compared with the field.
+     * @param loader    the loader which queries the collection.
+     * @return the matching records.
+     * @throws ConnectionUnavailableException if the connection to the server is unavailable.
+     */
+    public List<Object[]> lookup(String fieldName, BsonValue value, DocumentLoader loader)
+            throws ConnectionUnavailableException {
+        FieldLookups lookups = this.fieldLookups.computeIfAbsent(fieldName,
+                name -> new FieldLookups(name, this.attributeNames.indexOf(name)));
+        Lookup lookup = new Lookup(value);
+        boolean leader;
+        synchronized (lookups) {
+            lookups.pending.add(lookup);
+            leader = !lookups.inFlight;
+            lookups.inFlight = true;
+        }
+        try {
+            if (!leader) {
+                CompletableFuture.anyOf(lookup.result, lookup.leadership).get();
+            }
+            if (!lookup.result.isDone()) {
+                this.drain(lookups, lookup, loader);
+            }
+            return lookup.result.get();
+        } catch (InterruptedException e) {
+            this.abandon(lookups, lookup);
+            Thread.currentThread().interrupt();
+            throw new MongoTableException("Interrupted while looking up the collection '" + collectionName + "'.",
+                    e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ConnectionUnavailableException) {
+                throw new ConnectionUnavailableException(e.getCause().getMessage(), e.getCause());
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new MongoTableException("Error in looking up the collection '" + collectionName + "' : " +
+                    e.getCause().getLocalizedMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Method run by the caller which sends the queries, which sends the gathered lookups in the order they arrived
+     * until its own lookup is answered, and then hands the sending over to the caller of the next pending lookup.
+     * If the caller is aborted by an error, the lookups which are not yet answered are failed, so that no caller
+     * waits on them forever, and the next lookup sends its query again.
+     */
+    private void drain(FieldLookups lookups, Lookup ownLookup, DocumentLoader loader) {
+        List<Lookup> batch = Collections.emptyList();
+        boolean drained = false;
+        try {
+            while (!ownLookup.result.isDone()) {
+                batch = new ArrayList<>();
+                synchronized (lookups) {
+                    while (!lookups.pending.isEmpty() && batch.size() < maxBatchSize) {
+                        batch.add(lookups.pending.poll());
+                    }
+                }
+                try {
+                    this.load(lookups, batch, loader);
+                } catch (ConnectionUnavailableException | RuntimeException e) {
+                    batch.forEach(lookup -> lookup.result.completeExceptionally(e));
+                }
+            }
+            drained = true;
+            synchronized (lookups) {
+                this.handOver(lookups);
+            }
+        } finally {
+            if (!drained) {
+                List<Lookup> unanswered = new ArrayList<>(batch);
+                synchronized (lookups) {
+                    unanswered.addAll(lookups.pending);
+                    lookups.pending.clear();
+                    lookups.inFlight = false;
+                }
+                MongoTableException aborted = new MongoTableException("The lookup of the field '" +
+                        lookups.fieldName + "' of the collection '" + collectionName + "' was aborted.");
+                unanswered.forEach(lookup -> lookup.result.completeExceptionally(aborted));
+            }
+        }
+    }
+
+    /**
+     * Method for handing the sending of the pending lookups over to the caller of the oldest one, or for marking
+     * that no query is in flight when there are none. It is called while holding the lock of the lookups.
+     */
+    private void handOver(FieldLookups lookups) {
+        Lookup next = lookups.pending.peek();
+        if (next == null) {
+            lookups.inFlight = false;
+        } else {
+            next.leadership.complete(null);
+        }
+    }
+
+    /**
+     * Method for withdrawing the lookup of an interrupted caller, which hands the sending of the pending lookups
+     * over again when it was handed to this caller.
+     */
+    private void abandon(FieldLookups lookups, Lookup lookup) {
+        synchronized (lookups) {
+            if (lookups.pending.remove(lookup) && lookup.leadership.isDone()) {
+                this.handOver(lookups);
+            }
+        }
+    }
+
+    private void load(FieldLookups lookups, List<Lookup> batch, DocumentLoader loader)
+            throws ConnectionUnavailableException {
+        String fieldName = lookups.fieldName;
+        Map<Object, List<Object[]>> documentsByValue = new HashMap<>();
+        BsonArray values = new BsonArray();
+        for (Lookup lookup : batch) {
+            if (documentsByValue.putIfAbsent(lookup.key, new ArrayList<>()) == null) {
+                values.add(lookup.value);
+            }
+        }
+        BsonDocument filter = new BsonDocument(fieldName, values.size() == 1 ?
+                new BsonDocument(MongoTableConstants.MONGO_COMPARE_EQUAL, values.get(0)) :
+                new BsonDocument(MongoTableConstants.MONGO_IN, values));
+        for (Object[] document : loader.find(filter)) {
+            BsonValue fieldValue = MongoTableUtils.toBsonValue(document[lookups.fieldPosition]);
+            // A document matches a value when its field is equal to it or, for arrays, contains it.
+            this.addMatch(documentsByValue, fieldValue, document);
+            if (fieldValue.isArray()) {
+                for (BsonValue element : fieldValue.asArray()) {
+                    this.addMatch(documentsByValue, element, document);
+                }
+            }
+        }
+        if (batch.size() > 1) {
+            this.batchedLookupCount.add(batch.size());
+        }
+        if (log.isDebugEnabled() && values.size() > 1) {
+            log.debug("Sent {} lookups on the field '{}' of the MongoDB Event Table '{}' as one query of {} values.",
+                    batch.size(), fieldName, collectionName, values.size());
+        }
+        for (Lookup lookup : batch) {
+            lookup.result.complete(documentsByValue.get(lookup.key));
+        }
+    }
+
+    private void addMatch(Map<Object, List<Object[]>> documentsByValue, BsonValue value, Object[] document) {
+        List<Object[]> matches = documentsByValue.get(toKey(value));
+        if (matches != null && (matches.isEmpty() || matches.get(matches.size() - 1) != document)) {
+            matches.add(document);
+        }
+    }
+
+    /**
+     * Method which maps a value to a key which is equal for the values MongoDB considers equal, such that numbers
+     * of different BSON types, including Decimal128, match each other by their exact numeric value.
+     */
+    private static Object toKey(BsonValue value) {
+        if (value == null) {
+            return BsonNull.VALUE;
+        } else if (value.isInt32() || value.isInt64()) {
+            return BigDecimal.valueOf(value.asNumber().longValue());
+        } else if (value.isDouble()) {
+            double doubleValue = value.asDouble().getValue();
+            return Double.isNaN(doubleValue) || Double.isInfinite(doubleValue) ? (Object) doubleValue :
+                    normalize(new BigDecimal(doubleValue));
+        } else if (value.isDecimal128()) {
+            Decimal128 decimalValue = value.asDecimal128().getValue();
+            if (decimalValue.isNaN()) {
+                return Double.NaN;
+            } else if (decimalValue.isInfinite()) {
+                return decimalValue.isNegative() ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            }
+            // The string form is used, as a negative zero cannot be converted to a BigDecimal directly.
+            return normalize(new BigDecimal(decimalValue.toString()));
+        }
+        return value;
+    }
+
+    private static BigDecimal normalize(BigDecimal value) {
+        return value.signum() == 0 ? BigDecimal.ZERO : value.stripTrailingZeros();
+    }
+
+    /**
+     * The pending lookups of a field.
+     */
+    private static final class FieldLookups {
+        private final String fieldName;
+        private final int fieldPosition;
+        private final Queue<Lookup> pending = new ArrayDeque<>();
+        private boolean inFlight;
+
+        private FieldLookups(String fieldName, int fieldPosition) {
+            this.fieldName = fieldName;
+            this.fieldPosition = fieldPosition;
+        }
+    }
+
+    /**
+     * A lookup of a single value, completed with the matching records.
+     */
+    private static final class Lookup {
+        private final BsonValue value;
+        private final Object key;
+        private final CompletableFuture<List<Object[]>> result = new CompletableFuture<>();
+        // Completed when the sending of the pending lookups is handed over to the caller of this lookup.
+        private final CompletableFuture<Void> leadership = new CompletableFuture<>();
+
+        private Lookup(BsonValue value) {
+            this.value = value;
+            this.key = toKey(value);
+        }
+    }
+
+    /**
+     * Loader which queries the collection with the filter of a batch.
+     */
+    @FunctionalInterface
+    public interface DocumentLoader {
+        List<Object[]> find(BsonDocument filter) throws ConnectionUnavailableException;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.siddhi.extension.store.mongodb;
+
+import io.siddhi.core.table.record.RecordIterator;
+import io.siddhi.extension.store.mongodb.exception.MongoTableException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A RecordIterator which reads the records of other iterators ahead of the consumer, each on a background thread.
+ * The next batches of the cursors are fetched while the current records are consumed, up to a bounded number of
+ * records, so that a large scan is limited by the throughput of the server rather than the latency of each round
+ * trip. When several iterators are read, such as the partitions of a parallel scan, their records are merged in the
+ * order they arrive.
+ */
+public class MongoPrefetchingIterator implements RecordIterator<Object[]> {
+    // Marker put after the last record of a source, or after an error of the source.
+    private static final Object[] END_OF_RECORDS = new Object[0];
+
+    private final List<MongoIterator> sources;
+    private final BlockingQueue<Object[]> buffer;
+    // Claimed by whichever of the prefetcher and close() runs first, so that each source is closed exactly once.
+    private final List<AtomicBoolean> sourcesClaimed = new ArrayList<>();
+    private final List<Future<?>> prefetchers = new ArrayList<>();
+    private volatile RuntimeException error;
+    private MongoCursorBatchSizer.Observation observation;
+    private int remainingSources;
+    private Object[] nextRecord;
+    private boolean exhausted;
+
+    /**
+     * Creates a prefetching iterator, which starts reading the source right away.
+     *
+     * @param source     the iterator which is read ahead, and closed once it is exhausted or this iterator is closed.
+     * @param bufferSize the maximum number of records read ahead of the consumer.
+     * @param executor   the executor which runs the background reads.
+     */
+    public MongoPrefetchingIterator(MongoIterator source, int bufferSize, ExecutorService executor) {
+        this(Collections.singletonList(source), bufferSize, executor);
+    }
+
+    /**
+     * Creates a prefetching iterator which merges the records of several sources, which are read in parallel.
+     *
+     * @param sources    the iterators which are read ahead, and closed once they are exhausted or this iterator is
+     *                   closed.
+     * @param bufferSize the maximum number of records read ahead of the consumer.
+     * @param executor   the executor which runs the background reads.
+     */
+    public MongoPrefetchingIterator(List<MongoIterator> sources, int bufferSize, ExecutorService executor) {
+        this.sources = sources;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.remainingSources = sources.size();
+        // The batch size of a single cursor is adapted to the consumer of this iterator rather than to the reads
+        // ahead. The records of several cursors are merged, hence the consumer of a cursor cannot be observed.
+        if (sources.size() == 1) {
+            this.observation = sources.get(0).detachObservation();
+        } else {
+            sources.forEach(MongoIterator::detachObservation);
+        }
+        for (int i = 0; i < sources.size(); i++) {
+            this.sourcesClaimed.add(new AtomicBoolean());
+        }
+        try {
+            for (int i = 0; i < sources.size(); i++) {
+                int sourceIndex = i;
+                this.prefetchers.add(executor.submit(() -> this.prefetch(sourceIndex)));
+            }
+        } catch (RejectedExecutionException e) {
+            this.close();
+            throw e;
+        }
+    }
+
+    private void prefetch(int sourceIndex) {
+        if (!this.sourcesClaimed.get(sourceIndex).compareAndSet(false, true)) {
+            return;
+        }
+        MongoIterator source = this.sources.get(sourceIndex);
+        try {
+            try {
+                while (source.hasNext()) {
+                    this.buffer.put(source.next());
+                }
+            } catch (RuntimeException e) {
+                this.error = e;
+            } finally {
+                source.close();
+            }
+            this.buffer.put(END_OF_RECORDS);
+        } catch (InterruptedException e) {
+            // Interrupted by close(), or by the executor being shut down when the table is disconnected. The records
+            // which are not read yet are dropped, and a consumer which still waits is handed the end of the source
+            // along with the error, so that it does not wait for the records which will not be read.
+            if (this.error == null) {
+                this.error = new MongoTableException("Reading ahead the records of the MongoDB Event Table was " +
+                        "interrupted.", e);
+            }
+            while (!this.buffer.offer(END_OF_RECORDS)) {
+                this.buffer.clear();
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (this.nextRecord == null && !this.exhausted) {
+            Object[] record;
+            try {
+                record = this.buffer.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MongoTableException("Interrupted while waiting for the records read ahead from the " +
+                        "MongoDB Event Table.", e);
+            }
+            if (record != END_OF_RECORDS) {
+                this.nextRecord = record;
+            } else if (this.error != null) {
+                this.close();
+                throw this.error;
+            } else if (--this.remainingSources == 0) {
+                this.exhausted = true;
+                this.reportObservation();
+            }
+        }
+        return this.nextRecord != null;
+    }
+
+    @Override
+    public Object[] next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object[] record = this.nextRecord;
+        this.nextRecord = null;
+        if (this.observation != null) {
+            this.observation.onNext(record);
+        }
+        return record;
+    }
+
+    @Override
+    public void close() {
+        this.exhausted = true;
+        this.nextRecord = null;
+        for (int i = 0; i < this.sources.size(); i++) {
+            if (this.sourcesClaimed.get(i).compareAndSet(false, true)) {
+                // The background read of the source has not started, hence it never will.
+                this.sources.get(i).close();
+            } else if (i < this.prefetchers.size()) {
+                this.prefetchers.get(i).cancel(true);
+            }
+        }
+        this.buffer.clear();
+        this.reportObservation();
+    }
+
+    private void reportObservation() {
+        if (this.observation != null) {
+            this.observation.report();
+            this.observation = null;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.siddhi.extension.store.mongodb;
+
+import io.siddhi.extension.store.mongodb.util.MongoTableUtils;
+import io.siddhi.query.api.definition.Attribute;
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.Encoder;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.util.List;
+
+/**
+ * A {@link Codec} which writes Siddhi records straight to BSON by attribute position, and reads documents straight
+ * into records by the {@link MongoRecordDecoder} of the same attributes. The field names and the attribute types are
+ * resolved once when the table is initialized, so neither encoding nor decoding a record builds any intermediate
+ * map or {@link org.bson.Document}.
+ */
+public class MongoRecordCodec implements Codec<Object[]> {
+
+    private final String[] fieldNames;
+    private final Attribute.Type[] fieldTypes;
+    private final CodecRegistry codecRegistry;
+    private final MongoRecordDecoder decoder;
+    private final int fieldNamesSize;
+
+    public MongoRecordCodec(List<Attribute> attributes, CodecRegistry codecRegistry) {
+        this.fieldNames = attributes.stream().map(Attribute::getName).toArray(String[]::new);
+        this.fieldTypes = attributes.stream().map(Attribute::getType).toArray(Attribute.Type[]::new);
+        this.codecRegistry = codecRegistry;
+        this.decoder = new MongoRecordDecoder(this.fieldNames, codecRegistry);
+        // Document length and terminator, and for each field the type byte and the terminated field name.
+        int size = 5;
+        for (String fieldName : fieldNames) {
+            size += 2 + MongoTableUtils.utf8Length(fieldName);
+        }
+        this.fieldNamesSize = size;
+    }
+
+    /**
+     * Method which returns the size of a record when it is encoded by this codec, without encoding it. The size is
+     * exact for the primitive attribute types, and estimated for the values of object attributes.
+     *
+     * @param record the record.
+     * @return the number of bytes of the encoded record.
+     */
+    public int getEncodedSize(Object[] record) {
+        int size = fieldNamesSize;
+        for (int i = 0; i < fieldTypes.length; i++) {
+            Object value = record[i];
+            if (value == null) {
+                continue;
+            }
+            switch (fieldTypes[i]) {
+                case STRING:
+                    size += 5 + MongoTableUtils.utf8Length(value.toString());
+                    break;
+                case INT:
+                    size += 4;
+                    break;
+                case LONG:
+                case FLOAT:
+                case DOUBLE:
+                    size += 8;
+                    break;
+                case BOOL:
+                    size += 1;
+                    break;
+                default:
+                    size += MongoTableUtils.estimateBsonSize(value);
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Object[] record, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        for (int i = 0; i < fieldNames.length; i++) {
+            writer.writeName(fieldNames[i]);
+            this.writeValue(writer, fieldTypes[i], record[i], encoderContext);
+        }
+        writer.writeEndDocument();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeValue(BsonWriter writer, Attribute.Type type, Object value, EncoderContext encoderContext) {
+        if (value == null) {
+            writer.writeNull();
+            return;
+        }
+        switch (type) {
+            case STRING:
+                writer.writeString(value.toString());
+                break;
+            case INT:
+                writer.writeInt32(((Number) value).intValue());
+                break;
+            case LONG:
+                writer.writeInt64(((Number) value).longValue());
+                break;
+            case FLOAT:
+                writer.writeDouble(((Number) value).floatValue());
+                break;
+            case DOUBLE:
+                writer.writeDouble(((Number) value).doubleValue());
+                break;
+            case BOOL:
+                writer.writeBoolean((Boolean) value);
+                break;
+            default:
+                Encoder<Object> encoder = (Encoder<Object>) codecRegistry.get(value.getClass());
+                encoderContext.encodeWithChildContext(encoder, writer, value);
+        }
+    }
+
+    @Override
+    public Object[] decode(BsonReader reader, DecoderContext decoderContext) {
+        return decoder.decode(reader, decoderContext);
+    }
+
+    @Override
+    public Class<Object[]> getEncoderClass() {
+        return Object[].class;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.siddhi.extension.store.mongodb;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.codecs.BsonTypeClassMap;
+import org.bson.codecs.BsonTypeCodecMap;
+import org.bson.codecs.Decoder;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link Decoder} which reads documents straight into Siddhi records by field name. The position of each field is
+ * resolved once when the table is initialized or the selection is compiled, so decoding a document builds no
+ * intermediate {@link org.bson.Document}. It decodes the records of the table, and the results of selections whose
+ * output attributes are not stored as they are.
+ */
+public class MongoRecordDecoder implements Decoder<Object[]> {
+
+    private final int fieldCount;
+    private final Map<String, Integer> fieldPositions;
+    private final BsonTypeCodecMap bsonTypeCodecMap;
+
+    /**
+     * Creates a decoder of the records with the given fields.
+     *
+     * @param fieldNames    the names of the fields, in the order of the record.
+     * @param codecRegistry the registry of the codecs of the values which are not of a primitive type.
+     */
+    public MongoRecordDecoder(String[] fieldNames, CodecRegistry codecRegistry) {
+        this.fieldCount = fieldNames.length;
+        this.fieldPositions = new HashMap<>();
+        for (int i = 0; i < fieldNames.length; i++) {
+            this.fieldPositions.put(fieldNames[i], i);
+        }
+        this.bsonTypeCodecMap = new BsonTypeCodecMap(new BsonTypeClassMap(), codecRegistry);
+    }
+
+    @Override
+    public Object[] decode(BsonReader reader, DecoderContext decoderContext) {
+        // Fields which are absent from the document are left as null.
+        Object[] record = new Object[fieldCount];
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            Integer position = fieldPositions.get(reader.readName());
+            if (position == null) {
+                reader.skipValue();
+            } else {
+                record[position] = this.readValue(reader, decoderContext, true);
+            }
+        }
+        reader.readEndDocument();
+        return record;
+    }
+
+    /**
+     * Method which reads a value in the same Java type as a {@link org.bson.Document} would hold it, except that the
+     * embedded documents of the fields of the record are read into maps.
+     */
+    private Object readValue(BsonReader reader, DecoderContext decoderContext, boolean documentAsMap) {
+        switch (reader.getCurrentBsonType()) {
+            case STRING:
+                return reader.readString();
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return reader.readInt64();
+            case DOUBLE:
+                return reader.readDouble();
+            case BOOLEAN:
+                return reader.readBoolean();
+            case NULL:
+                reader.readNull();
+                return null;
+            case DOCUMENT:
+                if (documentAsMap) {
+                    Map<Object, Object> map = new HashMap<>();
+                    reader.readStartDocument();
+                    while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                        String name = reader.readName();
+                        map.put(name, this.readValue(reader, decoderContext, false));
+                    }
+                    reader.readEndDocument();
+                    return map;
+                }
+                return decoderContext.decodeWithChildContext(
+                        bsonTypeCodecMap.get(BsonType.DOCUMENT), reader);
+            default:
+                return decoderContext.decodeWithChildContext(
+                        bsonTypeCodecMap.get(reader.getCurrentBsonType()), reader);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.siddhi.extension.store.mongodb;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import io.siddhi.extension.store.mongodb.util.MongoTableConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class which splits a collection of the MongoDB Event Table into '_id' ranges of about the same number of documents,
+ * so that a large scan can read the ranges in parallel. The bounds are computed by a '$bucketAuto' stage over '_id' on
+ * a background thread, and reused until they are older than the refresh interval, so that neither the scans nor
+ * frequent reads wait on the '_id' values of the collection being scanned. A range filter only matches the '_id'
+ * values of the same BSON type as its bounds, hence a collection is only split when the bounds are all of the same
+ * type, and the documents whose '_id' is of another type, such as the ones added after the bounds were computed, are
+ * read by one more range.
+ */
+public class MongoScanPartitioner {
+    private static final Logger log = LogManager.getLogger(MongoScanPartitioner.class);
+    // Collections with fewer documents per partition are read by a single cursor.
+    private static final long MIN_DOCUMENTS_PER_PARTITION = 10000;
+    private static final long REFRESH_INTERVAL_MILLIS = 600000;
+
+    private final String collectionName;
+    private final int partitionCount;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile List<BsonDocument> ranges = Collections.emptyList();
+    private volatile long refreshedAt;
+
+    public MongoScanPartitioner(String collectionName, int partitionCount) {
+        this.collectionName = collectionName;
+        this.partitionCount = partitionCount;
+    }
+
+    /**
+     * Method which returns the '_id' range filters of the partitions of the collection, as last computed. When they
+     * are older than the refresh interval, they are computed again by the given executor, and the current ranges are
+     * returned without waiting.
+     *
+     * @param collection the collection of the table.
+     * @param executor   the executor which computes the ranges.
+     * @return the range filters, which together match every document, or an empty list when the collection is not
+     * worth splitting or the ranges are not computed yet.
+     */
+    public List<BsonDocument> getRanges(MongoCollection<BsonDocument> collection, Executor executor) {
+        if (System.currentTimeMillis() - this.refreshedAt >= REFRESH_INTERVAL_MILLIS &&
+                this.refreshing.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> this.refresh(collection));
+            } catch (RejectedExecutionException e) {
+                // The table is being disconnected.
+                this.refreshing.set(false);
+            }
+        }
+        return this.ranges;
+    }
+
+    public int getRangeCount() {
+        return this.ranges.size();
+    }
+
+    private void refresh(MongoCollection<BsonDocument> collection) {
+        try {
+            this.ranges = this.computeRanges(collection);
+        } catch (MongoException e) {
+            log.warn("Splitting the collection '{}' into '_id' ranges is not successful due to {}, hence it is " +
+                    "read by a single cursor.", this.collectionName, e.getLocalizedMessage());
+            this.ranges = Collections.emptyList();
+        } finally {
+            this.refreshedAt = System.currentTimeMillis();
+            this.refreshing.set(false);
+        }
+    }
+
+    private List<BsonDocument> computeRanges(MongoCollection<BsonDocument> collection) {
+        if (collection.estimatedDocumentCount() < this.partitionCount * MIN_DOCUMENTS_PER_PARTITION) {
+            return Collections.emptyList();
+        }
+        BsonDocument bucketAuto = new BsonDocument("$bucketAuto", new BsonDocument("groupBy",
+                new BsonString("$" + MongoTableConstants.MONGO_OBJECT_ID))
+                .append("buckets", new BsonInt32(this.partitionCount)));
+        List<BsonDocument> buckets = collection.aggregate(Collections.singletonList(bucketAuto)).allowDiskUse(true)
+                .into(new ArrayList<>());
+        if (buckets.size() < 2) {
+            return Collections.emptyList();
+        }
+        List<BsonValue> lowerBounds = new ArrayList<>();
+        BsonValue idType = null;
+        for (BsonDocument bucket : buckets) {
+            BsonDocument bounds = bucket.getDocument(MongoTableConstants.MONGO_OBJECT_ID);
+            for (BsonValue bound : Arrays.asList(bounds.get("min"), bounds.get("max"))) {
+                if (idType == null) {
+                    idType = toTypeAlias(bound);
+                } else if (!toTypeAlias(bound).equals(idType)) {
+                    log.debug("The '_id' values of the collection '{}' are of several types, hence it is read by " +
+                            "a single cursor.", this.collectionName);
+                    return Collections.emptyList();
+                }
+            }
+            lowerBounds.add(bounds.get("min"));
+        }
+        // The first and the last ranges are left open, and a last range matches the '_id' values of other types, so
+        // that documents added after the bounds were computed are read as well.
+        List<BsonDocument> computedRanges = new ArrayList<>();
+        for (int i = 0; i < lowerBounds.size(); i++) {
+            BsonDocument range = new BsonDocument();
+            if (i > 0) {
+                range.append(MongoTableConstants.MONGO_COMPARE_GREATER_THAN_EQUAL, lowerBounds.get(i));
+            }
+            if (i < lowerBounds.size() - 1) {
+                range.append(MongoTableConstants.MONGO_COMPARE_LESS_THAN, lowerBounds.get(i + 1));
+            }
+            computedRanges.add(new BsonDocument(MongoTableConstants.MONGO_OBJECT_ID, range));
+        }
+        computedRanges.add(new BsonDocument(MongoTableConstants.MONGO_OBJECT_ID, new BsonDocument(
+                MongoTableConstants.MONGO_NOT, new BsonDocument(MongoTableConstants.MONGO_TYPE, idType))));
+        if (log.isDebugEnabled()) {
+            log.debug("Split the collection '{}' into {} '_id' ranges for parallel scans.", this.collectionName,
+                    computedRanges.size());
+        }
+        return computedRanges;
+    }
+
+    /**
+     * Method which returns the '$type' of the values which are compared with a value by a range filter, where the
+     * numbers of every BSON type are compared with each other.
+     */
+    private static BsonValue toTypeAlias(BsonValue value) {
+        if (value.isNumber() || value.isDecimal128()) {
+            return new BsonString("number");
+        }
+        return new BsonInt32(value.getBsonType().getValue());
+    }
+
+    /**
+     * Method which restricts a filter to a range of a partition.
+     *
+     * @param filter the filter, where an empty document matches every document.
+     * @param range  the range filter of the partition.
+     * @return the filter of the documents of the partition which match the given filter.
+     */
+    public static BsonDocument restrict(BsonDocument filter, BsonDocument range) {
+        if (filter.isEmpty()) {
+            return range;
+        }
+        BsonArray conjunction = new BsonArray();
+        conjunction.add(filter);
+        conjunction.add(range);
+        return new BsonDocument(MongoTableConstants.MONGO_AND, conjunction);
+    }
+}
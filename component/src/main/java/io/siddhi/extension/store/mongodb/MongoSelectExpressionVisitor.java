@@ -31,12 +31,12 @@ import java.util.Map;
 import java.util.Stack;
 
 /**
- * Class representing MongoDB select attribute condition implementation.
+ * Class representing MongoDB select attribute condition implementation. The visitor builds a typed
+ * {@link MongoExpressionNode} tree of the select attribute, from which the aggregation expression is produced.
  */
 public class MongoSelectExpressionVisitor extends BaseExpressionVisitor {
 
-    private static int streamVarCount = 0;
-    private Stack<String> conditionOperands;
+    private Stack<MongoExpressionNode> operands;
     private Map<String, Object> placeholders;
     private String[] supportedFunctions = {"sum", "avg", "min", "max", "count"};
     private boolean isAttributeFunctionUsed;
@@ -44,7 +44,7 @@ public class MongoSelectExpressionVisitor extends BaseExpressionVisitor {
     private boolean isNullCheck;
 
     public MongoSelectExpressionVisitor() {
-        this.conditionOperands = new Stack<String>();
+        this.operands = new Stack<>();
         this.placeholders = new HashMap<>();
         this.isCountFunction = false;
         this.isNullCheck = false;
@@ -52,7 +52,17 @@ public class MongoSelectExpressionVisitor extends BaseExpressionVisitor {
     }
 
     public String getCompiledCondition() {
-        return conditionOperands.pop();
+        return operands.peek().toString();
+    }
+
+    /**
+     * Method which returns the aggregation expression of the select attribute, which only needs the stream
+     * variables to be bound at runtime.
+     *
+     * @return the template of the aggregation expression.
+     */
+    public BsonTemplate getCompiledExpression() {
+        return operands.peek().toAggregationExpression();
     }
 
     public boolean isFunctionsPresent() {
@@ -65,9 +75,7 @@ public class MongoSelectExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitConstant(Object value, Attribute.Type type) {
-        String constantAttribute = MongoTableConstants.MONGO_STREAM_OR_LITERAL_ATTRIBUTE
-                .replace(MongoTableConstants.PLACEHOLDER_FIELD_NAME, value.toString());
-        conditionOperands.push(constantAttribute);
+        operands.push(new MongoExpressionNode.ConstantNode(value, type));
     }
 
     @Override
@@ -79,9 +87,7 @@ public class MongoSelectExpressionVisitor extends BaseExpressionVisitor {
         if (isCountFunction) {
             throw new MongoTableException("The MongoDB Event table does not support arguments in count function.");
         }
-        String storeAttribute = MongoTableConstants.MONGO_STORE_ATTRIBUTE
-                .replace(MongoTableConstants.PLACEHOLDER_FIELD_NAME, attributeName);
-        conditionOperands.push(storeAttribute);
+        operands.push(new MongoExpressionNode.FieldNode(attributeName, type));
     }
 
     @Override
@@ -97,11 +103,8 @@ public class MongoSelectExpressionVisitor extends BaseExpressionVisitor {
             throw new MongoTableException("The MongoDB Event table does not support 'is null' condition with " +
                     "stream variables.");
         }
-        String name = this.generateStreamVarName();
-        this.placeholders.put(name, new Attribute(id, type));
-        String streamAttribute = MongoTableConstants.MONGO_STREAM_OR_LITERAL_ATTRIBUTE
-                .replace(MongoTableConstants.PLACEHOLDER_FIELD_NAME, name);
-        conditionOperands.push(streamAttribute);
+        this.placeholders.put(id, new Attribute(id, type));
+        operands.push(new MongoExpressionNode.ParameterNode(id, type));
     }
 
     @Override
@@ -127,13 +130,9 @@ public class MongoSelectExpressionVisitor extends BaseExpressionVisitor {
             this.isAttributeFunctionUsed = true;
             if (functionName.equalsIgnoreCase("count")) {
                 this.isCountFunction = false;
-                conditionOperands.push(MongoTableConstants.MONGO_GROUPBY_COUNT_RECORDS);
+                operands.push(new MongoExpressionNode.FunctionNode(functionName, null));
             } else {
-                String functionArgument = conditionOperands.pop();
-                String functionFilter = MongoTableConstants.MONGO_FUNCTION_FILTER
-                        .replace(MongoTableConstants.PLACEHOLDER_FUNCTION, functionName)
-                        .replace(MongoTableConstants.PLACEHOLDER_FUNCTION_ARGUMENT, functionArgument);
-                conditionOperands.push(functionFilter);
+                operands.push(new MongoExpressionNode.FunctionNode(functionName, operands.pop()));
             }
         }
     }
@@ -152,14 +151,10 @@ public class MongoSelectExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void endVisitMath(MathOperator mathOperator) {
-        String rightOperand = this.conditionOperands.pop();
-        String leftOperand = this.conditionOperands.pop();
-        String mathOperatorName = mathOperator.name().toLowerCase(Locale.ENGLISH);
-        String mathFilter = MongoTableConstants.MONGO_MATH_FILTER
-                .replace(MongoTableConstants.MATH_OPERATOR, mathOperatorName)
-                .replace(MongoTableConstants.PLACEHOLDER_LEFT_OPERAND, leftOperand)
-                .replace(MongoTableConstants.PLACEHOLDER_RIGHT_OPERAND, rightOperand);
-        conditionOperands.push(mathFilter);
+        MongoExpressionNode rightOperand = this.operands.pop();
+        MongoExpressionNode leftOperand = this.operands.pop();
+        operands.push(new MongoExpressionNode.MathNode("$" + mathOperator.name().toLowerCase(Locale.ENGLISH),
+                leftOperand, rightOperand));
     }
 
     @Override
@@ -184,12 +179,10 @@ public class MongoSelectExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void endVisitOr() {
-        String rightOperand = this.conditionOperands.pop();
-        String leftOperand = this.conditionOperands.pop();
-        String orFilter = MongoTableConstants.MONGO_OR_FILTER
-                .replace(MongoTableConstants.PLACEHOLDER_LEFT_OPERAND, leftOperand)
-                .replace(MongoTableConstants.PLACEHOLDER_RIGHT_OPERAND, rightOperand);
-        this.conditionOperands.push(orFilter);
+        MongoExpressionNode rightOperand = this.operands.pop();
+        MongoExpressionNode leftOperand = this.operands.pop();
+        this.operands.push(new MongoExpressionNode.LogicalNode(MongoTableConstants.MONGO_OR, leftOperand,
+                rightOperand));
     }
 
     @Override
@@ -214,12 +207,10 @@ public class MongoSelectExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void endVisitAnd() {
-        String rightOperand = this.conditionOperands.pop();
-        String leftOperand = this.conditionOperands.pop();
-        String andFilter = MongoTableConstants.MONGO_AND_FILTER
-                .replace(MongoTableConstants.PLACEHOLDER_LEFT_OPERAND, leftOperand)
-                .replace(MongoTableConstants.PLACEHOLDER_RIGHT_OPERAND, rightOperand);
-        conditionOperands.push(andFilter);
+        MongoExpressionNode rightOperand = this.operands.pop();
+        MongoExpressionNode leftOperand = this.operands.pop();
+        this.operands.push(new MongoExpressionNode.LogicalNode(MongoTableConstants.MONGO_AND, leftOperand,
+                rightOperand));
     }
 
     @Override
@@ -246,13 +237,7 @@ public class MongoSelectExpressionVisitor extends BaseExpressionVisitor {
     @Override
     public void endVisitIsNull(String streamId) {
         this.isNullCheck = false;
-        String nullCheckAttribute = conditionOperands.pop();
-        String compareOperator = MongoTableConstants.MONGO_COMPARE_EQUAL;
-        String compareFilter = MongoTableConstants.MONGO_IF_ELSE_CONDITION
-                .replace(MongoTableConstants.PLACEHOLDER_COMPARE_OPERATOR, compareOperator)
-                .replace(MongoTableConstants.PLACEHOLDER_LEFT_OPERAND, nullCheckAttribute)
-                .replace(MongoTableConstants.PLACEHOLDER_RIGHT_OPERAND, "null");
-        conditionOperands.push(compareFilter);
+        this.operands.push(new MongoExpressionNode.IsNullNode(this.operands.pop()));
     }
 
     @Override
@@ -261,14 +246,9 @@ public class MongoSelectExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void endVisitCompare(Compare.Operator operator) {
-        String compareOperator = MongoTableUtils.getCompareOperator(operator);
-        String rightOperand = this.conditionOperands.pop();
-        String leftOperand = this.conditionOperands.pop();
-        String compareFilter = MongoTableConstants.MONGO_IF_ELSE_CONDITION
-                .replace(MongoTableConstants.PLACEHOLDER_COMPARE_OPERATOR, compareOperator)
-                .replace(MongoTableConstants.PLACEHOLDER_LEFT_OPERAND, leftOperand)
-                .replace(MongoTableConstants.PLACEHOLDER_RIGHT_OPERAND, rightOperand);
-        conditionOperands.push(compareFilter);
+        MongoExpressionNode rightOperand = this.operands.pop();
+        MongoExpressionNode leftOperand = this.operands.pop();
+        this.operands.push(new MongoExpressionNode.CompareNode(operator, leftOperand, rightOperand));
     }
 
     @Override
@@ -293,11 +273,7 @@ public class MongoSelectExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void endVisitNot() {
-        String conditionalFilter = this.conditionOperands.pop();
-        String notFilter = MongoTableConstants.MONGO_NOT_FILTER
-                .replace(MongoTableConstants.PLACEHOLDER_FIELD_NAME, MongoTableConstants.MONGO_NOT)
-                .replace(MongoTableConstants.PLACEHOLDER_OPERAND, conditionalFilter);
-        conditionOperands.push(notFilter);
+        this.operands.push(new MongoExpressionNode.NotNode(this.operands.pop()));
     }
 
     @Override
@@ -308,10 +284,4 @@ public class MongoSelectExpressionVisitor extends BaseExpressionVisitor {
     @Override
     public void endVisitIn(String storeId) {
     }
-
-    private String generateStreamVarName() {
-        String name = "strVar" + streamVarCount;
-        streamVarCount++;
-        return name;
-    }
 }
@@ -19,7 +19,6 @@ package io.siddhi.extension.store.mongodb;
 
 import io.siddhi.core.table.record.BaseExpressionVisitor;
 import io.siddhi.extension.store.mongodb.exception.MongoTableException;
-import io.siddhi.extension.store.mongodb.util.Constant;
 import io.siddhi.query.api.definition.Attribute;
 import io.siddhi.query.api.expression.condition.Compare;
 
@@ -29,38 +28,20 @@ import java.util.Stack;
 
 /**
  * Class which is used by the Siddhi runtime for instructions on converting the SiddhiQL condition to the condition
- * format understood by the MongoDB.
+ * format understood by the MongoDB. The visitor builds a typed {@link MongoExpressionNode} tree of the set value,
+ * which can only be a stream variable or a constant.
  */
 public class MongoSetExpressionVisitor extends BaseExpressionVisitor {
-    private Stack<String> conditionOperands;
+    private Stack<MongoExpressionNode> operands;
     private Map<String, Object> placeholders;
 
-    private int streamVarCount;
-    private int constantCount;
-
     public MongoSetExpressionVisitor() {
-        this.streamVarCount = 0;
-        this.constantCount = 0;
-        this.conditionOperands = new Stack<>();
+        this.operands = new Stack<>();
         this.placeholders = new HashMap<>();
     }
 
     public String getCompiledCondition() {
-        String compiledCondition = this.conditionOperands.pop();
-        for (Map.Entry<String, Object> entry : this.placeholders.entrySet()) {
-            if (entry.getValue() instanceof Constant) {
-                Constant constant = (Constant) entry.getValue();
-                if (constant.getType().equals(Attribute.Type.STRING)) {
-                    compiledCondition = compiledCondition.replaceAll(entry.getKey(),
-                            "'" + constant.getValue().toString() + "'");
-                } else {
-                    compiledCondition = compiledCondition.replaceAll(entry.getKey(),
-                            constant.getValue().toString());
-                }
-                this.placeholders.remove(entry.getKey());
-            }
-        }
-        return compiledCondition;
+        return this.operands.peek().toString();
     }
 
     public Map<String, Object> getPlaceholders() {
@@ -217,9 +198,8 @@ public class MongoSetExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitStreamVariable(String id, String streamId, String attributeName, Attribute.Type type) {
-        String name = this.generateStreamVarName();
-        this.placeholders.put(name, new Attribute(id, type));
-        conditionOperands.push(name);
+        this.placeholders.put(id, new Attribute(id, type));
+        this.operands.push(new MongoExpressionNode.ParameterNode(id, type));
     }
 
     @Override
@@ -228,9 +208,7 @@ public class MongoSetExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitConstant(Object value, Attribute.Type type) {
-        String name = this.generateConstantName();
-        this.placeholders.put(name, new Constant(value, type));
-        conditionOperands.push(name);
+        this.operands.push(new MongoExpressionNode.ConstantNode(value, type));
     }
 
     @Override
@@ -239,32 +217,10 @@ public class MongoSetExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitStoreVariable(String storeId, String attributeName, Attribute.Type type) {
-        this.conditionOperands.push(attributeName);
+        this.operands.push(new MongoExpressionNode.FieldNode(attributeName, type));
     }
 
     @Override
     public void endVisitStoreVariable(String storeId, String attributeName, Attribute.Type type) {
     }
-
-    /**
-     * Method for generating a temporary placeholder for stream variables.
-     *
-     * @return a placeholder string of known format.
-     */
-    private String generateStreamVarName() {
-        String name = "strVar" + this.streamVarCount;
-        this.streamVarCount++;
-        return name;
-    }
-
-    /**
-     * Method for generating a temporary placeholder for constants.
-     *
-     * @return a placeholder string of known format.
-     */
-    private String generateConstantName() {
-        String name = "const" + this.constantCount;
-        this.constantCount++;
-        return name;
-    }
 }
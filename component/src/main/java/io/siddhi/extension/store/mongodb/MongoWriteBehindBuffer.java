@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.siddhi.extension.store.mongodb;
+
+import io.siddhi.core.exception.ConnectionUnavailableException;
+import io.siddhi.extension.store.mongodb.exception.MongoTableException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bounded write-behind buffer of the MongoDB Event Table. Records added to the table are queued and written by a
+ * background writer in batches, which are flushed when they reach the batch size or when the flush interval
+ * elapses. When the queue is full, adding records blocks until the writer catches up. Batches which cannot be
+ * written, as they fail or the connection stays unavailable until the writer is stopped, are handed to the failed
+ * records handler instead of being dropped. Flushes wait for the queued records up to a bounded timeout, after which
+ * they fail with a {@link ConnectionUnavailableException} instead of blocking for the whole outage of MongoDB.
+ */
+public class MongoWriteBehindBuffer implements Runnable {
+    private static final Logger log = LogManager.getLogger(MongoWriteBehindBuffer.class);
+    private static final long RETRY_INTERVAL_MILLIS = 1000;
+    // Time the writer is given to write the queued records when it is stopped, on top of the flush interval.
+    private static final long STOP_TIMEOUT_MILLIS = 30000;
+
+    private final String collectionName;
+    private final BlockingQueue<Object[]> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long flushTimeoutMillis;
+    private final RecordWriter recordWriter;
+    private final FailedRecordsHandler failedRecordsHandler;
+    private final Object flushMonitor = new Object();
+    // Queueing records holds the read lock while changing the running state holds the write lock, so that no
+    // record is queued after the writer has stopped.
+    private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+
+    private long enqueuedCount;
+    private long writtenCount;
+    // The largest number of records written which a flush waits for, so that the writer writes the records of a
+    // batch without waiting for it to fill until they are written.
+    private volatile long flushTarget;
+    private volatile ConnectionUnavailableException connectionFailure;
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public MongoWriteBehindBuffer(String collectionName, int queueSize, int batchSize, long flushIntervalMillis,
+                                  long flushTimeoutMillis, RecordWriter recordWriter,
+                                  FailedRecordsHandler failedRecordsHandler) {
+        this.collectionName = collectionName;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flushTimeoutMillis = flushTimeoutMillis;
+        this.recordWriter = recordWriter;
+        this.failedRecordsHandler = failedRecordsHandler;
+    }
+
+    /**
+     * Method for starting the background writer, if it is not running already. If the writer of an earlier start
+     * is still writing the queued records, it is waited for first, so that a single writer takes from the queue.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        if (writerThread != null) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MongoTableException("Interrupted while waiting for the earlier write-behind writer of " +
+                        "the MongoDB Event Table '" + collectionName + "' to finish.", e);
+            }
+        }
+        this.setRunning(true);
+        writerThread = new Thread(this, "MongoDBEventTable-WriteBehind-" + collectionName);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Method for stopping the background writer after writing all the queued records. The writer is not
+     * interrupted, so that the batch in flight is written as a whole, and it is waited for up to a bounded timeout.
+     * Records which cannot be written as the connection is unavailable are handed to the failed records handler.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        this.setRunning(false);
+        try {
+            writerThread.join(flushIntervalMillis + STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            log.warn("The write-behind writer of the MongoDB Event Table '{}' did not finish within {} ms while " +
+                    "stopping, and keeps writing the {} queued events in the background.", collectionName,
+                    flushIntervalMillis + STOP_TIMEOUT_MILLIS, queue.size());
+        } else {
+            writerThread = null;
+        }
+    }
+
+    private void setRunning(boolean running) {
+        runningLock.writeLock().lock();
+        try {
+            this.running = running;
+        } finally {
+            runningLock.writeLock().unlock();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Method for queueing records to be written by the background writer.
+     *
+     * @param records the records to be written.
+     * @return false if the writer is not running, in which case none of the records are queued.
+     */
+    public boolean add(List<Object[]> records) {
+        runningLock.readLock().lock();
+        int queuedCount = 0;
+        try {
+            if (!running) {
+                return false;
+            }
+            for (Object[] record : records) {
+                queue.put(record);
+                queuedCount++;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MongoTableException("Interrupted while queueing events to be written to the MongoDB Event " +
+                    "Table '" + collectionName + "'.", e);
+        } finally {
+            runningLock.readLock().unlock();
+            synchronized (flushMonitor) {
+                enqueuedCount += queuedCount;
+            }
+        }
+    }
+
+    /**
+     * Flush barrier which blocks until all the records queued before the call are written, up to the flush timeout.
+     *
+     * @throws ConnectionUnavailableException if the records are not written within the flush timeout.
+     */
+    public void flush() throws ConnectionUnavailableException {
+        synchronized (flushMonitor) {
+            long target = enqueuedCount;
+            if (writtenCount >= target) {
+                return;
+            }
+            flushTarget = Math.max(flushTarget, target);
+            long deadline = System.currentTimeMillis() + flushTimeoutMillis;
+            try {
+                while (writtenCount < target && running) {
+                    long waitTime = deadline - System.currentTimeMillis();
+                    if (waitTime <= 0) {
+                        throw new ConnectionUnavailableException("The " + (target - writtenCount) + " events " +
+                                "queued to be written to the MongoDB Event Table '" + collectionName + "' were not " +
+                                "written within " + flushTimeoutMillis + " ms.", connectionFailure);
+                    }
+                    flushMonitor.wait(Math.min(waitTime, flushIntervalMillis));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                this.collectBatch(batch);
+            } catch (InterruptedException e) {
+                // The writer is not interrupted by stop(), hence the records which are already queued are written
+                // without waiting for the batch to fill.
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                this.writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void collectBatch(List<Object[]> batch) throws InterruptedException {
+        Object[] first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.currentTimeMillis() + flushIntervalMillis;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long waitTime = deadline - System.currentTimeMillis();
+            if (batch.size() >= batchSize || waitTime <= 0 || flushTarget > writtenCount || !running) {
+                return;
+            }
+            Object[] next = queue.poll(waitTime, TimeUnit.MILLISECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void writeBatch(List<Object[]> batch) {
+        while (true) {
+            try {
+                recordWriter.write(batch);
+                connectionFailure = null;
+                break;
+            } catch (ConnectionUnavailableException e) {
+                connectionFailure = e;
+                if (!running) {
+                    log.error("Connection unavailable while writing {} queued events to the MongoDB Event Table " +
+                            "'{}' while stopping.", batch.size(), collectionName, e);
+                    this.handleFailedRecords(batch, e);
+                    break;
+                }
+                log.error("Connection unavailable while writing {} queued events to the MongoDB Event Table '{}'. " +
+                        "Retrying in {} ms.", batch.size(), collectionName, RETRY_INTERVAL_MILLIS, e);
+                try {
+                    Thread.sleep(RETRY_INTERVAL_MILLIS);
+                } catch (InterruptedException interruptedException) {
+                    // The writer is not interrupted by stop(), hence the write is retried as usual.
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to write {} queued events to the MongoDB Event Table '{}'.", batch.size(),
+                        collectionName, e);
+                this.handleFailedRecords(batch, e);
+                break;
+            }
+        }
+        synchronized (flushMonitor) {
+            writtenCount += batch.size();
+            flushMonitor.notifyAll();
+        }
+    }
+
+    private void handleFailedRecords(List<Object[]> batch, Exception cause) {
+        try {
+            failedRecordsHandler.handle(new ArrayList<>(batch), cause);
+        } catch (RuntimeException e) {
+            log.error("Failed to handle {} queued events which could not be written to the MongoDB Event Table " +
+                    "'{}'.", batch.size(), collectionName, e);
+        }
+    }
+
+    /**
+     * Writer which persists a batch of records taken from the buffer.
+     */
+    @FunctionalInterface
+    public interface RecordWriter {
+        void write(List<Object[]> records) throws ConnectionUnavailableException;
+    }
+
+    /**
+     * Handler of a batch of records taken from the buffer which could not be written. The batch may include records
+     * which were written before the failure.
+     */
+    @FunctionalInterface
+    public interface FailedRecordsHandler {
+        void handle(List<Object[]> records, Exception cause);
+    }
+}
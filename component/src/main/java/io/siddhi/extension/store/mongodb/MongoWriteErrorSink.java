@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.siddhi.extension.store.mongodb;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.WriteConcernError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateManyModel;
+import com.mongodb.client.model.UpdateOneModel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Class which receives the write models rejected by the server during a bulk write. Each rejected model is logged
+ * and, when an error collection is configured for the table, kept as an error document so that the rejected events
+ * can be inspected or replayed later. The write models which the server applied without satisfying the write concern
+ * are reported the same way, as they may be rolled back.
+ */
+public class MongoWriteErrorSink {
+    private static final Logger log = LogManager.getLogger(MongoWriteErrorSink.class);
+
+    private final String collectionName;
+    private final List<String> attributeNames;
+    private final String errorCollectionName;
+
+    public MongoWriteErrorSink(String collectionName, List<String> attributeNames, String errorCollectionName) {
+        this.collectionName = collectionName;
+        this.attributeNames = attributeNames;
+        this.errorCollectionName = errorCollectionName;
+    }
+
+    public boolean hasErrorCollection() {
+        return errorCollectionName != null;
+    }
+
+    public String getErrorCollectionName() {
+        return errorCollectionName;
+    }
+
+    /**
+     * Method for creating the list which collects the error documents of a single bulk write.
+     *
+     * @return a new list, or null if no error collection is configured.
+     */
+    public List<Document> newErrorDocuments() {
+        return this.hasErrorCollection() ? new ArrayList<>() : null;
+    }
+
+    /**
+     * Method for reporting a write model which was rejected by the server.
+     *
+     * @param failedModel    the WriteModel which failed.
+     * @param bulkWriteError the error reported for the WriteModel.
+     * @param errorDocuments the error documents to be written to the error collection.
+     */
+    public void reject(Object failedModel, BulkWriteError bulkWriteError, List<Document> errorDocuments) {
+        this.reject(failedModel, bulkWriteError.getCode(), bulkWriteError.getMessage(), errorDocuments);
+    }
+
+    /**
+     * Method for reporting a write model which was applied by the server, but not acknowledged as the write concern
+     * of the table requires.
+     *
+     * @param unacknowledgedModel the WriteModel which was not acknowledged.
+     * @param writeConcernError   the write concern error reported for the bulk write.
+     * @param errorDocuments      the error documents to be written to the error collection.
+     */
+    public void rejectUnacknowledged(Object unacknowledgedModel, WriteConcernError writeConcernError,
+                                     List<Document> errorDocuments) {
+        this.reject(unacknowledgedModel, writeConcernError.getCode(),
+                "write concern error: " + writeConcernError.getMessage(), errorDocuments);
+    }
+
+    /**
+     * Method for reporting records which could not be written at all, such as the records queued in the
+     * write-behind buffer when the write fails or the connection stays unavailable.
+     *
+     * @param records        the records which were not written.
+     * @param cause          the failure of the write.
+     * @param errorDocuments the error documents to be written to the error collection.
+     */
+    public void rejectRecords(List<Object[]> records, Exception cause, List<Document> errorDocuments) {
+        Throwable mongoException = cause;
+        while (mongoException != null && !(mongoException instanceof MongoException)) {
+            mongoException = mongoException.getCause();
+        }
+        int errorCode = mongoException != null ? ((MongoException) mongoException).getCode() : -1;
+        for (Object[] record : records) {
+            this.reject(new InsertOneModel<>(record), errorCode, String.valueOf(cause.getMessage()), errorDocuments);
+        }
+    }
+
+    private void reject(Object failedModel, int errorCode, String errorMessage, List<Document> errorDocuments) {
+        Document errorDocument = new Document("table", collectionName);
+        if (failedModel instanceof UpdateManyModel || failedModel instanceof UpdateOneModel) {
+            Bson filter = failedModel instanceof UpdateManyModel ? ((UpdateManyModel) failedModel).getFilter() :
+                    ((UpdateOneModel) failedModel).getFilter();
+            Bson update = failedModel instanceof UpdateManyModel ? ((UpdateManyModel) failedModel).getUpdate() :
+                    ((UpdateOneModel) failedModel).getUpdate();
+            log.error("The update filter '{}' failed to update with event '{}' in the MongoDB Event" +
+                    " Table due to {}", filter.toString(), update.toString(), errorMessage);
+            errorDocument.append("operation", "update")
+                    .append("filter", toBsonDocument(filter))
+                    .append("update", toBsonDocument(update));
+        } else if (failedModel instanceof ReplaceOneModel) {
+            ReplaceOneModel replaceModel = (ReplaceOneModel) failedModel;
+            log.error("The update filter '{}' failed to replace with event '{}' in the MongoDB Event" +
+                    " Table due to {}", replaceModel.getFilter().toString(),
+                    replaceModel.getReplacement().toString(), errorMessage);
+            errorDocument.append("operation", "replace")
+                    .append("filter", toBsonDocument(replaceModel.getFilter()))
+                    .append("document", replaceModel.getReplacement());
+        } else if (failedModel instanceof InsertOneModel) {
+            Object failedDocument = ((InsertOneModel) failedModel).getDocument();
+            log.error("The event '{}' failed to insert into the Mongo Event Table due to {}",
+                    failedDocument instanceof Object[] ? Arrays.toString((Object[]) failedDocument) :
+                            failedDocument.toString(), errorMessage);
+            errorDocument.append("operation", "insert")
+                    .append("document", failedDocument instanceof Object[] ?
+                            this.toDocument((Object[]) failedDocument) : failedDocument);
+        } else {
+            DeleteManyModel deleteModel = (DeleteManyModel) failedModel;
+            log.error("The delete filter '{}' failed to delete the events from the MongoDB Event" +
+                    " Table due to {}", deleteModel.getFilter().toString(), errorMessage);
+            errorDocument.append("operation", "delete")
+                    .append("filter", toBsonDocument(deleteModel.getFilter()));
+        }
+        if (errorDocuments != null) {
+            errorDocuments.add(errorDocument
+                    .append("errorCode", errorCode)
+                    .append("errorMessage", errorMessage)
+                    .append("timestamp", new Date()));
+        }
+    }
+
+    /**
+     * Method for writing the error documents of a bulk write to the error collection.
+     *
+     * @param errorCollection the error collection.
+     * @param errorDocuments  the error documents collected during the bulk write.
+     */
+    public void flush(MongoCollection<Document> errorCollection, List<Document> errorDocuments) {
+        if (errorDocuments == null || errorDocuments.isEmpty()) {
+            return;
+        }
+        try {
+            errorCollection.insertMany(errorDocuments);
+        } catch (MongoException e) {
+            log.error("Failed to write {} rejected events of the MongoDB Event Table '{}' to the error " +
+                    "collection '{}' due to {}", errorDocuments.size(), collectionName, errorCollectionName,
+                    e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Method for reporting the outcome of a bulk write which had rejected or unacknowledged write models.
+     *
+     * @param total          the number of write models submitted.
+     * @param failed         the number of write models rejected by the server.
+     * @param unacknowledged the number of write models applied without satisfying the write concern.
+     * @param retried        the number of write models resubmitted after a failure.
+     */
+    public void report(int total, int failed, int unacknowledged, int retried) {
+        log.error("Bulk write to the MongoDB Event Table '{}' completed with {} succeeded, {} failed, {} " +
+                "unacknowledged and {} retried out of {} write operations.", collectionName,
+                total - failed - unacknowledged, failed, unacknowledged, retried, total);
+    }
+
+    private Document toDocument(Object[] record) {
+        Document document = new Document();
+        for (int i = 0; i < record.length; i++) {
+            document.append(attributeNames.get(i), record[i]);
+        }
+        return document;
+    }
+
+    private static BsonDocument toBsonDocument(Bson bson) {
+        return bson.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+}
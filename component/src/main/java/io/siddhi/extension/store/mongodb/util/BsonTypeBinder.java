@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.siddhi.extension.store.mongodb.util;
+
+import io.siddhi.extension.store.mongodb.exception.MongoTableException;
+import io.siddhi.query.api.definition.Attribute;
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDecimal128;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Binds the runtime values of Siddhi attributes to the exact BSON type, the same way the values are encoded when
+ * they are inserted into the collection. The binder is resolved once from the {@link Attribute.Type} at compile time
+ * so that filters compare against typed values and hit typed indexes without any conversion at the server.
+ */
+public enum BsonTypeBinder {
+
+    STRING {
+        @Override
+        protected BsonValue bindValue(Object value) {
+            return new BsonString(value.toString());
+        }
+    },
+    INT {
+        @Override
+        protected BsonValue bindValue(Object value) {
+            return new BsonInt32(((Number) value).intValue());
+        }
+    },
+    LONG {
+        @Override
+        protected BsonValue bindValue(Object value) {
+            return new BsonInt64(((Number) value).longValue());
+        }
+    },
+    FLOAT {
+        @Override
+        protected BsonValue bindValue(Object value) {
+            // Floats are stored as widened doubles, hence the value is widened rather than re-parsed from text.
+            return new BsonDouble(((Number) value).floatValue());
+        }
+    },
+    DOUBLE {
+        @Override
+        protected BsonValue bindValue(Object value) {
+            return new BsonDouble(((Number) value).doubleValue());
+        }
+    },
+    BOOL {
+        @Override
+        protected BsonValue bindValue(Object value) {
+            return BsonBoolean.valueOf((Boolean) value);
+        }
+    },
+    OBJECT {
+        @Override
+        protected BsonValue bindValue(Object value) {
+            if (value instanceof BigDecimal) {
+                return new BsonDecimal128(new Decimal128((BigDecimal) value));
+            } else if (value instanceof Date) {
+                return new BsonDateTime(((Date) value).getTime());
+            }
+            return MongoTableUtils.toBsonValue(value);
+        }
+    },
+    OBJECT_ID {
+        @Override
+        protected BsonValue bindValue(Object value) {
+            if (value instanceof ObjectId) {
+                return new BsonObjectId((ObjectId) value);
+            }
+            try {
+                return new BsonObjectId(new ObjectId(value.toString()));
+            } catch (IllegalArgumentException e) {
+                throw new MongoTableException("The value '" + value + "' is not a valid ObjectId to be compared " +
+                        "with the field '_id'.", e);
+            }
+        }
+    };
+
+    /**
+     * Method which converts a runtime value to the BSON type of the binder.
+     *
+     * @param value the runtime value.
+     * @return the typed {@link BsonValue}, or {@link BsonNull} if the value is null.
+     */
+    public BsonValue bind(Object value) {
+        if (value == null) {
+            return BsonNull.VALUE;
+        }
+        try {
+            return this.bindValue(value);
+        } catch (ClassCastException e) {
+            throw new MongoTableException("The value '" + value + "' of type '" + value.getClass().getName() +
+                    "' cannot be bound as a " + this.name() + " value in the MongoDB Event Table filter.", e);
+        }
+    }
+
+    protected abstract BsonValue bindValue(Object value);
+
+    /**
+     * Method which returns the binder for the given Siddhi attribute type.
+     *
+     * @param type the {@link Attribute.Type} of the value.
+     * @return the matching {@link BsonTypeBinder}.
+     */
+    public static BsonTypeBinder of(Attribute.Type type) {
+        switch (type) {
+            case STRING:
+                return STRING;
+            case INT:
+                return INT;
+            case LONG:
+                return LONG;
+            case FLOAT:
+                return FLOAT;
+            case DOUBLE:
+                return DOUBLE;
+            case BOOL:
+                return BOOL;
+            default:
+                return OBJECT;
+        }
+    }
+}
@@ -30,6 +30,44 @@ public class MongoTableConstants {
     public static final String ANNOTATION_ELEMENT_TRUSTSTORE = "trust.store";
     public static final String ANNOTATION_ELEMENT_TRUSTSTOREPASS = "trust.store.password";
     public static final String ANNOTATION_ELEMENT_SECURE_CONNECTION = "secure.connection";
+    public static final String ANNOTATION_ELEMENT_BULK_WRITE_ORDERED = "bulk.write.ordered";
+    public static final String ANNOTATION_ELEMENT_ERROR_COLLECTION_NAME = "error.collection.name";
+    public static final String ANNOTATION_ELEMENT_BULK_WRITE_PARALLELISM = "bulk.write.parallelism";
+    public static final String ANNOTATION_ELEMENT_WRITE_BEHIND_ENABLED = "write.behind.enabled";
+    public static final String ANNOTATION_ELEMENT_WRITE_BEHIND_QUEUE_SIZE = "write.behind.queue.size";
+    public static final String ANNOTATION_ELEMENT_WRITE_BEHIND_BATCH_SIZE = "write.behind.batch.size";
+    public static final String ANNOTATION_ELEMENT_WRITE_BEHIND_FLUSH_INTERVAL = "write.behind.flush.interval";
+    public static final String ANNOTATION_ELEMENT_WRITE_BEHIND_FLUSH_TIMEOUT = "write.behind.flush.timeout";
+    public static final String ANNOTATION_ELEMENT_WRITE_BEHIND_FLUSH_ON_READ = "write.behind.flush.on.read";
+    public static final String ANNOTATION_ELEMENT_LOOKUP_BATCHING_ENABLED = "lookup.batching.enabled";
+    public static final String ANNOTATION_ELEMENT_LOOKUP_BATCH_SIZE = "lookup.batch.size";
+    public static final String ANNOTATION_ELEMENT_BLOOM_FILTER_ENABLED = "bloom.filter.enabled";
+    public static final String ANNOTATION_ELEMENT_BLOOM_FILTER_EXPECTED_KEYS = "bloom.filter.expected.keys";
+    public static final String ANNOTATION_ELEMENT_BLOOM_FILTER_FALSE_POSITIVE_RATE =
+            "bloom.filter.false.positive.rate";
+    public static final String ANNOTATION_ELEMENT_BLOOM_FILTER_REBUILD_INTERVAL = "bloom.filter.rebuild.interval";
+    public static final String ANNOTATION_ELEMENT_BLOOM_FILTER_MAX_MEMORY = "bloom.filter.max.memory";
+    public static final String ANNOTATION_ELEMENT_CURSOR_BATCH_SIZE = "cursor.batch.size";
+    public static final String CURSOR_BATCH_SIZE_ADAPTIVE = "adaptive";
+    public static final String ANNOTATION_ELEMENT_CURSOR_PREFETCH_ENABLED = "cursor.prefetch.enabled";
+    public static final String ANNOTATION_ELEMENT_CURSOR_PREFETCH_BUFFER_SIZE = "cursor.prefetch.buffer.size";
+    public static final String ANNOTATION_ELEMENT_PARALLEL_SCAN_PARTITIONS = "parallel.scan.partitions";
+    public static final String ANNOTATION_ELEMENT_IN_MAX_VALUES = "in.max.values";
+
+    //Default values of the annotation fields
+    public static final long DEFAULT_BULK_WRITE_PARALLELISM = 1;
+    public static final long DEFAULT_WRITE_BEHIND_QUEUE_SIZE = 10000;
+    public static final long DEFAULT_WRITE_BEHIND_BATCH_SIZE = 1000;
+    public static final long DEFAULT_WRITE_BEHIND_FLUSH_INTERVAL = 1000;
+    public static final long DEFAULT_WRITE_BEHIND_FLUSH_TIMEOUT = 30000;
+    public static final long DEFAULT_LOOKUP_BATCH_SIZE = 1000;
+    public static final long DEFAULT_BLOOM_FILTER_EXPECTED_KEYS = 100000;
+    public static final double DEFAULT_BLOOM_FILTER_FALSE_POSITIVE_RATE = 0.01;
+    public static final long DEFAULT_BLOOM_FILTER_REBUILD_INTERVAL = 3600000;
+    public static final long DEFAULT_BLOOM_FILTER_MAX_MEMORY = 64L * 1024 * 1024;
+    public static final long DEFAULT_CURSOR_PREFETCH_BUFFER_SIZE = 10000;
+    public static final long DEFAULT_PARALLEL_SCAN_PARTITIONS = 1;
+    public static final long DEFAULT_IN_MAX_VALUES = 10000;
 
     //Mongo Operators
     public static final String MONGO_COMPARE_LESS_THAN = "$lt";
@@ -39,50 +77,30 @@ public class MongoTableConstants {
     public static final String MONGO_COMPARE_EQUAL = "$eq";
     public static final String MONGO_COMPARE_NOT_EQUAL = "$ne";
     public static final String MONGO_NOT = "$not";
+    public static final String MONGO_NOR = "$nor";
+    public static final String MONGO_AND = "$and";
+    public static final String MONGO_OR = "$or";
+    public static final String MONGO_IN = "$in";
+    public static final String MONGO_TYPE = "$type";
+    public static final String MONGO_EXPR = "$expr";
+    public static final String MONGO_LITERAL = "$literal";
+    public static final String MONGO_DIVIDE = "$divide";
+    public static final String MONGO_TRUNC = "$trunc";
+
+    //Mongo aggregation stages
+    public static final String MONGO_MATCH = "$match";
+    public static final String MONGO_GROUP = "$group";
+    public static final String MONGO_PROJECT = "$project";
+    public static final String MONGO_SORT = "$sort";
+    public static final String MONGO_SKIP = "$skip";
+    public static final String MONGO_LIMIT = "$limit";
 
     public static final String MONGO_OBJECT_ID = "_id";
 
-    //Regex for comparing operands
-    public static final String REG_EXPRESSION = "\\{.*}$";
-    public static final String REG_SIMPLE_EXPRESSION = "^\\{(\\S*):\\{.*}}$";
-    public static final String REG_STREAMVAR_OR_CONST = "^strVar\\d*|^const\\d*";
+    //Regex for index definitions
     public static final String REG_INDEX_BY = "^(\\S*)(\\s1|\\s-1)?(\\s\\{.*})?$";
     public static final String REG_INDEX_BY_NEW_OPTIONS = "^\\{.*\\}$";
 
-    //Mongo filters for condition builder
-    public static final String MONGO_AND_FILTER = "{$and:[{{LEFT_OPERAND}},{{RIGHT_OPERAND}}]}";
-    public static final String MONGO_OR_FILTER = "{$or:[{{LEFT_OPERAND}},{{RIGHT_OPERAND}}]}";
-    public static final String MONGO_NOT_FILTER = "{{{FIELD_NAME}}:{{OPERAND}}}";
-    public static final String MONGO_COMPARE_FILTER = "{{{LEFT_OPERAND}}:{{{COMPARE_OPERATOR}}:{{RIGHT_OPERAND}}}}";
-    public static final String MONGO_COMPARE_FILTER_FOR_OBJECT_ID = "{{{LEFT_OPERAND}}:{{{COMPARE_OPERATOR}}:" +
-            "{$oid:{{RIGHT_OPERAND}}}}}";
-    public static final String MONGO_IS_NULL_FILTER = "{{{OPERAND}}:{$eq:null}}";
-
-    //Mongo filters for math operators
-    public static final String MONGO_MATH_FILTER = "{${{MATH_OPERATOR}}:[{{LEFT_OPERAND}},{{RIGHT_OPERAND}}]}";
-    public static final String MATH_OPERATOR = "{{MATH_OPERATOR}}";
-
-    //Mongo filters for functions
-    public static final String MONGO_FUNCTION_FILTER = "{${{FUNCTION_NAME}}:{{FUNCTION_ARGUMENT}}}";
-    public static final String MONGO_GROUPBY_COUNT_RECORDS = "{$sum:1}";
-
-    //If else conditions
-    public static final String MONGO_IF_ELSE_CONDITION = "{$cond:{if:{{{COMPARE_OPERATOR}}:" +
-            "[{{LEFT_OPERAND}},{{RIGHT_OPERAND}}]},then:true,else:false}}";
-
-    //Attribute filters
-    public static final String MONGO_STORE_ATTRIBUTE = "\'${{FIELD_NAME}}\'";
-    public static final String MONGO_STREAM_OR_LITERAL_ATTRIBUTE = "{\'$literal\':{{FIELD_NAME}}}";
-
-    //Placeholders for condition replacements
-    public static final String PLACEHOLDER_LEFT_OPERAND = "{{LEFT_OPERAND}}";
-    public static final String PLACEHOLDER_RIGHT_OPERAND = "{{RIGHT_OPERAND}}";
-    public static final String PLACEHOLDER_OPERAND = "{{OPERAND}}";
-    public static final String PLACEHOLDER_FIELD_NAME = "{{FIELD_NAME}}";
-    public static final String PLACEHOLDER_COMPARE_OPERATOR = "{{COMPARE_OPERATOR}}";
-    public static final String PLACEHOLDER_FUNCTION = "{{FUNCTION_NAME}}";
-    public static final String PLACEHOLDER_FUNCTION_ARGUMENT = "{{FUNCTION_ARGUMENT}}";
-
     public static final String CONNECTIONS_PER_HOST = "connectionsPerHost";
     public static final String CONNECT_TIMEOUT = "connectTimeout";
     public static final String HEARTBEAT_FREQUENCY = "heartbeatFrequency";
@@ -34,16 +34,26 @@ import com.mongodb.client.model.IndexModel;
 import com.mongodb.client.model.IndexOptions;
 import io.siddhi.core.exception.SiddhiAppCreationException;
 import io.siddhi.core.util.config.ConfigReader;
+import io.siddhi.extension.store.mongodb.BsonTemplate;
 import io.siddhi.extension.store.mongodb.MongoCompiledCondition;
 import io.siddhi.extension.store.mongodb.exception.MongoTableException;
 import io.siddhi.query.api.annotation.Annotation;
-import io.siddhi.query.api.definition.Attribute;
 import io.siddhi.query.api.expression.condition.Compare;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bson.BsonBoolean;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonValue;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.bson.json.JsonParseException;
+import org.bson.types.ObjectId;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -56,7 +66,9 @@ import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -81,6 +93,7 @@ import static io.siddhi.extension.store.mongodb.util.MongoTableConstants.VARIABL
  */
 public class MongoTableUtils {
     private static final Logger log = LogManager.getLogger(MongoTableUtils.class);
+    private static final String VALUE_KEY = "value";
 
     private MongoTableUtils() {
         //Prevent Initialization.
@@ -346,65 +359,273 @@ public class MongoTableUtils {
     }
 
     /**
-     * Utility method which can be used to resolve the condition with the runtime values and return a Document
-     * describing the filter.
+     * Utility method which binds the runtime values to the pre-built filter of a compiled condition.
      *
-     * @param compiledCondition     the compiled condition which was built during compile time and now is being provided
-     *                              by the Siddhi runtime.
-     * @param conditionParameterMap the map which contains the runtime value(s) for the condition.
-     * @return Document.
+     * @param compiledCondition     the compiled condition which holds the filter template.
+     * @param conditionParameterMap the runtime values keyed by the stream variable id.
+     * @param queryType             the type of the query, used for logging.
+     * @return the {@link BsonDocument} filter with all the parameter slots resolved.
      */
-    public static Document resolveCondition(MongoCompiledCondition compiledCondition,
-                                            Map<String, Object> conditionParameterMap,
-                                            String queryType) {
-        Map<String, Object> parameters = compiledCondition.getPlaceholders();
-        String compiledQuery = compiledCondition.getCompiledQuery();
-        if (compiledQuery.equalsIgnoreCase("true")) {
-            return new Document();
+    public static BsonDocument bindCondition(MongoCompiledCondition compiledCondition,
+                                             Map<String, Object> conditionParameterMap,
+                                             String queryType) {
+        BsonDocument filter = compiledCondition.getCompiledFilter().bind(conditionParameterMap);
+        if (log.isDebugEnabled()) {
+            log.debug("The final compiled query for '{}' clause : '{}'", queryType, filter.toJson());
         }
-        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
-            Object parameter = entry.getValue();
-            Attribute variable = (Attribute) parameter;
-            if (variable.getType().equals(Attribute.Type.STRING)) {
-                compiledQuery = compiledQuery.replaceAll(entry.getKey(), "\"" +
-                        conditionParameterMap.get(variable.getName()).toString() + "\"");
-            } else {
-                compiledQuery = compiledQuery.replaceAll(entry.getKey(),
-                        conditionParameterMap.get(variable.getName()).toString());
+        return filter;
+    }
+
+    /**
+     * Utility method which extracts the fields of a filter template which is a conjunction of equality comparisons,
+     * such as '{a:{$eq:x}}' or '{$and:[{a:{$eq:x}},{b:{$eq:y}}]}'.
+     *
+     * @param filter the compiled filter template.
+     * @return the value template of each compared field in the order of the condition, or null if the filter is not
+     * a conjunction of equality comparisons on distinct fields.
+     */
+    public static Map<String, BsonTemplate> extractEqualityFields(BsonTemplate filter) {
+        Map<String, BsonTemplate> equalityFields = new LinkedHashMap<>();
+        return collectEqualityFields(filter, equalityFields) && !equalityFields.isEmpty() ? equalityFields : null;
+    }
+
+    /**
+     * Utility method which collects the slots of a filter template which hold the values of another store, which
+     * are resolved before the filter is bound.
+     *
+     * @param filter the compiled filter template.
+     * @return the store value slots in the order of the condition.
+     */
+    public static List<BsonTemplate.StoreValuesTemplate> extractStoreValues(BsonTemplate filter) {
+        List<BsonTemplate.StoreValuesTemplate> storeValues = new ArrayList<>();
+        collectStoreValues(filter, storeValues);
+        return storeValues;
+    }
+
+    private static void collectStoreValues(BsonTemplate filter, List<BsonTemplate.StoreValuesTemplate> storeValues) {
+        if (filter instanceof BsonTemplate.StoreValuesTemplate) {
+            storeValues.add((BsonTemplate.StoreValuesTemplate) filter);
+        } else if (filter instanceof BsonTemplate.DocumentTemplate) {
+            ((BsonTemplate.DocumentTemplate) filter).getEntries().values()
+                    .forEach(value -> collectStoreValues(value, storeValues));
+        } else if (filter instanceof BsonTemplate.ArrayTemplate) {
+            ((BsonTemplate.ArrayTemplate) filter).getValues().forEach(value -> collectStoreValues(value, storeValues));
+        }
+    }
+
+    private static boolean collectEqualityFields(BsonTemplate filter, Map<String, BsonTemplate> equalityFields) {
+        if (!(filter instanceof BsonTemplate.DocumentTemplate)) {
+            return false;
+        }
+        for (Map.Entry<String, BsonTemplate> entry : ((BsonTemplate.DocumentTemplate) filter).getEntries().entrySet()) {
+            if (!collectEqualityField(entry, equalityFields)) {
+                return false;
             }
         }
-        if (log.isDebugEnabled()) {
-            log.debug("The final compiled query for '{}' clause : '{}'", queryType, compiledQuery);
+        return true;
+    }
+
+    private static boolean collectEqualityField(Map.Entry<String, BsonTemplate> entry,
+                                                Map<String, BsonTemplate> equalityFields) {
+        if (entry.getKey().equals(MongoTableConstants.MONGO_AND) &&
+                entry.getValue() instanceof BsonTemplate.ArrayTemplate) {
+            for (BsonTemplate operand : ((BsonTemplate.ArrayTemplate) entry.getValue()).getValues()) {
+                if (!collectEqualityFields(operand, equalityFields)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (entry.getKey().startsWith("$") || !(entry.getValue() instanceof BsonTemplate.DocumentTemplate)) {
+            return false;
+        }
+        Map<String, BsonTemplate> predicate = ((BsonTemplate.DocumentTemplate) entry.getValue()).getEntries();
+        BsonTemplate value = predicate.get(MongoTableConstants.MONGO_COMPARE_EQUAL);
+        // Equality with null also matches the documents without the field, hence it does not identify a document.
+        if (predicate.size() != 1 || value == null || (value instanceof BsonTemplate.ConstantTemplate &&
+                ((BsonTemplate.ConstantTemplate) value).getValue().isNull())) {
+            return false;
         }
-        return Document.parse(compiledQuery);
+        return equalityFields.putIfAbsent(entry.getKey(), value) == null;
     }
 
     /**
-     * Utility method which can be used to check if a given string instance is null or empty.
+     * Utility method which converts a runtime value to the {@link BsonValue} of the matching BSON type.
      *
-     * @param field the string instance to be checked.
-     * @return true if the field is null or empty.
+     * @param value the runtime value to be converted.
+     * @return the converted {@link BsonValue}.
      */
-    public static boolean isEmpty(String field) {
-        return (field == null || field.trim().length() == 0);
+    public static BsonValue toBsonValue(Object value) {
+        if (value == null) {
+            return BsonNull.VALUE;
+        } else if (value instanceof BsonValue) {
+            return (BsonValue) value;
+        } else if (value instanceof String) {
+            return new BsonString((String) value);
+        } else if (value instanceof Integer) {
+            return new BsonInt32((Integer) value);
+        } else if (value instanceof Long) {
+            return new BsonInt64((Long) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            return new BsonDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            return BsonBoolean.valueOf((Boolean) value);
+        } else if (value instanceof ObjectId) {
+            return new BsonObjectId((ObjectId) value);
+        }
+        return new Document(VALUE_KEY, value)
+                .toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry())
+                .get(VALUE_KEY);
     }
 
+    /**
+     * Utility method which estimates the encoded BSON size of a value, without encoding it. Documents and arrays
+     * are walked recursively and values of unknown types are counted with a fixed size.
+     *
+     * @param value the value, which could be a {@link BsonValue}, a {@link Map} or a plain Java value.
+     * @return the estimated number of bytes of the encoded value.
+     */
+    public static int estimateBsonSize(Object value) {
+        if (value == null || value instanceof BsonNull) {
+            return 0;
+        } else if (value instanceof BsonDocument || value instanceof Map) {
+            int size = 5;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += 2 + utf8Length(String.valueOf(entry.getKey())) + estimateBsonSize(entry.getValue());
+            }
+            return size;
+        } else if (value instanceof Iterable) {
+            int size = 5;
+            int index = 0;
+            for (Object element : (Iterable<?>) value) {
+                size += 2 + String.valueOf(index++).length() + estimateBsonSize(element);
+            }
+            return size;
+        } else if (value instanceof String || value instanceof BsonString) {
+            String string = value instanceof String ? (String) value : ((BsonString) value).getValue();
+            return 5 + utf8Length(string);
+        } else if (value instanceof Integer || value instanceof BsonInt32) {
+            return 4;
+        } else if (value instanceof Boolean || value instanceof BsonBoolean) {
+            return 1;
+        } else if (value instanceof ObjectId || value instanceof BsonObjectId) {
+            return 12;
+        } else if (value instanceof Number || value instanceof BsonInt64 || value instanceof BsonDouble ||
+                value instanceof Date) {
+            return 8;
+        }
+        return 16;
+    }
 
     /**
-     * Utility method tp map the values to the respective attributes before database writes.
+     * Utility method which returns the number of bytes of a string when it is encoded in UTF-8.
      *
-     * @param record         Object array of the runtime values.
-     * @param attributeNames List containing names of the attributes.
-     * @return Document
+     * @param string the string.
+     * @return the number of UTF-8 bytes.
+     */
+    public static int utf8Length(String string) {
+        int length = string.length();
+        int size = length;
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c >= 0x800) {
+                // Surrogate pairs take four bytes, which is two more than the two chars counted above.
+                size += 2;
+                if (Character.isHighSurrogate(c)) {
+                    i++;
+                }
+            } else if (c >= 0x80) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Utility method which parses a boolean element of the store annotation.
+     *
+     * @param value           the value of the element.
+     * @param storeAnnotation the store annotation which contains the element.
+     * @param elementName     the name of the element.
+     * @return the parsed boolean value.
+     * @throws SiddhiAppCreationException if the value is neither 'true' nor 'false'.
+     */
+    public static boolean parseBoolean(String value, Annotation storeAnnotation, String elementName) {
+        if (value.trim().equalsIgnoreCase("true")) {
+            return true;
+        } else if (value.trim().equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw new SiddhiAppCreationException("Annotation '" + storeAnnotation.getName() + "' contains illegal " +
+                "value for '" + elementName + "' as '" + value + "'. Expected 'true' or 'false'. Please check " +
+                "your query and try again.");
+    }
+
+    /**
+     * Utility method which parses a positive numeric element of the store annotation.
+     *
+     * @param storeAnnotation the store annotation which contains the element.
+     * @param elementName     the name of the element.
+     * @param defaultValue    the value to be used when the element is not given.
+     * @return the parsed value.
+     * @throws SiddhiAppCreationException if the value is not a positive number.
+     */
+    public static long parsePositiveLong(Annotation storeAnnotation, String elementName, long defaultValue) {
+        String value = storeAnnotation.getElement(elementName);
+        if (isEmpty(value)) {
+            return defaultValue;
+        }
+        try {
+            long parsedValue = Long.parseLong(value.trim());
+            if (parsedValue > 0) {
+                return parsedValue;
+            }
+        } catch (NumberFormatException e) {
+            // Falls through to the creation exception below.
+        }
+        throw new SiddhiAppCreationException("Annotation '" + storeAnnotation.getName() + "' contains illegal " +
+                "value for '" + elementName + "' as '" + value + "'. Expected a positive number. Please check " +
+                "your query and try again.");
+    }
+
+    /**
+     * Utility method which parses an element of the store annotation which is a probability between 0 and 1.
+     *
+     * @param storeAnnotation the store annotation which contains the element.
+     * @param elementName     the name of the element.
+     * @param defaultValue    the value to be used when the element is not given.
+     * @return the parsed value.
+     * @throws SiddhiAppCreationException if the value is not a number greater than 0 and less than 1.
      */
-    public static Map<String, Object> mapValuesToAttributes(Object[] record, List<String> attributeNames) {
-        Map<String, Object> attributesValuesMap = new HashMap<>();
-        for (int i = 0; i < record.length; i++) {
-            attributesValuesMap.put(attributeNames.get(i), record[i]);
+    public static double parseProbability(Annotation storeAnnotation, String elementName, double defaultValue) {
+        String value = storeAnnotation.getElement(elementName);
+        if (isEmpty(value)) {
+            return defaultValue;
         }
-        return attributesValuesMap;
+        try {
+            double parsedValue = Double.parseDouble(value.trim());
+            if (parsedValue > 0 && parsedValue < 1) {
+                return parsedValue;
+            }
+        } catch (NumberFormatException e) {
+            // Falls through to the creation exception below.
+        }
+        throw new SiddhiAppCreationException("Annotation '" + storeAnnotation.getName() + "' contains illegal " +
+                "value for '" + elementName + "' as '" + value + "'. Expected a number greater than 0 and less " +
+                "than 1. Please check your query and try again.");
+    }
+
+    /**
+     * Utility method which can be used to check if a given string instance is null or empty.
+     *
+     * @param field the string instance to be checked.
+     * @return true if the field is null or empty.
+     */
+    public static boolean isEmpty(String field) {
+        return (field == null || field.trim().length() == 0);
     }
 
+
     /**
      * Utility method which can be used to check if the existing indices contain the expected indices
      * defined by the annotation 'PrimaryKey' and 'IndexBy' and log a warning when indices differs.
@@ -725,5 +946,27 @@ public class MongoTableUtils {
         }
         return compareOperator;
     }
+
+    /**
+     * Utility method which returns the operator of a comparison whose operands are swapped, such that 'a < b' and
+     * 'b > a' are equivalent.
+     *
+     * @param operator the operator of the comparison.
+     * @return the operator of the swapped comparison.
+     */
+    public static Compare.Operator mirrorCompareOperator(Compare.Operator operator) {
+        switch (operator) {
+            case GREATER_THAN:
+                return Compare.Operator.LESS_THAN;
+            case GREATER_THAN_EQUAL:
+                return Compare.Operator.LESS_THAN_EQUAL;
+            case LESS_THAN:
+                return Compare.Operator.GREATER_THAN;
+            case LESS_THAN_EQUAL:
+                return Compare.Operator.GREATER_THAN_EQUAL;
+            default:
+                return operator;
+        }
+    }
 }
 
@@ -21,7 +21,6 @@ import io.siddhi.core.SiddhiAppRuntime;
 import io.siddhi.core.SiddhiManager;
 import io.siddhi.core.exception.SiddhiAppCreationException;
 import io.siddhi.core.stream.input.InputHandler;
-import io.siddhi.extension.store.mongodb.exception.MongoTableException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.testng.Assert;
@@ -537,39 +536,50 @@ public class ConditionVisitorTest {
         Assert.assertEquals(totalDocumentsInCollection, 2, "Deletion failed");
     }
 
-    @Test(expectedExceptions = SiddhiAppCreationException.class)
+    @Test
     public void conditionBuilderTest15() throws InterruptedException {
         log.info("conditionBuilderTest15");
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+        MongoTableTestUtils.dropCollection(uri, "SymbolTable");
 
         SiddhiManager siddhiManager = new SiddhiManager();
         String streams = "" +
                 "define stream StockStream (symbol string, price float, volume long); " +
+                "define stream SymbolStream (symbol string); " +
                 "define stream DeleteStockStream (symbol string, price float, volume long); " +
                 "@store(type = 'mongodb' , mongodb.uri='" + uri + "')" +
-                "define table FooTable (symbol string, price float, volume long);";
+                "define table FooTable (symbol string, price float, volume long);" +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "')" +
+                "define table SymbolTable (symbol string);";
         String query = "" +
                 "@info(name = 'query1') " +
                 "from StockStream " +
                 "insert into FooTable ;" +
                 "" +
                 "@info(name = 'query2') " +
+                "from SymbolStream " +
+                "insert into SymbolTable ;" +
+                "" +
+                "@info(name = 'query3') " +
                 "from DeleteStockStream " +
                 "delete FooTable " +
-                "   on (FooTable.symbol) in symbol;";
+                "   on (FooTable.symbol) in SymbolTable;";
         SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
         InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler symbolStream = siddhiAppRuntime.getInputHandler("SymbolStream");
         InputHandler deleteStockStream = siddhiAppRuntime.getInputHandler("DeleteStockStream");
         siddhiAppRuntime.start();
 
         stockStream.send(new Object[]{"WSO2", 55.6, 100L});
         stockStream.send(new Object[]{"IBM", 55.6, 100L});
         stockStream.send(new Object[]{"WSO2", 57.6, 100L});
+        symbolStream.send(new Object[]{"WSO2"});
         deleteStockStream.send(new Object[]{"WSO2", 57.6, 100L});
 
         siddhiAppRuntime.shutdown();
 
         long totalDocumentsInCollection = MongoTableTestUtils.getDocumentsCount(uri, "FooTable");
-        Assert.assertEquals(totalDocumentsInCollection, 2, "Deletion failed");
+        Assert.assertEquals(totalDocumentsInCollection, 1, "Deletion failed");
     }
 
     @Test
@@ -609,9 +619,10 @@ public class ConditionVisitorTest {
         Assert.assertEquals(totalDocumentsInCollection, 0, "Deletion failed");
     }
 
-    @Test(expectedExceptions = MongoTableException.class)
-    public void conditionBuilderTest17() {
+    @Test
+    public void conditionBuilderTest17() throws InterruptedException {
         log.info("conditionBuilderTest17");
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
 
         SiddhiManager siddhiManager = new SiddhiManager();
         String streams = "" +
@@ -627,10 +638,21 @@ public class ConditionVisitorTest {
                 "@info(name = 'query2') " +
                 "from DeleteStockStream " +
                 "delete FooTable " +
-                "   on FooTable.price + price < 67;";
+                "   on FooTable.symbol == symbol and FooTable.price + price < 67;";
         SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler deleteStockStream = siddhiAppRuntime.getInputHandler("DeleteStockStream");
         siddhiAppRuntime.start();
+
+        stockStream.send(new Object[]{"WSO2", 55.6F, 100L});
+        stockStream.send(new Object[]{"IBM", 45.6F, 100L});
+        stockStream.send(new Object[]{"WSO2", 57.6F, 100L});
+        deleteStockStream.send(new Object[]{"WSO2", 10F, 100L});
+
         siddhiAppRuntime.shutdown();
+
+        long totalDocumentsInCollection = MongoTableTestUtils.getDocumentsCount(uri, "FooTable");
+        Assert.assertEquals(totalDocumentsInCollection, 2, "Deletion failed");
     }
 
 
@@ -657,4 +679,222 @@ public class ConditionVisitorTest {
         siddhiAppRuntime.start();
         siddhiAppRuntime.shutdown();
     }
+
+    @Test
+    public void conditionBuilderTest19() throws InterruptedException {
+        log.info("conditionBuilderTest19");
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, price float, volume long); " +
+                "define stream DeleteStockStream (symbol string, price float, volume long); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "')" +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream " +
+                "insert into FooTable ;" +
+                "" +
+                "@info(name = 'query2') " +
+                "from DeleteStockStream " +
+                "delete FooTable " +
+                "   on FooTable.symbol == symbol AND FooTable.price == price AND FooTable.volume == volume;";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler deleteStockStream = siddhiAppRuntime.getInputHandler("DeleteStockStream");
+        siddhiAppRuntime.start();
+
+        stockStream.send(new Object[]{"WSO2 \"Inc\" (.*)", 55.6F, 5000000000L});
+        stockStream.send(new Object[]{"IBM", 57.6F, 100L});
+        deleteStockStream.send(new Object[]{"WSO2 \"Inc\" (.*)", 55.6F, 5000000000L});
+        deleteStockStream.send(new Object[]{"IBM", 57.6F, 100L});
+
+        siddhiAppRuntime.shutdown();
+
+        long totalDocumentsInCollection = MongoTableTestUtils.getDocumentsCount(uri, "FooTable");
+        Assert.assertEquals(totalDocumentsInCollection, 0, "Deletion failed");
+    }
+
+    @Test
+    public void conditionBuilderTest20() throws InterruptedException {
+        log.info("conditionBuilderTest20");
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, price float, volume long); " +
+                "define stream DeleteStockStream (symbol string, price float, volume long); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "')" +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream " +
+                "insert into FooTable ;" +
+                "" +
+                "@info(name = 'query2') " +
+                "from DeleteStockStream " +
+                "delete FooTable " +
+                "   on (FooTable.symbol == symbol or FooTable.symbol == 'IBM') and FooTable.price > 50 " +
+                "and FooTable.price < price;";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler deleteStockStream = siddhiAppRuntime.getInputHandler("DeleteStockStream");
+        siddhiAppRuntime.start();
+
+        stockStream.send(new Object[]{"WSO2", 55.6F, 100L});
+        stockStream.send(new Object[]{"IBM", 57.6F, 100L});
+        stockStream.send(new Object[]{"ORCL", 58.6F, 100L});
+        stockStream.send(new Object[]{"WSO2", 45.6F, 100L});
+        stockStream.send(new Object[]{"IBM", 75.6F, 100L});
+        deleteStockStream.send(new Object[]{"WSO2", 60F, 100L});
+
+        siddhiAppRuntime.shutdown();
+
+        long totalDocumentsInCollection = MongoTableTestUtils.getDocumentsCount(uri, "FooTable");
+        Assert.assertEquals(totalDocumentsInCollection, 3, "Deletion failed");
+    }
+
+    @Test
+    public void conditionBuilderTest21() throws InterruptedException {
+        log.info("conditionBuilderTest21");
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, price float, volume long); " +
+                "define stream DeleteStockStream (symbol string, price float, volume long); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "')" +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream " +
+                "insert into FooTable ;" +
+                "" +
+                "@info(name = 'query2') " +
+                "from DeleteStockStream " +
+                "delete FooTable " +
+                "   on price > FooTable.price and not (FooTable.symbol == 'IBM' or FooTable.volume > 500);";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler deleteStockStream = siddhiAppRuntime.getInputHandler("DeleteStockStream");
+        siddhiAppRuntime.start();
+
+        stockStream.send(new Object[]{"WSO2", 55.6F, 100L});
+        stockStream.send(new Object[]{"IBM", 45.6F, 100L});
+        stockStream.send(new Object[]{"ORCL", 50.6F, 1000L});
+        stockStream.send(new Object[]{"WSO2", 75.6F, 100L});
+        deleteStockStream.send(new Object[]{"WSO2", 57F, 100L});
+
+        siddhiAppRuntime.shutdown();
+
+        long totalDocumentsInCollection = MongoTableTestUtils.getDocumentsCount(uri, "FooTable");
+        Assert.assertEquals(totalDocumentsInCollection, 3, "Deletion failed");
+    }
+
+    @Test(expectedExceptions = SiddhiAppCreationException.class)
+    public void conditionBuilderTest22() {
+        log.info("conditionBuilderTest22");
+        //IN on a table which is not a MongoDB Event Table
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream DeleteStockStream (symbol string, price float, volume long); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "')" +
+                "define table FooTable (symbol string, price float, volume long);" +
+                "define table SymbolTable (symbol string);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from DeleteStockStream " +
+                "delete FooTable " +
+                "   on (FooTable.symbol) in SymbolTable;";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        siddhiAppRuntime.shutdown();
+    }
+
+    @Test
+    public void conditionBuilderTest23() throws InterruptedException {
+        log.info("conditionBuilderTest23");
+        //IN on a MongoDB Event Table stored in a collection of another name
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+        MongoTableTestUtils.dropCollection(uri, "Symbols");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, price float, volume long); " +
+                "define stream SymbolStream (symbol string); " +
+                "define stream DeleteStockStream (symbol string, price float, volume long); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "')" +
+                "define table FooTable (symbol string, price float, volume long);" +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "', collection.name='Symbols')" +
+                "define table SymbolTable (symbol string);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream " +
+                "insert into FooTable ;" +
+                "" +
+                "@info(name = 'query2') " +
+                "from SymbolStream " +
+                "insert into SymbolTable ;" +
+                "" +
+                "@info(name = 'query3') " +
+                "from DeleteStockStream " +
+                "delete FooTable " +
+                "   on not ((FooTable.symbol) in SymbolTable);";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler symbolStream = siddhiAppRuntime.getInputHandler("SymbolStream");
+        InputHandler deleteStockStream = siddhiAppRuntime.getInputHandler("DeleteStockStream");
+        siddhiAppRuntime.start();
+
+        stockStream.send(new Object[]{"WSO2", 55.6f, 100L});
+        stockStream.send(new Object[]{"IBM", 55.6f, 100L});
+        stockStream.send(new Object[]{"WSO2", 57.6f, 100L});
+        symbolStream.send(new Object[]{"WSO2"});
+        deleteStockStream.send(new Object[]{"WSO2", 57.6f, 100L});
+
+        siddhiAppRuntime.shutdown();
+
+        long totalDocumentsInCollection = MongoTableTestUtils.getDocumentsCount(uri, "FooTable");
+        Assert.assertEquals(totalDocumentsInCollection, 2, "Deletion failed");
+    }
+
+    @Test
+    public void conditionBuilderTest24() throws InterruptedException {
+        log.info("conditionBuilderTest24");
+        //Integer division of long attributes
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, price float, volume long); " +
+                "define stream DeleteStockStream (symbol string, price float, volume long); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "')" +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream " +
+                "insert into FooTable ;" +
+                "" +
+                "@info(name = 'query2') " +
+                "from DeleteStockStream " +
+                "delete FooTable " +
+                "   on FooTable.volume / 3 == volume;";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler deleteStockStream = siddhiAppRuntime.getInputHandler("DeleteStockStream");
+        siddhiAppRuntime.start();
+
+        stockStream.send(new Object[]{"WSO2", 55.6F, 100L});
+        stockStream.send(new Object[]{"IBM", 45.6F, 10L});
+        deleteStockStream.send(new Object[]{"WSO2", 57F, 33L});
+
+        siddhiAppRuntime.shutdown();
+
+        long totalDocumentsInCollection = MongoTableTestUtils.getDocumentsCount(uri, "FooTable");
+        Assert.assertEquals(totalDocumentsInCollection, 1, "Deletion failed");
+    }
 }
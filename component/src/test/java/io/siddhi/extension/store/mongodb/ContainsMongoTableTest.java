@@ -182,4 +182,191 @@ public class ContainsMongoTableTest {
 
         Assert.assertEquals(eventCount.intValue(), 2, "Number of success events");
     }
+
+    @Test
+    public void containsMongoTableTest3() throws InterruptedException {
+        log.info("containsMongoTableTest3 - " +
+                "Configure siddhi to check whether particular records exist by the primary key");
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, price float, volume long); " +
+                "    " +
+                "define stream FooStream (symbol string, price float, volume long);" +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "')" +
+                "@PrimaryKey('symbol')" +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream   " +
+                "insert into FooTable ;" +
+
+                "@info(name='query2')" +
+                "from FooStream[(FooTable.symbol == symbol) in FooTable]" +
+                "insert into OutputStream ;";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.addCallback("OutputStream", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                if (events != null) {
+                    for (Event event : events) {
+                        eventCount.incrementAndGet();
+                        switch (eventCount.intValue()) {
+                            case 1:
+                                Assert.assertEquals(new Object[]{"WSO2", 5.56, 200}, event.getData());
+                                break;
+                            case 2:
+                                Assert.assertEquals(new Object[]{"IBM", 7.56, 200}, event.getData());
+                                break;
+                            default:
+                                break;
+                        }
+                    }
+                }
+            }
+        });
+        siddhiAppRuntime.start();
+
+        stockStream.send(new Object[]{"WSO2", 55.6F, 100L});
+        stockStream.send(new Object[]{"IBM", 75.6F, 100L});
+        stockStream.send(new Object[]{"WSO2_2", 57.6F, 100L});
+        fooStream.send(new Object[]{"WSO2", 5.56, 200});
+        fooStream.send(new Object[]{"IBM", 7.56, 200});
+        fooStream.send(new Object[]{"IBM_2", 70.56, 200});
+        SiddhiTestHelper.waitForEvents(waitTime, 2, eventCount, timeout);
+
+        siddhiAppRuntime.shutdown();
+
+        Assert.assertEquals(eventCount.intValue(), 2, "Number of success events");
+    }
+
+    @Test
+    public void containsMongoTableTest4() throws InterruptedException {
+        log.info("containsMongoTableTest4 - " +
+                "Configure siddhi to check whether particular records exist using the primary key Bloom filter");
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, price float, volume long); " +
+                "    " +
+                "define stream FooStream (symbol string, price float, volume long);" +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "', bloom.filter.enabled='true')" +
+                "@PrimaryKey('symbol')" +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream   " +
+                "insert into FooTable ;" +
+
+                "@info(name='query2')" +
+                "from FooStream[(FooTable.symbol == symbol) in FooTable]" +
+                "insert into OutputStream ;";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.addCallback("OutputStream", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                if (events != null) {
+                    for (Event event : events) {
+                        eventCount.incrementAndGet();
+                        switch (eventCount.intValue()) {
+                            case 1:
+                                Assert.assertEquals(new Object[]{"WSO2", 5.56, 200}, event.getData());
+                                break;
+                            case 2:
+                                Assert.assertEquals(new Object[]{"IBM", 7.56, 200}, event.getData());
+                                break;
+                            default:
+                                break;
+                        }
+                    }
+                }
+            }
+        });
+        siddhiAppRuntime.start();
+        MongoDBEventTable fooTable = MongoTableTestUtils.getTable(siddhiAppRuntime, "FooTable");
+        long start = System.currentTimeMillis();
+        while (!fooTable.isKeyBloomFilterReady() && System.currentTimeMillis() - start < timeout) {
+            Thread.sleep(waitTime);
+        }
+        Assert.assertTrue(fooTable.isKeyBloomFilterReady(), "Bloom filter not built");
+
+        stockStream.send(new Object[]{"WSO2", 55.6F, 100L});
+        stockStream.send(new Object[]{"IBM", 75.6F, 100L});
+        stockStream.send(new Object[]{"WSO2_2", 57.6F, 100L});
+        fooStream.send(new Object[]{"WSO2", 5.56, 200});
+        fooStream.send(new Object[]{"IBM", 7.56, 200});
+        fooStream.send(new Object[]{"IBM_2", 70.56, 200});
+        SiddhiTestHelper.waitForEvents(waitTime, 2, eventCount, timeout);
+
+        siddhiAppRuntime.shutdown();
+
+        Assert.assertEquals(eventCount.intValue(), 2, "Number of success events");
+        // The lookup of the missing key 'IBM_2' is answered by the Bloom filter without reaching MongoDB.
+        Assert.assertEquals(fooTable.getKeyBloomFilterSkippedLookupCount(), 1, "Lookups answered by the filter");
+        Assert.assertEquals(fooTable.getContainsProbeCount(), 2, "Lookups sent to MongoDB");
+    }
+
+    @Test
+    public void containsMongoTableTest5() throws InterruptedException {
+        log.info("containsMongoTableTest5 - " +
+                "Configure siddhi to disable the primary key Bloom filter which exceeds its memory limit");
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, price float, volume long); " +
+                "    " +
+                "define stream FooStream (symbol string, price float, volume long);" +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "', bloom.filter.enabled='true', " +
+                "bloom.filter.max.memory='1024')" +
+                "@PrimaryKey('symbol')" +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream   " +
+                "insert into FooTable ;" +
+
+                "@info(name='query2')" +
+                "from FooStream[(FooTable.symbol == symbol) in FooTable]" +
+                "insert into OutputStream ;";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.addCallback("OutputStream", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                if (events != null) {
+                    eventCount.addAndGet(events.length);
+                }
+            }
+        });
+        siddhiAppRuntime.start();
+        MongoDBEventTable fooTable = MongoTableTestUtils.getTable(siddhiAppRuntime, "FooTable");
+
+        stockStream.send(new Object[]{"WSO2", 55.6F, 100L});
+        stockStream.send(new Object[]{"IBM", 75.6F, 100L});
+        fooStream.send(new Object[]{"WSO2", 5.56, 200});
+        fooStream.send(new Object[]{"IBM", 7.56, 200});
+        fooStream.send(new Object[]{"IBM_2", 70.56, 200});
+        SiddhiTestHelper.waitForEvents(waitTime, 2, eventCount, timeout);
+
+        siddhiAppRuntime.shutdown();
+
+        Assert.assertEquals(eventCount.intValue(), 2, "Number of success events");
+        Assert.assertFalse(fooTable.isKeyBloomFilterReady(), "Bloom filter built beyond its memory limit");
+        Assert.assertEquals(fooTable.getKeyBloomFilterSkippedLookupCount(), 0, "Lookups answered by the filter");
+        Assert.assertEquals(fooTable.getContainsProbeCount(), 3, "Lookups sent to MongoDB");
+    }
 }
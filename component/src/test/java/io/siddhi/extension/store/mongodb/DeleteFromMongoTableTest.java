@@ -19,6 +19,7 @@ package io.siddhi.extension.store.mongodb;
 
 import io.siddhi.core.SiddhiAppRuntime;
 import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
 import io.siddhi.core.exception.SiddhiAppCreationException;
 import io.siddhi.core.stream.input.InputHandler;
 import org.apache.commons.logging.Log;
@@ -202,4 +203,47 @@ public class DeleteFromMongoTableTest {
         long totalDocumentsInCollection = MongoTableTestUtils.getDocumentsCount(uri, "FooTable");
         Assert.assertEquals(totalDocumentsInCollection, 3, "Deletion failed");
     }
+
+    @Test
+    public void deleteFromMongoTableTest6() throws InterruptedException {
+        log.info("deleteFromMongoTableTest6 - Delete a batch of events of a MongoDB table by key");
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, price float, volume long); " +
+                "define stream DeleteStockStream (symbol string, price float, volume long); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "')" +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream " +
+                "insert into FooTable ;" +
+                "" +
+                "@info(name = 'query2') " +
+                "from DeleteStockStream " +
+                "delete FooTable " +
+                "   on (FooTable.symbol == symbol) ";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler deleteStockStream = siddhiAppRuntime.getInputHandler("DeleteStockStream");
+        siddhiAppRuntime.start();
+
+        stockStream.send(new Object[]{"WSO2", 55.6F, 100L});
+        stockStream.send(new Object[]{"IBM", 75.6F, 100L});
+        stockStream.send(new Object[]{"IBM", 76.6F, 200L});
+        stockStream.send(new Object[]{"WSO52", 57.6F, 100L});
+        long timestamp = System.currentTimeMillis();
+        deleteStockStream.send(new Event[]{
+                new Event(timestamp, new Object[]{"IBM", 75.6F, 100L}),
+                new Event(timestamp, new Object[]{"WSO2", 55.6F, 100L}),
+                new Event(timestamp, new Object[]{"IBM", 76.6F, 200L})
+        });
+
+        siddhiAppRuntime.shutdown();
+
+        long totalDocumentsInCollection = MongoTableTestUtils.getDocumentsCount(uri, "FooTable");
+        Assert.assertEquals(totalDocumentsInCollection, 1, "Deletion failed");
+    }
 }
@@ -17,23 +17,37 @@
  */
 package io.siddhi.extension.store.mongodb;
 
+import com.mongodb.bulk.WriteConcernError;
+import com.mongodb.client.model.InsertOneModel;
 import io.siddhi.core.SiddhiAppRuntime;
 import io.siddhi.core.SiddhiAppRuntimeImpl;
 import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.exception.ConnectionUnavailableException;
 import io.siddhi.core.exception.SiddhiAppCreationException;
+import io.siddhi.core.query.output.callback.QueryCallback;
 import io.siddhi.core.stream.input.InputHandler;
 import io.siddhi.query.api.exception.DuplicateDefinitionException;
 import io.siddhi.query.api.exception.SiddhiAppValidationException;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.core.Logger;
+import org.bson.BsonDocument;
+import org.bson.Document;
 import org.testng.Assert;
 import org.testng.AssertJUnit;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class InsertIntoMongoTableTest {
 
@@ -399,4 +413,379 @@ public class InsertIntoMongoTableTest {
         Assert.assertEquals(totalDocumentsInCollection, 1, "Insertion failed");
 
     }
+
+    @Test
+    public void insertIntoMongoTableTest13() throws InterruptedException {
+        log.info("insertIntoMongoTableTest13");
+        //Unordered bulk writes
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+        MongoTableTestUtils.dropCollection(uri, "FooTableErrors");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "@source(type='inMemory', topic='stock') " +
+                "define stream FooStream (symbol string, price float, volume long); " +
+                "@Store(type=\"mongodb\", mongodb.uri='" + uri + "', bulk.write.ordered='false', " +
+                "error.collection.name='FooTableErrors')" +
+                "@PrimaryKey(\"symbol\")" +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from FooStream " +
+                "select symbol, price, volume " +
+                "insert into FooTable;";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+
+        long timestamp = System.currentTimeMillis();
+        fooStream.send(new Event[]{
+                new Event(timestamp, new Object[]{"WSO2", 55.6f, 100L}),
+                new Event(timestamp, new Object[]{"WSO2", 57.6f, 100L}),
+                new Event(timestamp, new Object[]{"IBM", 75.6f, 100L}),
+                new Event(timestamp, new Object[]{"MSFT", 58.6f, 100L})
+        });
+
+        siddhiAppRuntime.shutdown();
+
+        long totalDocumentsInCollection = MongoTableTestUtils.getDocumentsCount(uri, "FooTable");
+        Assert.assertEquals(totalDocumentsInCollection, 3, "Insertion failed");
+        assertRejectedInsert("WSO2");
+    }
+
+    @Test
+    public void insertIntoMongoTableTest14() throws InterruptedException {
+        log.info("insertIntoMongoTableTest14");
+        //Ordered bulk writes with a failure in the middle
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+        MongoTableTestUtils.dropCollection(uri, "FooTableErrors");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "@source(type='inMemory', topic='stock') " +
+                "define stream FooStream (symbol string, price float, volume long); " +
+                "@Store(type=\"mongodb\", mongodb.uri='" + uri + "', error.collection.name='FooTableErrors')" +
+                "@PrimaryKey(\"symbol\")" +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from FooStream " +
+                "select symbol, price, volume " +
+                "insert into FooTable;";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+
+        long timestamp = System.currentTimeMillis();
+        fooStream.send(new Event[]{
+                new Event(timestamp, new Object[]{"WSO2", 55.6f, 100L}),
+                new Event(timestamp, new Object[]{"WSO2", 57.6f, 100L}),
+                new Event(timestamp, new Object[]{"IBM", 75.6f, 100L}),
+                new Event(timestamp, new Object[]{"MSFT", 58.6f, 100L})
+        });
+
+        siddhiAppRuntime.shutdown();
+
+        long totalDocumentsInCollection = MongoTableTestUtils.getDocumentsCount(uri, "FooTable");
+        Assert.assertEquals(totalDocumentsInCollection, 3, "Insertion failed");
+        assertRejectedInsert("WSO2");
+    }
+
+    @Test
+    public void insertIntoMongoTableTest15() throws InterruptedException {
+        log.info("insertIntoMongoTableTest15");
+        //Write-behind inserts
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+        MongoTableTestUtils.dropCollection(uri, "FooTableErrors");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "@source(type='inMemory', topic='stock') " +
+                "define stream FooStream (symbol string, price float, volume long); " +
+                "@Store(type=\"mongodb\", mongodb.uri='" + uri + "', write.behind.enabled='true', " +
+                "write.behind.batch.size='2', error.collection.name='FooTableErrors')" +
+                "@PrimaryKey(\"symbol\")" +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from FooStream " +
+                "select symbol, price, volume " +
+                "insert into FooTable;";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+
+        long timestamp = System.currentTimeMillis();
+        fooStream.send(new Event[]{
+                new Event(timestamp, new Object[]{"WSO2", 55.6f, 100L}),
+                new Event(timestamp, new Object[]{"ORCL", 57.6f, 100L}),
+                new Event(timestamp, new Object[]{"IBM", 75.6f, 100L}),
+                new Event(timestamp, new Object[]{"MSFT", 58.6f, 100L}),
+                new Event(timestamp, new Object[]{"IBM", 76.6f, 100L})
+        });
+
+        siddhiAppRuntime.shutdown();
+
+        long totalDocumentsInCollection = MongoTableTestUtils.getDocumentsCount(uri, "FooTable");
+        Assert.assertEquals(totalDocumentsInCollection, 4, "Insertion failed");
+        assertRejectedInsert("IBM");
+    }
+
+    @Test
+    public void insertIntoMongoTableTest16() throws InterruptedException {
+        log.info("insertIntoMongoTableTest16");
+        //Inserts written as concurrent sub-batches
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+        MongoTableTestUtils.dropCollection(uri, "FooTableErrors");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "@source(type='inMemory', topic='stock') " +
+                "define stream FooStream (symbol string, price float, volume long); " +
+                "@Store(type=\"mongodb\", mongodb.uri='" + uri + "', bulk.write.parallelism='3', " +
+                "bulk.write.ordered='false', error.collection.name='FooTableErrors')" +
+                "@PrimaryKey(\"symbol\")" +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from FooStream " +
+                "select symbol, price, volume " +
+                "insert into FooTable;";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+
+        long timestamp = System.currentTimeMillis();
+        fooStream.send(new Event[]{
+                new Event(timestamp, new Object[]{"WSO2", 55.6f, 100L}),
+                new Event(timestamp, new Object[]{"ORCL", 57.6f, 100L}),
+                new Event(timestamp, new Object[]{"IBM", 75.6f, 100L}),
+                new Event(timestamp, new Object[]{"MSFT", 58.6f, 100L}),
+                new Event(timestamp, new Object[]{"GOOG", 51.6f, 100L}),
+                new Event(timestamp, new Object[]{"WSO2", 55.6f, 100L})
+        });
+
+        siddhiAppRuntime.shutdown();
+
+        long totalDocumentsInCollection = MongoTableTestUtils.getDocumentsCount(uri, "FooTable");
+        Assert.assertEquals(totalDocumentsInCollection, 5, "Insertion failed");
+        assertRejectedInsert("WSO2");
+    }
+
+    @Test
+    public void insertIntoMongoTableTest17() {
+        log.info("insertIntoMongoTableTest17");
+        //Writes applied without satisfying the write concern are reported to the error collection
+
+        MongoWriteErrorSink writeErrorSink = new MongoWriteErrorSink("FooTable",
+                Arrays.asList("symbol", "price", "volume"), "FooTableErrors");
+        List<Document> errorDocuments = writeErrorSink.newErrorDocuments();
+        writeErrorSink.rejectUnacknowledged(new InsertOneModel<>(new Object[]{"WSO2", 55.6f, 100L}),
+                new WriteConcernError(64, "WriteConcernFailed", "waiting for replication timed out",
+                        new BsonDocument()), errorDocuments);
+
+        Assert.assertEquals(errorDocuments.size(), 1, "Unacknowledged insert not reported");
+        Document errorDocument = errorDocuments.get(0);
+        Assert.assertEquals(errorDocument.getString("operation"), "insert");
+        Assert.assertEquals(errorDocument.getInteger("errorCode").intValue(), 64);
+        Assert.assertEquals(errorDocument.getString("errorMessage"),
+                "write concern error: waiting for replication timed out");
+        Assert.assertEquals(errorDocument.get("document", Document.class).getString("symbol"), "WSO2");
+    }
+
+    @Test
+    public void insertIntoMongoTableTest18() {
+        log.info("insertIntoMongoTableTest18");
+        //Write-behind batches which fail are handed to the failed records handler
+
+        List<Object[]> failedRecords = new ArrayList<>();
+        MongoWriteBehindBuffer writeBehindBuffer = new MongoWriteBehindBuffer("FooTable", 10, 10, 100, 1000,
+                records -> {
+                    throw new IllegalStateException("write failed");
+                }, (records, cause) -> failedRecords.addAll(records));
+        writeBehindBuffer.start();
+        writeBehindBuffer.add(Arrays.asList(new Object[]{"WSO2", 55.6f, 100L}, new Object[]{"IBM", 75.6f, 100L}));
+        writeBehindBuffer.stop();
+
+        Assert.assertEquals(failedRecords.size(), 2, "Failed events not handed to the handler");
+        Assert.assertEquals(failedRecords.get(0)[0], "WSO2");
+        Assert.assertEquals(failedRecords.get(1)[0], "IBM");
+    }
+
+    @Test
+    public void insertIntoMongoTableTest19() {
+        log.info("insertIntoMongoTableTest19");
+        //Stopping the write-behind buffer lets the batch in flight finish
+
+        List<Object[]> writtenRecords = new ArrayList<>();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        MongoWriteBehindBuffer writeBehindBuffer = new MongoWriteBehindBuffer("FooTable", 10, 10, 100, 1000,
+                records -> {
+                    try {
+                        Thread.sleep(500);
+                    } catch (InterruptedException e) {
+                        interrupted.set(true);
+                    }
+                    writtenRecords.addAll(records);
+                }, (records, cause) -> Assert.fail("Events not written"));
+        writeBehindBuffer.start();
+        writeBehindBuffer.add(Arrays.asList(new Object[]{"WSO2", 55.6f, 100L}, new Object[]{"IBM", 75.6f, 100L}));
+        writeBehindBuffer.stop();
+
+        Assert.assertFalse(interrupted.get(), "Batch in flight interrupted");
+        Assert.assertEquals(writtenRecords.size(), 2, "Queued events not written on stop");
+    }
+
+    @Test
+    public void insertIntoMongoTableTest20() throws InterruptedException {
+        log.info("insertIntoMongoTableTest20");
+        //Ordered bulk writes are not split into concurrent sub-batches
+
+        Logger tableLogger = (Logger) LogManager.getLogger(MongoDBEventTable.class);
+        UnitTestAppender appender = new UnitTestAppender("UnitTestAppender", null);
+        tableLogger.addAppender(appender);
+        appender.start();
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "@source(type='inMemory', topic='stock') " +
+                "define stream FooStream (symbol string, price float, volume long); " +
+                "@Store(type=\"mongodb\", mongodb.uri='" + uri + "', bulk.write.parallelism='3')" +
+                "@PrimaryKey(\"symbol\")" +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from FooStream " +
+                "select symbol, price, volume " +
+                "insert into FooTable;";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+
+        long timestamp = System.currentTimeMillis();
+        fooStream.send(new Event[]{
+                new Event(timestamp, new Object[]{"WSO2", 55.6f, 100L}),
+                new Event(timestamp, new Object[]{"ORCL", 57.6f, 100L}),
+                new Event(timestamp, new Object[]{"IBM", 75.6f, 100L})
+        });
+
+        siddhiAppRuntime.shutdown();
+        tableLogger.removeAppender(appender);
+
+        long totalDocumentsInCollection = MongoTableTestUtils.getDocumentsCount(uri, "FooTable");
+        Assert.assertEquals(totalDocumentsInCollection, 3, "Insertion failed");
+        Assert.assertNotNull(appender.getMessages(), "Ordered bulk writes split into concurrent sub-batches");
+        Assert.assertTrue(appender.getMessages().contains("'bulk.write.parallelism' of the MongoDB Event " +
+                "Table 'FooTable' is ignored as bulk writes are ordered"));
+    }
+
+    @Test
+    public void insertIntoMongoTableTest21() throws InterruptedException {
+        log.info("insertIntoMongoTableTest21");
+        //Records encoded straight to BSON are read back as they were inserted
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, price float, volume long, details object); " +
+                "define stream CheckStream (symbol string); " +
+                "@Store(type=\"mongodb\", mongodb.uri='" + uri + "')" +
+                "define table FooTable (symbol string, price float, volume long, details object);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream " +
+                "insert into FooTable;" +
+                "" +
+                "@info(name = 'query2') " +
+                "from CheckStream#window.length(1) join FooTable " +
+                "on CheckStream.symbol == FooTable.symbol " +
+                "select FooTable.symbol, FooTable.price, FooTable.volume, FooTable.details " +
+                "insert into OutputStream;";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        List<Object[]> outputEvents = new CopyOnWriteArrayList<>();
+        siddhiAppRuntime.addCallback("query2", new QueryCallback() {
+            @Override
+            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
+                if (inEvents != null) {
+                    for (Event event : inEvents) {
+                        outputEvents.add(event.getData());
+                    }
+                }
+            }
+        });
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler checkStream = siddhiAppRuntime.getInputHandler("CheckStream");
+        siddhiAppRuntime.start();
+
+        Map<String, Object> details = new HashMap<>();
+        details.put("exchange", "NYSE");
+        details.put("listed", 1911);
+        stockStream.send(new Object[]{"IBM", 55.5f, null, details});
+        stockStream.send(new Object[]{"WSO2", null, 100L, null});
+        checkStream.send(new Object[]{"IBM"});
+        checkStream.send(new Object[]{"WSO2"});
+        long start = System.currentTimeMillis();
+        while (outputEvents.size() < 2 && System.currentTimeMillis() - start < 30000) {
+            Thread.sleep(50);
+        }
+
+        siddhiAppRuntime.shutdown();
+
+        // Floats are widened to doubles, null attributes are stored as null and maps as embedded documents.
+        Document ibm = MongoTableTestUtils.getDocument(uri, "FooTable", "{symbol: 'IBM'}");
+        Assert.assertEquals(ibm.get("price"), 55.5);
+        Assert.assertTrue(ibm.containsKey("volume"));
+        Assert.assertNull(ibm.get("volume"));
+        Assert.assertEquals(ibm.get("details"), new Document("exchange", "NYSE").append("listed", 1911));
+        Document wso2 = MongoTableTestUtils.getDocument(uri, "FooTable", "{symbol: 'WSO2'}");
+        Assert.assertTrue(wso2.containsKey("price"));
+        Assert.assertNull(wso2.get("price"));
+        Assert.assertEquals(wso2.get("volume"), 100L);
+        Assert.assertNull(wso2.get("details"));
+
+        Assert.assertEquals(outputEvents.size(), 2, "Inserted records not read back");
+        Assert.assertEquals(outputEvents.get(0), new Object[]{"IBM", 55.5, null, details});
+        Assert.assertEquals(outputEvents.get(1), new Object[]{"WSO2", null, 100L, null});
+    }
+
+    @Test
+    public void insertIntoMongoTableTest22() {
+        log.info("insertIntoMongoTableTest22");
+        //Flushing the write-behind buffer while the connection is unavailable fails within the flush timeout
+
+        List<Object[]> failedRecords = new ArrayList<>();
+        MongoWriteBehindBuffer writeBehindBuffer = new MongoWriteBehindBuffer("FooTable", 10, 10, 100, 500,
+                records -> {
+                    throw new ConnectionUnavailableException("connection unavailable");
+                }, (records, cause) -> failedRecords.addAll(records));
+        writeBehindBuffer.start();
+        Assert.assertTrue(writeBehindBuffer.add(Collections.singletonList(new Object[]{"WSO2", 55.6f, 100L})));
+        try {
+            writeBehindBuffer.flush();
+            Assert.fail("Flush did not time out");
+        } catch (ConnectionUnavailableException e) {
+            Assert.assertTrue(e.getMessage().contains("were not written within 500 ms"), e.getMessage());
+        }
+        writeBehindBuffer.stop();
+
+        Assert.assertEquals(failedRecords.size(), 1, "Failed events not handed to the handler");
+        Assert.assertFalse(writeBehindBuffer.add(Collections.singletonList(new Object[]{"IBM", 75.6f, 100L})),
+                "Events queued after the writer stopped");
+    }
+
+    private static void assertRejectedInsert(String symbol) {
+        Assert.assertEquals(MongoTableTestUtils.getDocumentsCount(uri, "FooTableErrors"), 1,
+                "Rejected insert not reported");
+        Document errorDocument = MongoTableTestUtils.getDocument(uri, "FooTableErrors", "{}");
+        Assert.assertEquals(errorDocument.getString("operation"), "insert");
+        Assert.assertEquals(errorDocument.getInteger("errorCode").intValue(), 11000);
+        Assert.assertEquals(errorDocument.get("document", Document.class).getString("symbol"), symbol);
+    }
 }
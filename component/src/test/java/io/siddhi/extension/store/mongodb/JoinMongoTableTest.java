@@ -18,6 +18,9 @@
 
 package io.siddhi.extension.store.mongodb;
 
+import com.mongodb.ServerAddress;
+import com.mongodb.ServerCursor;
+import com.mongodb.client.MongoCursor;
 import io.siddhi.core.SiddhiAppRuntime;
 import io.siddhi.core.SiddhiManager;
 import io.siddhi.core.event.Event;
@@ -27,13 +30,28 @@ import io.siddhi.core.util.SiddhiTestHelper;
 import io.siddhi.query.compiler.exception.SiddhiParserException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.types.Decimal128;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class JoinMongoTableTest {
@@ -318,4 +336,388 @@ public class JoinMongoTableTest {
 
         Assert.assertEquals(eventCount.intValue(), 1, "Read events failed");
     }
+
+    @Test
+    public void testMongoTableJoinQuery7() throws InterruptedException {
+        log.info("testMongoTableJoinQuery7");
+        //Batched lookups
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, price float, volume long); " +
+                "define stream FooStream (symbol string); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "', lookup.batching.enabled='true')" +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream " +
+                "insert into FooTable ;" +
+                "" +
+                "@info(name = 'query2') " +
+                "from FooStream#window.length(1) join FooTable " +
+                "on FooStream.symbol == FooTable.symbol " +
+                "select FooStream.symbol as checkSymbol, FooTable.symbol as symbol, " +
+                "FooTable.volume as volume  " +
+                "insert into OutputStream ;";
+
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        siddhiAppRuntime.addCallback("query2", new QueryCallback() {
+            @Override
+            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
+                if (inEvents != null) {
+                    for (Event event : inEvents) {
+                        eventCount.incrementAndGet();
+                        Assert.assertEquals(event.getData(0), "IBM");
+                        Assert.assertEquals(event.getData(1), "IBM");
+                    }
+                }
+            }
+
+        });
+
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+
+        stockStream.send(new Object[]{"WSO2", 5.6f, 100L});
+        stockStream.send(new Object[]{"IBM", 7.6f, 10L});
+        stockStream.send(new Object[]{"IBM", 7.8f, 20L});
+        fooStream.send(new Object[]{"IBM"});
+        fooStream.send(new Object[]{"ORCL"});
+        SiddhiTestHelper.waitForEvents(waitTime, 2, eventCount, timeout);
+
+        siddhiAppRuntime.shutdown();
+
+        Assert.assertEquals(eventCount.intValue(), 2, "Read events failed");
+    }
+
+    @Test(timeOut = 30000)
+    public void testMongoTableJoinQuery8() throws Exception {
+        log.info("testMongoTableJoinQuery8");
+        //Lookups which overlap an in flight lookup are sent as one query
+
+        MongoLookupBatcher lookupBatcher = new MongoLookupBatcher("FooTable",
+                Arrays.asList("symbol", "price", "volume"), 100);
+        List<BsonDocument> filters = new CopyOnWriteArrayList<>();
+        CountDownLatch firstLookupSent = new CountDownLatch(1);
+        CountDownLatch firstLookupReleased = new CountDownLatch(1);
+        MongoLookupBatcher.DocumentLoader loader = filter -> {
+            filters.add(filter);
+            if (filters.size() == 1) {
+                firstLookupSent.countDown();
+                try {
+                    firstLookupReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            List<Object[]> documents = new ArrayList<>();
+            documents.add(new Object[]{"WSO2", 5.6f, 100L});
+            documents.add(new Object[]{"IBM", 7.6f, 10L});
+            documents.add(new Object[]{"ORCL", 8.6f, 20L});
+            return documents;
+        };
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try {
+            Future<List<Object[]>> first = executorService.submit(
+                    () -> lookupBatcher.lookup("symbol", new BsonString("WSO2"), loader));
+            firstLookupSent.await();
+            Future<List<Object[]>> second = executorService.submit(
+                    () -> lookupBatcher.lookup("symbol", new BsonString("IBM"), loader));
+            Future<List<Object[]>> third = executorService.submit(
+                    () -> lookupBatcher.lookup("symbol", new BsonString("MSFT"), loader));
+            while (lookupBatcher.getPendingLookupCount("symbol") < 2) {
+                Thread.sleep(waitTime);
+            }
+            firstLookupReleased.countDown();
+
+            Assert.assertEquals(first.get().size(), 1);
+            Assert.assertEquals(first.get().get(0)[0], "WSO2");
+            Assert.assertEquals(second.get().size(), 1);
+            Assert.assertEquals(second.get().get(0)[2], 10L);
+            Assert.assertTrue(third.get().isEmpty());
+        } finally {
+            executorService.shutdownNow();
+        }
+        Assert.assertEquals(filters.size(), 2, "Overlapping lookups were not batched");
+        Assert.assertEquals(filters.get(1).getDocument("symbol").getArray("$in").size(), 2);
+        Assert.assertEquals(lookupBatcher.getBatchedLookupCount(), 2);
+    }
+
+    @Test(timeOut = 30000)
+    public void testMongoTableJoinQuery9() throws Exception {
+        log.info("testMongoTableJoinQuery9");
+        //A lookup aborted by an error does not block the lookups which follow
+
+        MongoLookupBatcher lookupBatcher = new MongoLookupBatcher("FooTable",
+                Arrays.asList("symbol", "price", "volume"), 100);
+        try {
+            lookupBatcher.lookup("symbol", new BsonString("WSO2"), filter -> {
+                throw new AssertionError("Lookup aborted");
+            });
+            Assert.fail("The error of the lookup was not thrown");
+        } catch (AssertionError e) {
+            Assert.assertEquals(e.getMessage(), "Lookup aborted");
+        }
+        List<Object[]> documents = lookupBatcher.lookup("symbol", new BsonString("WSO2"),
+                filter -> Collections.singletonList(new Object[]{"WSO2", 5.6f, 100L}));
+        Assert.assertEquals(documents.size(), 1);
+        Assert.assertEquals(lookupBatcher.getPendingLookupCount("symbol"), 0);
+    }
+
+    @Test
+    public void testMongoTableJoinQuery10() throws InterruptedException {
+        log.info("testMongoTableJoinQuery10");
+        //Lookups of documents with fields which are not attributes of the table
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+        MongoTableTestUtils.insertDocument(uri, "FooTable", "{symbol: 'WSO2', price: 5.6, volume: {$numberLong: " +
+                "'100'}, exchange: {name: 'NYSE', city: 'New York'}, tags: ['tech', 'middleware']}");
+        MongoTableTestUtils.insertDocument(uri, "FooTable", "{tags: ['tech'], symbol: 'IBM', volume: " +
+                "{$numberLong: '10'}}");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream FooStream (symbol string); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "')" +
+                "define table FooTable (symbol string, price double, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from FooStream#window.length(1) join FooTable " +
+                "on FooStream.symbol == FooTable.symbol " +
+                "select FooTable.symbol as symbol, FooTable.price as price, FooTable.volume as volume " +
+                "insert into OutputStream ;";
+
+        List<Object[]> outputEvents = new CopyOnWriteArrayList<>();
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        siddhiAppRuntime.addCallback("query1", new QueryCallback() {
+            @Override
+            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
+                if (inEvents != null) {
+                    for (Event event : inEvents) {
+                        outputEvents.add(event.getData());
+                        eventCount.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+
+        fooStream.send(new Object[]{"WSO2"});
+        fooStream.send(new Object[]{"IBM"});
+        SiddhiTestHelper.waitForEvents(waitTime, 2, eventCount, timeout);
+
+        siddhiAppRuntime.shutdown();
+
+        Assert.assertEquals(outputEvents.size(), 2, "Read events failed");
+        Assert.assertEquals(outputEvents.get(0), new Object[]{"WSO2", 5.6, 100L});
+        Assert.assertEquals(outputEvents.get(1), new Object[]{"IBM", null, 10L});
+    }
+
+    @Test
+    public void testMongoTableJoinQuery11() throws InterruptedException {
+        log.info("testMongoTableJoinQuery11");
+        //The cursors of lookups are closed once they are consumed
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, price float, volume long); " +
+                "define stream FooStream (symbol string); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "', cursor.batch.size='2')" +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream " +
+                "insert into FooTable ;" +
+                "" +
+                "@info(name = 'query2') " +
+                "from FooStream#window.length(1) join FooTable " +
+                "on FooStream.symbol == FooTable.symbol " +
+                "select FooTable.symbol as symbol, FooTable.volume as volume " +
+                "insert into OutputStream ;";
+
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        siddhiAppRuntime.addCallback("query2", new QueryCallback() {
+            @Override
+            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
+                if (inEvents != null) {
+                    eventCount.addAndGet(inEvents.length);
+                }
+            }
+        });
+
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+
+        for (int i = 0; i < 5; i++) {
+            stockStream.send(new Object[]{"WSO2", 5.6f, (long) i});
+        }
+        fooStream.send(new Object[]{"WSO2"});
+        fooStream.send(new Object[]{"IBM"});
+        fooStream.send(new Object[]{"WSO2"});
+        SiddhiTestHelper.waitForEvents(waitTime, 10, eventCount, timeout);
+        MongoDBEventTable fooTable = MongoTableTestUtils.getTable(siddhiAppRuntime, "FooTable");
+        long openCursorCount = fooTable.getOpenCursorCount();
+        long closedCursorCount = fooTable.getClosedCursorCount();
+        long leakedCursorCount = fooTable.getLeakedCursorCount();
+
+        siddhiAppRuntime.shutdown();
+
+        Assert.assertEquals(eventCount.intValue(), 10, "Read events failed");
+        Assert.assertEquals(openCursorCount, 0);
+        Assert.assertTrue(closedCursorCount >= 3, "Cursors of the lookups were not closed");
+        Assert.assertEquals(leakedCursorCount, 0);
+    }
+
+    @Test(timeOut = 30000)
+    public void testMongoTableJoinQuery12() throws InterruptedException {
+        log.info("testMongoTableJoinQuery12");
+        //The cursors of iterators which are neither closed nor exhausted are closed as leaked
+
+        MongoCursorTracker cursorTracker = new MongoCursorTracker("FooTable");
+        TestCursor closedCursor = new TestCursor();
+        cursorTracker.track(new MongoIterator(), closedCursor).close();
+        TestCursor leakedCursor = new TestCursor();
+        cursorTracker.track(new MongoIterator(), leakedCursor);
+        MongoIterator openIterator = new MongoIterator();
+        TestCursor openCursor = new TestCursor();
+        cursorTracker.track(openIterator, openCursor);
+
+        while (cursorTracker.getLeakedCursorCount() == 0) {
+            System.gc();
+            Thread.sleep(waitTime);
+            cursorTracker.closeLeakedCursors();
+        }
+        Assert.assertTrue(closedCursor.closed);
+        Assert.assertTrue(leakedCursor.closed);
+        Assert.assertFalse(openCursor.closed);
+        Assert.assertEquals(cursorTracker.getOpenCursorCount(), 1);
+        Assert.assertEquals(cursorTracker.getClosedCursorCount(), 1);
+        Assert.assertEquals(cursorTracker.getLeakedCursorCount(), 1);
+
+        // The cursors left open when the table is disconnected are closed as leaked.
+        cursorTracker.closeAll();
+        Assert.assertTrue(openCursor.closed);
+        Assert.assertEquals(cursorTracker.getOpenCursorCount(), 0);
+        Assert.assertEquals(cursorTracker.getLeakedCursorCount(), 2);
+        // Keeps the iterator reachable until here, so that its cursor is not collected as leaked.
+        Assert.assertNotNull(openIterator);
+    }
+
+    @Test(timeOut = 30000)
+    public void testMongoTableJoinQuery13() throws Exception {
+        log.info("testMongoTableJoinQuery13");
+        //The caller which sends the lookups returns once its own lookup is answered
+
+        MongoLookupBatcher lookupBatcher = new MongoLookupBatcher("FooTable",
+                Arrays.asList("symbol", "price", "volume"), 1);
+        List<BsonDocument> filters = new CopyOnWriteArrayList<>();
+        CountDownLatch firstLookupSent = new CountDownLatch(1);
+        CountDownLatch firstLookupReleased = new CountDownLatch(1);
+        CountDownLatch secondLookupReleased = new CountDownLatch(1);
+        MongoLookupBatcher.DocumentLoader loader = filter -> {
+            filters.add(filter);
+            try {
+                if (filters.size() == 1) {
+                    firstLookupSent.countDown();
+                    firstLookupReleased.await();
+                } else if (filters.size() == 2) {
+                    secondLookupReleased.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Collections.singletonList(new Object[]{"WSO2", 5.6f, 100L});
+        };
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try {
+            Future<List<Object[]>> first = executorService.submit(
+                    () -> lookupBatcher.lookup("symbol", new BsonString("WSO2"), loader));
+            firstLookupSent.await();
+            Future<List<Object[]>> second = executorService.submit(
+                    () -> lookupBatcher.lookup("symbol", new BsonString("IBM"), loader));
+            Future<List<Object[]>> third = executorService.submit(
+                    () -> lookupBatcher.lookup("symbol", new BsonString("ORCL"), loader));
+            while (lookupBatcher.getPendingLookupCount("symbol") < 2) {
+                Thread.sleep(waitTime);
+            }
+            firstLookupReleased.countDown();
+
+            Assert.assertEquals(first.get(timeout, TimeUnit.MILLISECONDS).size(), 1);
+            Assert.assertFalse(second.isDone(), "The lookup was answered before its query was released");
+            secondLookupReleased.countDown();
+            Assert.assertTrue(second.get().isEmpty());
+            Assert.assertTrue(third.get().isEmpty());
+        } finally {
+            executorService.shutdownNow();
+        }
+        Assert.assertEquals(filters.size(), 3, "Lookups were not sent one by one");
+        Assert.assertEquals(lookupBatcher.getPendingLookupCount("symbol"), 0);
+    }
+
+    @Test
+    public void testMongoTableJoinQuery14() throws Exception {
+        log.info("testMongoTableJoinQuery14");
+        //Lookups match the documents whose numbers are equal to the value in any numeric BSON type
+
+        MongoLookupBatcher lookupBatcher = new MongoLookupBatcher("FooTable",
+                Arrays.asList("symbol", "price", "volume"), 100);
+        List<Object[]> documents = lookupBatcher.lookup("volume", new BsonInt32(10),
+                filter -> Arrays.asList(new Object[]{"WSO2", 5.6f, Decimal128.parse("10.00")},
+                        new Object[]{"IBM", 7.6f, 10L}, new Object[]{"ORCL", 8.6f, 10.0},
+                        new Object[]{"MSFT", 9.6f, 10.5}));
+        Assert.assertEquals(documents.size(), 3);
+        Assert.assertEquals(documents.get(0)[0], "WSO2");
+        Assert.assertEquals(documents.get(1)[0], "IBM");
+        Assert.assertEquals(documents.get(2)[0], "ORCL");
+    }
+
+    /**
+     * Cursor without any documents, which records whether it is closed.
+     */
+    private static final class TestCursor implements MongoCursor<Object[]> {
+        private volatile boolean closed;
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return false;
+        }
+
+        @Override
+        public Object[] next() {
+            throw new NoSuchElementException();
+        }
+
+        @Override
+        public int available() {
+            return 0;
+        }
+
+        @Override
+        public Object[] tryNext() {
+            return null;
+        }
+
+        @Override
+        public ServerCursor getServerCursor() {
+            return null;
+        }
+
+        @Override
+        public ServerAddress getServerAddress() {
+            return null;
+        }
+    }
 }
@@ -23,6 +23,8 @@ import com.mongodb.MongoException;
 import com.mongodb.client.ListIndexesIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.table.Table;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.bson.Document;
@@ -162,6 +164,15 @@ public class MongoTableTestUtils {
         }
     }
 
+    public static void insertDocument(String uri, String collectionName, String document) {
+        try (MongoClient mongoClient = MongoClients.create(new ConnectionString(uri))) {
+            mongoClient.getDatabase(databaseName).getCollection(collectionName).insertOne(Document.parse(document));
+        } catch (MongoException e) {
+            log.debug("Inserting document to DB table failed due to " + e.getMessage(), e);
+            throw e;
+        }
+    }
+
     public static void createCollection(String uri, String collectionName) {
         dropCollection(uri, collectionName);
         try (MongoClient mongoClient = MongoClients.create(new ConnectionString(uri))) {
@@ -171,6 +182,15 @@ public class MongoTableTestUtils {
             throw e;
         }
     }
+
+    public static MongoDBEventTable getTable(SiddhiAppRuntime siddhiAppRuntime, String tableId) {
+        for (Table table : siddhiAppRuntime.getTables()) {
+            if (table instanceof MongoDBEventTable && table.getTableDefinition().getId().equals(tableId)) {
+                return (MongoDBEventTable) table;
+            }
+        }
+        throw new IllegalArgumentException("No MongoDB Event Table '" + tableId + "' in the Siddhi app.");
+    }
 }
 
 
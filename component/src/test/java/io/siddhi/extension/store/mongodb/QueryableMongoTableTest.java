@@ -17,6 +17,7 @@
  */
 package io.siddhi.extension.store.mongodb;
 
+import com.mongodb.MongoClientSettings;
 import io.siddhi.core.SiddhiAppRuntime;
 import io.siddhi.core.SiddhiManager;
 import io.siddhi.core.event.Event;
@@ -24,8 +25,22 @@ import io.siddhi.core.query.output.callback.QueryCallback;
 import io.siddhi.core.stream.input.InputHandler;
 import io.siddhi.core.util.EventPrinter;
 import io.siddhi.core.util.SiddhiTestHelper;
+import io.siddhi.extension.store.mongodb.exception.MongoTableException;
+import io.siddhi.extension.store.mongodb.util.MongoTableConstants;
+import io.siddhi.query.api.definition.Attribute;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt32;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
 import org.testng.AssertJUnit;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.AfterMethod;
@@ -35,7 +50,12 @@ import org.testng.annotations.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class QueryableMongoTableTest {
@@ -1492,4 +1512,418 @@ public class QueryableMongoTableTest {
         AssertJUnit.assertEquals("Number of success events", 2, inEventCount.get());
         AssertJUnit.assertTrue("In events matched", SiddhiTestHelper.isUnsortedEventsMatch(inEventsList, expected));
     }
+
+    @Test
+    public void testMongoTableQuery24() throws InterruptedException {
+        log.info("testMongoTableQuery24 : Test selection of store attributes with an adaptive cursor batch size.");
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, amount int); " +
+                "define stream FooStream (symbol string, volume int); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "', cursor.batch.size='adaptive')" +
+                "define table FooTable (symbol string, amount int);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream " +
+                "insert into FooTable ;" +
+                "" +
+                "@info(name = 'query2') " +
+                "from FooStream as s join FooTable as t " +
+                "on s.symbol == t.symbol " +
+                "select t.symbol as tblSymbol, t.amount as tblAmount, s.volume as streamVolume " +
+                "insert into OutputStream ;";
+
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        siddhiAppRuntime.addCallback("query2", new QueryCallback() {
+            @Override
+            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
+                if (inEvents != null) {
+                    EventPrinter.print(timeStamp, inEvents, removeEvents);
+                    for (Event event : inEvents) {
+                        inEventsList.add(event.getData());
+                        inEventCount.incrementAndGet();
+                    }
+                    eventArrived = true;
+                }
+                eventArrived = true;
+            }
+        });
+
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+
+        for (int i = 0; i < 10; i++) {
+            stockStream.send(new Object[]{"WSO2", i});
+        }
+        stockStream.send(new Object[]{"IBM", 160});
+        // The second lookup uses the batch size adapted to the first one.
+        fooStream.send(new Object[]{"WSO2", 10});
+        fooStream.send(new Object[]{"WSO2", 20});
+        SiddhiTestHelper.waitForEvents(waitTime, 20, inEventCount, timeout);
+        // The batches hold the ten documents of a lookup, and one more so that the cursor closes with them.
+        Integer adaptedBatchSize = MongoTableTestUtils.getTable(siddhiAppRuntime, "FooTable").getFindCursorBatchSize();
+
+        siddhiAppRuntime.shutdown();
+
+        AssertJUnit.assertTrue("Event arrived", eventArrived);
+        AssertJUnit.assertEquals("Number of success events", 20, inEventCount.get());
+        for (Object[] event : inEventsList) {
+            AssertJUnit.assertEquals("WSO2", event[0]);
+        }
+        AssertJUnit.assertEquals(Integer.valueOf(11), adaptedBatchSize);
+    }
+
+    @Test
+    public void testMongoTableQuery25() throws InterruptedException {
+        log.info("testMongoTableQuery25 : Test selection of store attributes read ahead by a prefetching cursor.");
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, amount int); " +
+                "define stream FooStream (symbol string, volume int); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "', cursor.prefetch.enabled='true', " +
+                "cursor.prefetch.buffer.size='4')" +
+                "define table FooTable (symbol string, amount int);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream " +
+                "insert into FooTable ;" +
+                "" +
+                "@info(name = 'query2') " +
+                "from FooStream as s join FooTable as t " +
+                "on s.symbol == t.symbol " +
+                "select t.symbol as tblSymbol, t.amount as tblAmount, s.volume as streamVolume " +
+                "insert into OutputStream ;";
+
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        siddhiAppRuntime.addCallback("query2", new QueryCallback() {
+            @Override
+            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
+                if (inEvents != null) {
+                    EventPrinter.print(timeStamp, inEvents, removeEvents);
+                    for (Event event : inEvents) {
+                        inEventsList.add(event.getData());
+                        inEventCount.incrementAndGet();
+                    }
+                    eventArrived = true;
+                }
+                eventArrived = true;
+            }
+        });
+
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+
+        for (int i = 0; i < 10; i++) {
+            stockStream.send(new Object[]{"WSO2", i});
+        }
+        stockStream.send(new Object[]{"IBM", 160});
+        fooStream.send(new Object[]{"WSO2", 10});
+        fooStream.send(new Object[]{"WSO2", 20});
+        SiddhiTestHelper.waitForEvents(waitTime, 20, inEventCount, timeout);
+
+        siddhiAppRuntime.shutdown();
+
+        AssertJUnit.assertTrue("Event arrived", eventArrived);
+        AssertJUnit.assertEquals("Number of success events", 20, inEventCount.get());
+        for (Object[] event : inEventsList) {
+            AssertJUnit.assertEquals("WSO2", event[0]);
+        }
+    }
+
+    @Test
+    public void testMongoTableQuery26() throws InterruptedException {
+        log.info("testMongoTableQuery26 : Test orderBy condition with offset and limit conditions.");
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, amount int); " +
+                "define stream FooStream (symbol string); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "')" +
+                "define table FooTable (symbol string, amount int);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream " +
+                "insert into FooTable ;" +
+                "" +
+                "@info(name = 'query2') " +
+                "from FooStream as s join FooTable as t " +
+                "select t.symbol, t.amount " +
+                "order by t.amount DESC " +
+                "limit 2 " +
+                "offset 1 " +
+                "insert into OutputStream ;";
+
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        siddhiAppRuntime.addCallback("query2", new QueryCallback() {
+            @Override
+            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
+                if (inEvents != null) {
+                    EventPrinter.print(timeStamp, inEvents, removeEvents);
+                    for (Event event : inEvents) {
+                        inEventsList.add(event.getData());
+                        inEventCount.incrementAndGet();
+                    }
+                    eventArrived = true;
+                }
+                eventArrived = true;
+            }
+        });
+
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+
+        stockStream.send(new Object[]{"WSO2", 100});
+        stockStream.send(new Object[]{"GOOGLE", 120});
+        stockStream.send(new Object[]{"IBM", 160});
+        stockStream.send(new Object[]{"WINDOWS", 130});
+        stockStream.send(new Object[]{"LINUX", 110});
+        fooStream.send(new Object[]{"WSO2"});
+        SiddhiTestHelper.waitForEvents(waitTime, 2, inEventCount, timeout);
+
+        siddhiAppRuntime.shutdown();
+
+        AssertJUnit.assertTrue("Event arrived", eventArrived);
+        AssertJUnit.assertEquals("Number of success events", 2, inEventCount.get());
+        AssertJUnit.assertEquals("WINDOWS", inEventsList.get(0)[0]);
+        AssertJUnit.assertEquals(130, inEventsList.get(0)[1]);
+        AssertJUnit.assertEquals("GOOGLE", inEventsList.get(1)[0]);
+        AssertJUnit.assertEquals(120, inEventsList.get(1)[1]);
+    }
+
+    @Test
+    public void testMongoTableQuery27() {
+        log.info("testMongoTableQuery27 : Test decoding of documents straight into records.");
+
+        CodecRegistry codecRegistry = MongoClientSettings.getDefaultCodecRegistry();
+        MongoRecordCodec recordCodec = new MongoRecordCodec(Arrays.asList(
+                new Attribute("symbol", Attribute.Type.STRING), new Attribute("price", Attribute.Type.FLOAT),
+                new Attribute("volume", Attribute.Type.LONG), new Attribute("active", Attribute.Type.BOOL)),
+                codecRegistry);
+        BsonDocument document = new BsonDocument();
+        recordCodec.encode(new BsonDocumentWriter(document), new Object[]{"WSO2", 55.5f, 100L, null},
+                EncoderContext.builder().build());
+        AssertJUnit.assertEquals(BsonDocument.parse(
+                "{symbol: 'WSO2', price: 55.5, volume: {$numberLong: '100'}, active: null}"), document);
+        AssertJUnit.assertEquals(new RawBsonDocument(document, new BsonDocumentCodec()).getByteBuffer().remaining(),
+                recordCodec.getEncodedSize(new Object[]{"WSO2", 55.5f, 100L, null}));
+        Object[] record = recordCodec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+        AssertJUnit.assertEquals(Arrays.asList("WSO2", 55.5, 100L, null), Arrays.asList(record));
+
+        // The results of a selection are read by output attribute, skipping the other fields.
+        MongoRecordDecoder selectionDecoder = new MongoRecordDecoder(new String[]{"total", "symbol", "details"},
+                codecRegistry);
+        RawBsonDocument result = RawBsonDocument.parse(
+                "{_id: 1, symbol: 'IBM', details: {exchange: 'NYSE', listed: {year: 1911}}, total: 200}");
+        Object[] selected = result.decode(selectionDecoder);
+        AssertJUnit.assertEquals(3, selected.length);
+        AssertJUnit.assertEquals(200, selected[0]);
+        AssertJUnit.assertEquals("IBM", selected[1]);
+        Map<?, ?> details = (Map<?, ?>) selected[2];
+        AssertJUnit.assertEquals("NYSE", details.get("exchange"));
+        AssertJUnit.assertEquals(new Document("year", 1911), details.get("listed"));
+        AssertJUnit.assertNull(RawBsonDocument.parse("{symbol: 'IBM'}").decode(selectionDecoder)[0]);
+    }
+
+    @Test
+    public void testMongoTableQuery28() throws InterruptedException {
+        log.info("testMongoTableQuery28 : Test adaptive cursor batch size of cursors read ahead.");
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, amount int); " +
+                "define stream FooStream (symbol string, volume int); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "', cursor.batch.size='adaptive', " +
+                "cursor.prefetch.enabled='true')" +
+                "define table FooTable (symbol string, amount int);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream " +
+                "insert into FooTable ;" +
+                "" +
+                "@info(name = 'query2') " +
+                "from FooStream as s join FooTable as t " +
+                "on s.symbol == t.symbol " +
+                "select t.symbol as tblSymbol, t.amount as tblAmount, s.volume as streamVolume " +
+                "insert into OutputStream ;";
+
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        siddhiAppRuntime.addCallback("query2", new QueryCallback() {
+            @Override
+            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
+                if (inEvents != null) {
+                    EventPrinter.print(timeStamp, inEvents, removeEvents);
+                    for (Event event : inEvents) {
+                        inEventsList.add(event.getData());
+                        inEventCount.incrementAndGet();
+                    }
+                    eventArrived = true;
+                }
+                eventArrived = true;
+            }
+        });
+
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+
+        for (int i = 0; i < 10; i++) {
+            stockStream.send(new Object[]{"WSO2", i});
+        }
+        stockStream.send(new Object[]{"IBM", 160});
+        // The second lookup uses the batch size adapted to the first one.
+        fooStream.send(new Object[]{"WSO2", 10});
+        fooStream.send(new Object[]{"WSO2", 20});
+        SiddhiTestHelper.waitForEvents(waitTime, 20, inEventCount, timeout);
+        // The batches hold the ten documents of a lookup, and one more so that the cursor closes with them.
+        Integer adaptedBatchSize = MongoTableTestUtils.getTable(siddhiAppRuntime, "FooTable").getFindCursorBatchSize();
+
+        siddhiAppRuntime.shutdown();
+
+        AssertJUnit.assertTrue("Event arrived", eventArrived);
+        AssertJUnit.assertEquals("Number of success events", 20, inEventCount.get());
+        for (Object[] event : inEventsList) {
+            AssertJUnit.assertEquals("WSO2", event[0]);
+        }
+        AssertJUnit.assertEquals(Integer.valueOf(11), adaptedBatchSize);
+    }
+
+    @Test(timeOut = 30000)
+    public void testMongoTableQuery29() {
+        log.info("testMongoTableQuery29 : Test records read ahead when the reading thread is interrupted.");
+
+        List<Object[]> records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            records.add(new Object[]{"WSO2", i});
+        }
+        ExecutorService executor = Executors.newCachedThreadPool();
+        MongoPrefetchingIterator iterator = new MongoPrefetchingIterator(new MongoIterator(records), 1, executor);
+        // The table shuts the executor down when it is disconnected, while the consumer may still be reading.
+        executor.shutdownNow();
+        int consumedCount = 0;
+        try {
+            while (iterator.hasNext()) {
+                iterator.next();
+                consumedCount++;
+            }
+            AssertJUnit.fail("The interruption of the read ahead was not reported");
+        } catch (MongoTableException e) {
+            AssertJUnit.assertTrue(e.getMessage().contains("interrupted"));
+        }
+        AssertJUnit.assertTrue(consumedCount < records.size());
+    }
+
+    @Test
+    public void testMongoTableQuery30() throws InterruptedException {
+        log.info("testMongoTableQuery30 : Test selection of store attributes read by parallel '_id' ranges.");
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, amount int); " +
+                "define stream FooStream (symbol string); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "', parallel.scan.partitions='2')" +
+                "define table FooTable (symbol string, amount int);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream " +
+                "insert into FooTable ;" +
+                "" +
+                "@info(name = 'query2') " +
+                "from FooStream#window.length(1) join FooTable " +
+                "select FooTable.symbol as tblSymbol, FooTable.amount as tblAmount " +
+                "insert into OutputStream ;";
+
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        siddhiAppRuntime.addCallback("query2", new QueryCallback() {
+            @Override
+            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
+                if (inEvents != null) {
+                    inEventCount.addAndGet(inEvents.length);
+                }
+            }
+        });
+
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+        MongoDBEventTable fooTable = MongoTableTestUtils.getTable(siddhiAppRuntime, "FooTable");
+
+        Event[] stockEvents = new Event[20000];
+        for (int i = 0; i < stockEvents.length; i++) {
+            stockEvents[i] = new Event(System.currentTimeMillis(), new Object[]{"WSO2", i});
+        }
+        stockStream.send(stockEvents);
+        // The first scan is read by a single cursor, while the ranges are computed in the background.
+        fooStream.send(new Object[]{"WSO2"});
+        SiddhiTestHelper.waitForEvents(waitTime, 20000, inEventCount, timeout);
+        long start = System.currentTimeMillis();
+        while (fooTable.getScanRangeCount() == 0 && System.currentTimeMillis() - start < timeout) {
+            Thread.sleep(100);
+        }
+        int scanRangeCount = fooTable.getScanRangeCount();
+        // A document whose '_id' is of another type than the ranges is read by the last range.
+        MongoTableTestUtils.insertDocument(uri, "FooTable", "{_id: 'IBM-1', symbol: 'IBM', amount: 1}");
+        fooStream.send(new Object[]{"WSO2"});
+        SiddhiTestHelper.waitForEvents(waitTime, 40001, inEventCount, timeout);
+        long openCursorCount = fooTable.getOpenCursorCount();
+
+        siddhiAppRuntime.shutdown();
+
+        AssertJUnit.assertEquals("Number of '_id' ranges", 3, scanRangeCount);
+        AssertJUnit.assertEquals("Number of success events", 40001, inEventCount.get());
+        AssertJUnit.assertEquals("Number of open cursors", 0, openCursorCount);
+    }
+
+    @Test
+    public void testMongoTableQuery31() {
+        log.info("testMongoTableQuery31 : Test precompiled stages of the aggregation pipeline of a selection.");
+
+        Map<String, BsonTemplate> projection = new LinkedHashMap<>();
+        projection.put("_id", BsonTemplate.constant(new BsonInt32(0)));
+        projection.put("symbol", BsonTemplate.constant(new BsonInt32(1)));
+        projection.put("streamVolume", BsonTemplate.document(MongoTableConstants.MONGO_LITERAL,
+                BsonTemplate.parameter("volume", Attribute.Type.INT)));
+        BsonTemplate project = BsonTemplate.document(MongoTableConstants.MONGO_PROJECT,
+                BsonTemplate.document(projection));
+        BsonTemplate orderBy = BsonTemplate.constant(BsonDocument.parse("{$sort: {symbol: 1}}"));
+        MongoDBCompileSelection compileSelection = new MongoDBCompileSelection(project, null, null, orderBy, 5L, 10L,
+                null, null);
+
+        Map<String, Object> parameterMap = new HashMap<>();
+        parameterMap.put("volume", 3);
+        List<Bson> stages = compileSelection.bindStages(parameterMap);
+        AssertJUnit.assertEquals(Arrays.asList(
+                BsonDocument.parse("{$project: {_id: 0, symbol: 1, streamVolume: {$literal: 3}}}"),
+                BsonDocument.parse("{$sort: {symbol: 1}}"),
+                BsonDocument.parse("{$skip: {$numberLong: '10'}}"),
+                BsonDocument.parse("{$limit: {$numberLong: '5'}}")), stages);
+        // Only the stage with a stream attribute is bound again, the others are bound once at compile time.
+        parameterMap.put("volume", 4);
+        List<Bson> reboundStages = compileSelection.bindStages(parameterMap);
+        AssertJUnit.assertEquals(BsonDocument.parse("{$project: {_id: 0, symbol: 1, streamVolume: {$literal: 4}}}"),
+                reboundStages.get(0));
+        for (int i = 1; i < stages.size(); i++) {
+            AssertJUnit.assertSame(stages.get(i), reboundStages.get(i));
+        }
+
+        AssertJUnit.assertFalse(compileSelection.isPartitionable());
+        AssertJUnit.assertFalse(new MongoDBCompileSelection(project, null, null, null, 5L, null, null, null)
+                .isPartitionable());
+        AssertJUnit.assertTrue(new MongoDBCompileSelection(project, null, null, null, null, null, null, null)
+                .isPartitionable());
+    }
 }
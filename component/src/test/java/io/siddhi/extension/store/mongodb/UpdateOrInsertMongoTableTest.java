@@ -20,6 +20,7 @@ package io.siddhi.extension.store.mongodb;
 
 import io.siddhi.core.SiddhiAppRuntime;
 import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
 import io.siddhi.core.exception.SiddhiAppCreationException;
 import io.siddhi.core.stream.input.InputHandler;
 import org.apache.logging.log4j.LogManager;
@@ -280,4 +281,97 @@ public class UpdateOrInsertMongoTableTest {
         siddhiAppRuntime.start();
         siddhiAppRuntime.shutdown();
     }
+
+    @Test
+    public void updateOrInsertMongoTableTest8() throws InterruptedException {
+        log.info("updateOrInsertMongoTableTest8 - Configure siddhi to perform insert/update on MongoDB Document " +
+                "with a batch of events having the same condition");
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, price float, volume long); " +
+                "define stream FooStream (symbol string, price float, volume long); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "') " +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream " +
+                "insert into FooTable ;" +
+                "" +
+                "@info(name = 'query2') " +
+                "from FooStream " +
+                "update or insert into FooTable " +
+                "   on FooTable.symbol== symbol ;";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+
+        stockStream.send(new Object[]{"WSO2", 55.6F, 100L});
+        long timestamp = System.currentTimeMillis();
+        fooStream.send(new Event[]{
+                new Event(timestamp, new Object[]{"WSO2", 20.5F, 200L}),
+                new Event(timestamp, new Object[]{"WSO2", 30.5F, 300L})
+        });
+
+        siddhiAppRuntime.shutdown();
+
+        long totalDocumentsInCollection = MongoTableTestUtils.getDocumentsCount(uri, "FooTable");
+        Assert.assertEquals(totalDocumentsInCollection, 1, "Update failed");
+
+        Document expectedUpdatedDocument = new Document()
+                .append("symbol", "WSO2")
+                .append("price", 30.5)
+                .append("volume", 300L);
+        Document updatedDocument = MongoTableTestUtils.getDocument(uri, "FooTable", "{symbol:'WSO2'}");
+        Assert.assertEquals(updatedDocument, expectedUpdatedDocument, "Update Failed");
+    }
+
+    @Test
+    public void updateOrInsertMongoTableTest9() throws InterruptedException {
+        log.info("updateOrInsertMongoTableTest9 - Configure siddhi to perform insert/update on MongoDB Document " +
+                "with a condition on the primary key");
+
+        MongoTableTestUtils.dropCollection(uri, "FooTable");
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                "define stream StockStream (symbol string, price float, volume long); " +
+                "define stream FooStream (symbol string, price float, volume long); " +
+                "@store(type = 'mongodb' , mongodb.uri='" + uri + "') " +
+                "@PrimaryKey(\"symbol\")" +
+                "define table FooTable (symbol string, price float, volume long);";
+        String query = "" +
+                "@info(name = 'query1') " +
+                "from StockStream " +
+                "insert into FooTable ;" +
+                "" +
+                "@info(name = 'query2') " +
+                "from FooStream " +
+                "update or insert into FooTable " +
+                "   on FooTable.symbol== symbol ;";
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+        InputHandler fooStream = siddhiAppRuntime.getInputHandler("FooStream");
+        siddhiAppRuntime.start();
+
+        stockStream.send(new Object[]{"WSO2", 55.6F, 100L});
+        stockStream.send(new Object[]{"GOOG", 75.6F, 100L});
+        fooStream.send(new Object[]{"WSO2", 57.6, 100});
+        fooStream.send(new Object[]{"GOOG_2", 10.6, 100});
+
+        siddhiAppRuntime.shutdown();
+
+        long totalDocumentsInCollection = MongoTableTestUtils.getDocumentsCount(uri, "FooTable");
+        Assert.assertEquals(totalDocumentsInCollection, 3, "Update failed");
+
+        Document expectedUpdatedDocument = new Document()
+                .append("symbol", "WSO2")
+                .append("price", 57.6)
+                .append("volume", 100);
+        Document updatedDocument = MongoTableTestUtils.getDocument(uri, "FooTable", "{symbol:'WSO2'}");
+        Assert.assertEquals(updatedDocument, expectedUpdatedDocument, "Update Failed");
+    }
 }